@@ -1,36 +1,77 @@
 package org.example;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.example.filter.StaleSnapshotGatewayFilterFactory;
+import org.example.filter.StaleSnapshotStore;
+import org.example.filter.StaleSnapshotStore.Snapshot;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 import java.util.HashMap;
 import java.util.Map;
 
+// Fallback dei circuit breaker: per le GET si serve l'ultima risposta valida della stessa risorsa
+// (marcata come stale con la sua età), solo in assenza di snapshot si risponde 503
 @RestController
 @RequestMapping("/fallback")
+@RequiredArgsConstructor
 public class FallbackController {
 
-    @GetMapping("/products")
-    public Mono<ResponseEntity<Map<String, String>>> productServiceFallback() {
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "error");
-        response.put("message", "Product Service is currently unavailable. Please try again later.");
-        
-        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(response));
+    private final StaleSnapshotStore snapshotStore;
+    private final ObjectMapper objectMapper;
+
+    @RequestMapping("/products")
+    public Mono<ResponseEntity<byte[]>> productServiceFallback(ServerWebExchange exchange) {
+        return staleOrUnavailable(exchange, "Product Service is currently unavailable. Please try again later.");
     }
 
-    @GetMapping("/orders")
-    public Mono<ResponseEntity<Map<String, String>>> orderServiceFallback() {
+    @RequestMapping("/orders")
+    public Mono<ResponseEntity<byte[]>> orderServiceFallback(ServerWebExchange exchange) {
+        return staleOrUnavailable(exchange, "Order Service is currently unavailable. Please try again later.");
+    }
+
+    private Mono<ResponseEntity<byte[]>> staleOrUnavailable(ServerWebExchange exchange, String message) {
+        if (HttpMethod.GET.equals(exchange.getRequest().getMethod())) {
+            Snapshot snapshot = snapshotStore.getStale(exchange.getAttribute(StaleSnapshotStore.SNAPSHOT_KEY_ATTR));
+            if (snapshot != null) {
+                return Mono.just(stale(snapshot));
+            }
+        }
+
         Map<String, String> response = new HashMap<>();
         response.put("status", "error");
-        response.put("message", "Order Service is currently unavailable. Please try again later.");
-        
-        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
-                .body(response));
+        response.put("message", message);
+
+        return Mono.fromCallable(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(toJson(response)));
+    }
+
+    // no-store: la risposta stale non deve finire nella cache delle risposte del gateway
+    private static ResponseEntity<byte[]> stale(Snapshot snapshot) {
+        long ageSeconds = Math.max(0, (System.currentTimeMillis() - snapshot.storedAtMillis()) / 1000);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .header(StaleSnapshotGatewayFilterFactory.STALE_HEADER, "true")
+                .header(HttpHeaders.AGE, String.valueOf(ageSeconds))
+                .header(HttpHeaders.WARNING, "110 - \"Response is Stale\"")
+                .cacheControl(CacheControl.noStore());
+        if (snapshot.contentType() != null) {
+            builder.header(HttpHeaders.CONTENT_TYPE, snapshot.contentType());
+        }
+        return builder.body(snapshot.body());
+    }
+
+    private byte[] toJson(Map<String, String> body) throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(body);
     }
-}
\ No newline at end of file
+}
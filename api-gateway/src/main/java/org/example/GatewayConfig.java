@@ -2,38 +2,113 @@ package org.example;
 
 import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import org.example.aggregation.OrderDetailsGatewayFilter;
+import org.example.filter.AdaptiveConcurrencyGatewayFilterFactory;
+import org.example.filter.BudgetedRetryGatewayFilterFactory;
+import org.example.filter.HedgingGatewayFilterFactory;
+import org.example.filter.RequestCoalescingGatewayFilterFactory;
+import org.example.filter.ResponseCacheGatewayFilterFactory;
+import org.example.filter.StaleSnapshotGatewayFilterFactory;
+import org.example.ratelimit.InMemoryRateLimiter;
 import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
 import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
 import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class GatewayConfig {
 
     @Bean
-    public RouteLocator customRouteLocator(RouteLocatorBuilder builder) {
+    public RouteLocator customRouteLocator(RouteLocatorBuilder builder,
+                                           ResponseCacheGatewayFilterFactory responseCache,
+                                           StaleSnapshotGatewayFilterFactory staleSnapshots,
+                                           RequestCoalescingGatewayFilterFactory requestCoalescing,
+                                           HedgingGatewayFilterFactory hedging,
+                                           BudgetedRetryGatewayFilterFactory retry,
+                                           AdaptiveConcurrencyGatewayFilterFactory adaptiveConcurrency,
+                                           RequestRateLimiterGatewayFilterFactory requestRateLimiter,
+                                           InMemoryRateLimiter rateLimiter,
+                                           KeyResolver clientIpKeyResolver,
+                                           OrderDetailsGatewayFilter orderDetails) {
+        // Il rate limit precede cache, coalescing e hedging: ogni richiesta del client viene contata una sola volta
+        GatewayFilter rateLimit = requestRateLimiter.apply(config -> config
+                .setRateLimiter(rateLimiter)
+                .setKeyResolver(clientIpKeyResolver));
+
         return builder.routes()
                 .route("product-service", r -> r
                         .path("/api/products/**")
                         .filters(f -> f
                                 .stripPrefix(1)
+                                .filter(rateLimit, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1)
+                                .filter(responseCache.apply(config -> config
+                                        .setTtl(Duration.ofSeconds(30))
+                                        .setItemPath("/api/products/{id:[0-9]+}")))
+                                .filter(staleSnapshots.apply(config -> config
+                                        .setMaxEntrySize(DataSize.ofKilobytes(512))))
+                                .filter(requestCoalescing.apply(config -> config
+                                        .setMaxWaiters(200)
+                                        .setTimeout(Duration.ofSeconds(2))
+                                        .setMaxBodySize(DataSize.ofKilobytes(512))))
+                                // Solo letture con risposta limitata: niente export NDJSON, lista completa o categorie
+                                .filter(hedging.apply(config -> config
+                                        .setPaths(List.of("/api/products/{id:[0-9]+}", "/api/products/batch",
+                                                "/api/products/page", "/api/products/search"))
+                                        .setPercentile(0.95)
+                                        .setBudgetPercent(10)))
                                 .circuitBreaker(config -> config
                                         .setName("productServiceCircuitBreaker")
-                                        .setFallbackUri("forward:/fallback/products")))
+                                        .setFallbackUri("forward:/fallback/products"))
+                                .filter(retry.apply(config -> config
+                                        .setMaxAttempts(3)
+                                        .setCircuitBreakerName("productServiceCircuitBreaker")))
+                                .filter(adaptiveConcurrency.apply(config -> config
+                                        .setInitialLimit(20)
+                                        .setMaxLimit(500))))
                         .uri("lb://PRODUCT-SERVICE"))
                 .route("order-service", r -> r
                         .path("/api/orders/**")
                         .filters(f -> f
                                 .stripPrefix(1)
+                                .filter(rateLimit, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1)
+                                .filter(staleSnapshots.apply(config -> config
+                                        .setMaxEntrySize(DataSize.ofKilobytes(512))))
                                 .circuitBreaker(config -> config
                                         .setName("orderServiceCircuitBreaker")
-                                        .setFallbackUri("forward:/fallback/orders")))
+                                        .setFallbackUri("forward:/fallback/orders"))
+                                .filter(retry.apply(config -> config
+                                        .setMaxAttempts(3)
+                                        .setCircuitBreakerName("orderServiceCircuitBreaker")))
+                                .filter(adaptiveConcurrency.apply(config -> config
+                                        .setInitialLimit(20)
+                                        .setMaxLimit(200))))
                         .uri("lb://ORDER-SERVICE"))
+                // Aggregazione ordine + prodotti: la risposta la scrive l'ultimo filtro, non c'è un backend da chiamare
+                .route("order-details", r -> r
+                        .path("/api/order-details/{orderNumber}")
+                        .filters(f -> f
+                                .filter(rateLimit, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1)
+                                .circuitBreaker(config -> config
+                                        .setName("orderDetailsCircuitBreaker"))
+                                .filter(retry.apply(config -> config
+                                        .setMaxAttempts(2)
+                                        .setCircuitBreakerName("orderDetailsCircuitBreaker")))
+                                .filter(adaptiveConcurrency.apply(config -> config
+                                        .setInitialLimit(20)
+                                        .setMaxLimit(200)))
+                                .filter(orderDetails))
+                        .uri("no://op"))
                 .build();
     }
 
@@ -0,0 +1,45 @@
+package org.example.aggregation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// Ultimo filtro della route order-details: scrive la risposta aggregata invece di inoltrare la richiesta,
+// così rate limit, circuit breaker, retry e limite di concorrenza della route valgono anche per l'aggregazione.
+// Un ordine inesistente è una risposta 404 e non un errore, per non aprire il circuit breaker.
+@Component
+@RequiredArgsConstructor
+public class OrderDetailsGatewayFilter implements GatewayFilter {
+
+    private final OrderDetailsService orderDetailsService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        String orderNumber = ServerWebExchangeUtils.getUriTemplateVariables(exchange).get("orderNumber");
+        ServerHttpResponse response = exchange.getResponse();
+        return orderDetailsService.getOrderDetails(orderNumber)
+                .flatMap(details -> Mono.fromCallable(() -> objectMapper.writeValueAsBytes(details)))
+                .flatMap(body -> {
+                    response.setStatusCode(HttpStatus.OK);
+                    response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    response.getHeaders().setContentLength(body.length);
+                    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+                })
+                .onErrorResume(ResponseStatusException.class, e -> e.getStatusCode() != HttpStatus.NOT_FOUND
+                        ? Mono.error(e)
+                        : Mono.defer(() -> {
+                            response.setStatusCode(HttpStatus.NOT_FOUND);
+                            return response.setComplete();
+                        }));
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.aggregation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.example.loadbalancer.InFlightExchangeFilterFunction;
+import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancedExchangeFilterFunction;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Aggrega un ordine con i prodotti delle sue righe: dopo l'ordine, tutti i prodotti (id deduplicati)
+// vengono letti in parallelo a blocchi tramite /products/batch. Un errore sui prodotti degrada solo
+// il campo "product" delle righe interessate, non l'intera risposta.
+//
+// La risposta aggregata resta in memoria fino alla serializzazione: è limitata perché ogni risposta letta (l'ordine
+// e ciascun blocco di prodotti) non può superare MAX_RESPONSE_BYTES. Con righe di almeno ~80 byte un ordine ha al
+// massimo ~3.300 righe, quindi al più 33 blocchi: ~8,5 MB nel caso peggiore, circa 1 MB con prodotti da 200 byte.
+// Lo streaming anticiperebbe solo le prime righe: la risposta si completa comunque con il blocco più lento.
+@Service
+@Slf4j
+public class OrderDetailsService {
+
+    private static final int PRODUCT_BATCH_SIZE = 100;
+    private static final int MAX_RESPONSE_BYTES = 256 * 1024;
+    private static final Duration ORDER_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration PRODUCTS_TIMEOUT = Duration.ofSeconds(1);
+
+    private final WebClient webClient;
+
+    public OrderDetailsService(WebClient.Builder webClientBuilder,
+                               LoadBalancedExchangeFilterFunction loadBalancerFunction) {
+        this.webClient = webClientBuilder.clone()
+                .filter(new InFlightExchangeFilterFunction(loadBalancerFunction))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_RESPONSE_BYTES))
+                .build();
+    }
+
+    public Mono<ObjectNode> getOrderDetails(String orderNumber) {
+        return webClient.get()
+                .uri("http://order-service/orders/number/{orderNumber}", orderNumber)
+                .retrieve()
+                .bodyToMono(ObjectNode.class)
+                .timeout(ORDER_TIMEOUT)
+                .onErrorMap(e -> !(e instanceof ResponseStatusException), e -> orderError(orderNumber, e))
+                .flatMap(order -> fetchProducts(productIds(order)).map(lookup -> merge(order, lookup)));
+    }
+
+    private Mono<ProductLookup> fetchProducts(Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(new ProductLookup(Map.of(), Set.of()));
+        }
+        List<List<Long>> batches = new ArrayList<>();
+        List<Long> all = new ArrayList<>(ids);
+        for (int i = 0; i < all.size(); i += PRODUCT_BATCH_SIZE) {
+            batches.add(all.subList(i, Math.min(all.size(), i + PRODUCT_BATCH_SIZE)));
+        }
+
+        // Tutti i blocchi partono insieme: la latenza è quella del blocco più lento
+        return Flux.fromIterable(batches)
+                .flatMap(this::fetchBatch, batches.size())
+                .reduce(new ProductLookup(new HashMap<>(), new HashSet<>()), (result, batch) -> {
+                    result.products().putAll(batch.products());
+                    result.unavailable().addAll(batch.unavailable());
+                    return result;
+                });
+    }
+
+    private Mono<ProductLookup> fetchBatch(List<Long> ids) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .scheme("http")
+                        .host("product-service")
+                        .path("/products/batch")
+                        .queryParam("ids", ids.toArray())
+                        .build())
+                .retrieve()
+                .bodyToMono(ArrayNode.class)
+                .timeout(PRODUCTS_TIMEOUT)
+                .map(products -> {
+                    Map<Long, JsonNode> byId = new HashMap<>();
+                    products.forEach(product -> byId.put(product.path("id").asLong(), product));
+                    return new ProductLookup(byId, Set.of());
+                })
+                .onErrorResume(e -> {
+                    log.warn("Products {} unavailable for order details: {}", ids, e.getMessage());
+                    return Mono.just(new ProductLookup(Map.of(), new HashSet<>(ids)));
+                });
+    }
+
+    private static ObjectNode merge(ObjectNode order, ProductLookup lookup) {
+        boolean partial = false;
+        for (JsonNode item : order.path("orderItems")) {
+            if (!(item instanceof ObjectNode orderItem)) {
+                continue;
+            }
+            long productId = orderItem.path("productId").asLong();
+            JsonNode product = lookup.products().get(productId);
+            if (product != null) {
+                orderItem.set("product", product);
+            } else {
+                partial = true;
+                orderItem.putNull("product");
+                orderItem.put("productStatus", lookup.unavailable().contains(productId) ? "UNAVAILABLE" : "NOT_FOUND");
+            }
+        }
+        order.put("partial", partial);
+        return order;
+    }
+
+    private static Set<Long> productIds(ObjectNode order) {
+        Set<Long> ids = new LinkedHashSet<>();
+        order.path("orderItems").forEach(item -> {
+            if (item.hasNonNull("productId")) {
+                ids.add(item.get("productId").asLong());
+            }
+        });
+        return ids;
+    }
+
+    private static ResponseStatusException orderError(String orderNumber, Throwable e) {
+        if (e instanceof WebClientResponseException response && response.getStatusCode().value() == 404) {
+            return new ResponseStatusException(HttpStatus.NOT_FOUND, "Order not found: " + orderNumber, e);
+        }
+        return new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Order Service unavailable", e);
+    }
+
+    private record ProductLookup(Map<Long, JsonNode> products, Set<Long> unavailable) {
+    }
+}
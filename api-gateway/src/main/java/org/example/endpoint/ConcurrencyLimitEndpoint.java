@@ -0,0 +1,23 @@
+package org.example.endpoint;
+
+import lombok.RequiredArgsConstructor;
+import org.example.filter.ConcurrencyLimiter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Limite stimato, richieste in corso e richieste scartate per route: /actuator/concurrency
+@Component
+@Endpoint(id = "concurrency")
+@RequiredArgsConstructor
+public class ConcurrencyLimitEndpoint {
+
+    private final ConcurrencyLimiter limiter;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return limiter.statistics();
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.endpoint;
+
+import lombok.RequiredArgsConstructor;
+import org.example.filter.RequestHedger;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Hedge inviati e vinti e ritardo corrente per route: /actuator/hedging
+@Component
+@Endpoint(id = "hedging")
+@RequiredArgsConstructor
+public class HedgingEndpoint {
+
+    private final RequestHedger hedger;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return hedger.statistics();
+    }
+}
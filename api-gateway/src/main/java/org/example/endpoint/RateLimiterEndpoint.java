@@ -0,0 +1,23 @@
+package org.example.endpoint;
+
+import lombok.RequiredArgsConstructor;
+import org.example.ratelimit.InMemoryRateLimiter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Richieste ammesse/respinte e chiavi tracciate dal rate limiter in memoria: /actuator/ratelimiter
+@Component
+@Endpoint(id = "ratelimiter")
+@RequiredArgsConstructor
+public class RateLimiterEndpoint {
+
+    private final InMemoryRateLimiter rateLimiter;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return rateLimiter.statistics();
+    }
+}
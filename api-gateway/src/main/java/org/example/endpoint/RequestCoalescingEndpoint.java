@@ -0,0 +1,23 @@
+package org.example.endpoint;
+
+import lombok.RequiredArgsConstructor;
+import org.example.filter.RequestCoalescer;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Chiamate upstream risparmiate dal single-flight, per route: /actuator/coalescing
+@Component
+@Endpoint(id = "coalescing")
+@RequiredArgsConstructor
+public class RequestCoalescingEndpoint {
+
+    private final RequestCoalescer coalescer;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return coalescer.statistics();
+    }
+}
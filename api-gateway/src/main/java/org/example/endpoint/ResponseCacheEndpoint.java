@@ -0,0 +1,23 @@
+package org.example.endpoint;
+
+import lombok.RequiredArgsConstructor;
+import org.example.filter.ResponseCacheStore;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Statistiche della cache delle risposte del gateway: /actuator/gatewaycache
+@Component
+@Endpoint(id = "gatewaycache")
+@RequiredArgsConstructor
+public class ResponseCacheEndpoint {
+
+    private final ResponseCacheStore store;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return store.statistics();
+    }
+}
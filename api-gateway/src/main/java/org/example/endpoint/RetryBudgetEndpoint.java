@@ -0,0 +1,23 @@
+package org.example.endpoint;
+
+import lombok.RequiredArgsConstructor;
+import org.example.filter.RequestRetrier;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Retry tentati, riusciti e soppressi (budget o circuit breaker) per route: /actuator/retrybudget
+@Component
+@Endpoint(id = "retrybudget")
+@RequiredArgsConstructor
+public class RetryBudgetEndpoint {
+
+    private final RequestRetrier retrier;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return retrier.statistics();
+    }
+}
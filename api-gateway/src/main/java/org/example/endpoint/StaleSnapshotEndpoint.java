@@ -0,0 +1,23 @@
+package org.example.endpoint;
+
+import lombok.RequiredArgsConstructor;
+import org.example.filter.StaleSnapshotStore;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Snapshot conservati e risposte stale servite dai fallback: /actuator/snapshots
+@Component
+@Endpoint(id = "snapshots")
+@RequiredArgsConstructor
+public class StaleSnapshotEndpoint {
+
+    private final StaleSnapshotStore store;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return store.statistics();
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.filter;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.example.filter.ConcurrencyLimiter.RouteLimit;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Scarta subito le richieste oltre il limite di concorrenza adattivo della route, così le code
+// non si formano nei servizi a valle. Va dichiarato dopo il circuit breaker per misurare solo la chiamata al backend.
+@Component
+public class AdaptiveConcurrencyGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdaptiveConcurrencyGatewayFilterFactory.Config> {
+
+    private final ConcurrencyLimiter limiter;
+
+    public AdaptiveConcurrencyGatewayFilterFactory(ConcurrencyLimiter limiter) {
+        super(Config.class);
+        this.limiter = limiter;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            RouteLimit limit = limiter.limit(routeId(exchange), config);
+            if (!limit.tryAcquire()) {
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(config.getStatusCode());
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return response.setComplete();
+            }
+
+            long start = System.nanoTime();
+            // Il time limiter del circuit breaker interrompe la chiamata con una cancellazione: conta come scarto.
+            // Il tentativo perdente di un hedge viene annullato anche lui, ma solo perché l'altro ha già risposto.
+            return chain.filter(exchange).doFinally(signal -> {
+                if (signal == SignalType.ON_COMPLETE && !isOverloaded(exchange.getResponse().getStatusCode())) {
+                    limit.onSuccess(System.nanoTime() - start);
+                } else if (signal == SignalType.CANCEL && isHedgeLoser(exchange)) {
+                    limit.onIgnored();
+                } else {
+                    limit.onDropped();
+                }
+            });
+        };
+    }
+
+    private static boolean isOverloaded(HttpStatusCode status) {
+        return status != null
+                && (status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                || status.value() == HttpStatus.GATEWAY_TIMEOUT.value()
+                || status.value() == HttpStatus.TOO_MANY_REQUESTS.value());
+    }
+
+    private static boolean isHedgeLoser(ServerWebExchange exchange) {
+        AtomicBoolean answered = exchange.getAttribute(HedgingGatewayFilterFactory.HEDGE_ANSWERED_ATTR);
+        return answered != null && answered.get();
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Config {
+        private int initialLimit = 20;
+        private int minLimit = 4;
+        private int maxLimit = 500;
+        // Rapporto tollerato tra latenza recente e latenza senza carico prima di ridurre il limite
+        private double rttTolerance = 1.5;
+        private double smoothing = 0.2;
+        private double backoffRatio = 0.9;
+        private int shortWindow = 10;
+        // Ogni quante risposte il limite viene dimezzato per misurare di nuovo la latenza senza carico
+        private int probeInterval = 600;
+        private HttpStatus statusCode = HttpStatus.SERVICE_UNAVAILABLE;
+    }
+}
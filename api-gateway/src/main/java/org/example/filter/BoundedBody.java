@@ -0,0 +1,67 @@
+package org.example.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+// Lettura in memoria del body di una risposta per i filtri che lo salvano (cache, snapshot), con un limite:
+// i buffer vengono accumulati solo finché la somma resta entro maxSize. Oltre il limite quelli già letti e il resto
+// del flusso passano al client così come arrivano. Le risposte in streaming (NDJSON, SSE) e quelle con
+// Content-Length oltre il limite non vengono lette affatto.
+final class BoundedBody {
+
+    private static final List<MediaType> STREAMING_TYPES = List.of(
+            MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM, new MediaType("application", "stream+json"));
+
+    private BoundedBody() {
+    }
+
+    static boolean isCapturable(HttpHeaders headers, long maxSize) {
+        MediaType contentType = headers.getContentType();
+        if (contentType != null && STREAMING_TYPES.stream().anyMatch(contentType::isCompatibleWith)) {
+            return false;
+        }
+        return headers.getContentLength() <= maxSize;
+    }
+
+    // whenComplete riceve il body intero (al massimo maxSize byte), passThrough il flusso originale
+    static Mono<Void> read(Publisher<? extends DataBuffer> body, long maxSize,
+                           Function<byte[], Mono<Void>> whenComplete,
+                           Function<Flux<DataBuffer>, Mono<Void>> passThrough) {
+        long[] size = {0};
+        return Flux.<DataBuffer>from(body)
+                // Un blocco sotto il limite viene emesso solo alla fine del body; oltre il limite, un buffer alla volta
+                .bufferUntil(buffer -> (size[0] += buffer.readableByteCount()) > maxSize)
+                .switchOnFirst((first, chunks) -> {
+                    Flux<DataBuffer> buffers = chunks.concatMapIterable(Function.identity());
+                    if (first.isOnError() || (first.hasValue() && sum(first.get()) > maxSize)) {
+                        return passThrough.apply(buffers);
+                    }
+                    return DataBufferUtils.join(buffers)
+                            .map(joined -> {
+                                byte[] bytes = new byte[joined.readableByteCount()];
+                                joined.read(bytes);
+                                DataBufferUtils.release(joined);
+                                return bytes;
+                            })
+                            .defaultIfEmpty(new byte[0])
+                            .flatMap(whenComplete);
+                })
+                .then();
+    }
+
+    private static long sum(List<DataBuffer> buffers) {
+        long sum = 0;
+        for (DataBuffer buffer : buffers) {
+            sum += buffer.readableByteCount();
+        }
+        return sum;
+    }
+}
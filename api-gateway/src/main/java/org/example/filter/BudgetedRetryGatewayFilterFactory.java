@@ -0,0 +1,155 @@
+package org.example.filter;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.example.filter.RequestRetrier.RouteRetries;
+import org.example.loadbalancer.ExcludedInstanceHeadersFilter;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Retry delle richieste idempotenti su errori di connessione e 502/503/504, con backoff esponenziale e jitter.
+// Ogni retry consuma il budget della route e va verso un'altra istanza; con il circuit breaker aperto non si ritenta.
+// Va dichiarato dopo il circuit breaker: il time limiter limita così anche la durata complessiva dei tentativi.
+@Component
+public class BudgetedRetryGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<BudgetedRetryGatewayFilterFactory.Config> {
+
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+    private final RequestRetrier retrier;
+
+    public BudgetedRetryGatewayFilterFactory(RequestRetrier retrier) {
+        super(Config.class);
+        this.retrier = retrier;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return (exchange, chain) -> {
+            RouteRetries route = retrier.route(routeId(exchange), config);
+            if (!IDEMPOTENT_METHODS.contains(exchange.getRequest().getMethod())) {
+                return chain.filter(exchange)
+                        .doOnSuccess(v -> recordOutcome(exchange, config, route, 0));
+            }
+            return execute(exchange, chain, config, route, 0);
+        };
+    }
+
+    private Mono<Void> execute(ServerWebExchange exchange, GatewayFilterChain chain, Config config,
+                               RouteRetries route, int retry) {
+        return chain.filter(exchange)
+                .then(Mono.just(Optional.<Throwable>empty()))
+                .onErrorResume(e -> Mono.just(Optional.of(e)))
+                .flatMap(failure -> {
+                    boolean retryable = failure.map(BudgetedRetryGatewayFilterFactory::isRetryable)
+                            .orElseGet(() -> isRetryable(exchange.getResponse().getStatusCode(), config));
+                    Mono<Void> outcome = failure.<Mono<Void>>map(Mono::error).orElseGet(Mono::empty);
+                    if (!retryable) {
+                        if (failure.isEmpty()) {
+                            recordOutcome(exchange, config, route, retry);
+                        }
+                        return outcome;
+                    }
+
+                    if (retry + 1 >= config.getMaxAttempts() || exchange.getResponse().isCommitted()) {
+                        route.exhausted.increment();
+                        return outcome;
+                    }
+                    if (!retrier.isCircuitClosed(config.getCircuitBreakerName())) {
+                        route.suppressedByCircuitBreaker.increment();
+                        return outcome;
+                    }
+                    if (!route.budget.tryWithdraw()) {
+                        route.suppressedByBudget.increment();
+                        return outcome;
+                    }
+
+                    route.attempted.increment();
+                    ServerWebExchange next = prepareRetry(exchange);
+                    return Mono.delay(RetryBudget.backoff(config.getFirstBackoff(), config.getMaxBackoff(), retry + 1))
+                            .then(Mono.defer(() -> execute(next, chain, config, route, retry + 1)));
+                });
+    }
+
+    private static void recordOutcome(ServerWebExchange exchange, Config config, RouteRetries route, int retry) {
+        if (isRetryable(exchange.getResponse().getStatusCode(), config)) {
+            return;
+        }
+        route.budget.onSuccess();
+        if (retry > 0) {
+            route.succeeded.increment();
+        }
+    }
+
+    // Chiude la risposta scartata e fa ripartire routing e bilanciamento evitando l'istanza appena usata
+    private static ServerWebExchange prepareRetry(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+            exchange.getAttributes().remove(CLIENT_RESPONSE_CONN_ATTR);
+        }
+        Response<ServiceInstance> chosen = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        ServerWebExchangeUtils.reset(exchange);
+        if (chosen == null || !chosen.hasServer()) {
+            return exchange;
+        }
+        return exchange.mutate()
+                .request(ExcludedInstanceHeadersFilter.exclude(exchange.getRequest(), chosen.getServer()))
+                .build();
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    private static boolean isRetryable(HttpStatusCode status, Config config) {
+        return status != null && config.getStatuses().contains(status.value());
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Config {
+        private int maxAttempts = 3;
+        private Duration firstBackoff = Duration.ofMillis(50);
+        private Duration maxBackoff = Duration.ofMillis(500);
+        private Set<Integer> statuses = Set.of(502, 503, 504);
+        // Retry consentiti come frazione delle richieste riuscite, più una ricarica minima al secondo
+        private double budgetRatio = 0.1;
+        private double minRetriesPerSecond = 1;
+        private int maxBudgetTokens = 20;
+        private String circuitBreakerName;
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.filter;
+
+import org.example.filter.AdaptiveConcurrencyGatewayFilterFactory.Config;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Limite di concorrenza stimato per route a partire dalla latenza osservata (algoritmo a gradiente):
+// finché la latenza recente resta vicina a quella senza carico il limite cresce, quando sale il limite si riduce
+@Component
+public class ConcurrencyLimiter {
+
+    private final Map<String, RouteLimit> limits = new ConcurrentHashMap<>();
+
+    public RouteLimit limit(String routeId, Config config) {
+        return limits.computeIfAbsent(routeId, id -> new RouteLimit(config));
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        limits.forEach((routeId, limit) -> result.put(routeId, limit.statistics()));
+        return result;
+    }
+
+    public static class RouteLimit {
+        private final Config config;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final LongAdder accepted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        private volatile double limit;
+        // Latenze in nanosecondi e stato della sonda, aggiornati sotto il lock dell'istanza
+        private double shortRtt;
+        private double noLoadRtt;
+        private long samples;
+        private int probeSamplesLeft;
+        private double probeMinRtt;
+        private double limitBeforeProbe;
+
+        RouteLimit(Config config) {
+            this.config = config;
+            this.limit = config.getInitialLimit();
+        }
+
+        public boolean tryAcquire() {
+            while (true) {
+                int current = inFlight.get();
+                if (current >= (int) limit) {
+                    rejected.increment();
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    accepted.increment();
+                    return true;
+                }
+            }
+        }
+
+        public void onSuccess(long rttNanos) {
+            int inFlightAtCompletion = inFlight.getAndDecrement();
+            update(rttNanos, inFlightAtCompletion);
+        }
+
+        // Timeout, errori e risposte di sovraccarico del backend: riduzione moltiplicativa immediata
+        public void onDropped() {
+            inFlight.decrementAndGet();
+            dropped.increment();
+            synchronized (this) {
+                limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+                if (probeSamplesLeft > 0) {
+                    limitBeforeProbe = Math.max(config.getMinLimit(), limitBeforeProbe * config.getBackoffRatio());
+                }
+            }
+        }
+
+        // Richiesta chiusa senza un esito del backend (tentativo perdente di un hedge): libera solo il posto
+        public void onIgnored() {
+            inFlight.decrementAndGet();
+        }
+
+        private synchronized void update(long rttNanos, int inFlightAtCompletion) {
+            samples++;
+            shortRtt = samples == 1 ? rttNanos : shortRtt + (rttNanos - shortRtt) * 2.0 / (config.getShortWindow() + 1);
+
+            // Sonda: con il limite dimezzato la coda nel backend si svuota e la latenza minima osservata
+            // diventa la nuova latenza senza carico, che così può anche crescere se il backend è diventato più lento
+            if (probeSamplesLeft > 0) {
+                probeMinRtt = Math.min(probeMinRtt, rttNanos);
+                if (--probeSamplesLeft == 0) {
+                    noLoadRtt = probeMinRtt;
+                    limit = limitBeforeProbe;
+                }
+                return;
+            }
+            noLoadRtt = noLoadRtt == 0 ? rttNanos : Math.min(noLoadRtt, rttNanos);
+            if (samples % config.getProbeInterval() == 0) {
+                limitBeforeProbe = limit;
+                limit = Math.max(config.getMinLimit(), limit / 2);
+                probeMinRtt = Double.MAX_VALUE;
+                probeSamplesLeft = 2 * (int) Math.ceil(limitBeforeProbe);
+                return;
+            }
+
+            // Confronto con la latenza senza carico: una media di lungo periodo seguirebbe la coda che cresce
+            // e il limite salirebbe insieme a lei
+            double gradient = Math.max(0.5, Math.min(1.0, config.getRttTolerance() * noLoadRtt / shortRtt));
+            // Con poche richieste in corso la latenza non dice nulla sulla capacità: il limite non cresce,
+            // ma una latenza alta lo riduce comunque
+            if (gradient == 1.0 && inFlightAtCompletion < limit / 2) {
+                return;
+            }
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            newLimit = limit * (1 - config.getSmoothing()) + newLimit * config.getSmoothing();
+            limit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), newLimit));
+        }
+
+        Map<String, Object> statistics() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            synchronized (this) {
+                result.put("limit", (int) limit);
+                result.put("shortRttMs", shortRtt / TimeUnit.MILLISECONDS.toNanos(1));
+                result.put("noLoadRttMs", noLoadRtt / TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            result.put("inFlight", inFlight.get());
+            result.put("accepted", accepted.sum());
+            result.put("rejected", rejected.sum());
+            result.put("dropped", dropped.sum());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.filter;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.example.filter.RequestHedger.RouteHedging;
+import org.example.loadbalancer.ExcludedInstanceHeadersFilter;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ORIGINAL_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Hedging per GET/HEAD: se il primo tentativo non risponde entro il percentile configurato della latenza
+// recente, parte un secondo tentativo verso un'altra istanza e vince il primo che risponde (l'altro viene annullato).
+// Ogni tentativo ha attributi e risposta propri, quindi la catena a valle (load balancer, circuit breaker,
+// NettyWriteResponseFilter) viene eseguita per intero in ciascuno e al client arriva solo la risposta vincente.
+// La risposta di ogni tentativo è tenuta in memoria: l'hedging vale solo per i percorsi elencati in paths,
+// che non devono includere export in streaming o liste senza limite.
+@Component
+public class HedgingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<HedgingGatewayFilterFactory.Config> {
+
+    // Attributo dei tentativi: diventa true quando uno dei due ha risposto, quindi l'annullamento dell'altro
+    // non è un segnale di sovraccarico del backend
+    public static final String HEDGE_ANSWERED_ATTR = HedgingGatewayFilterFactory.class.getName() + ".answered";
+
+    private final RequestHedger hedger;
+
+    public HedgingGatewayFilterFactory(RequestHedger hedger) {
+        super(Config.class);
+        this.hedger = hedger;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> paths = config.getPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!HttpMethod.GET.equals(request.getMethod()) && !HttpMethod.HEAD.equals(request.getMethod())) {
+                return chain.filter(exchange);
+            }
+            PathContainer path = PathContainer.parsePath(clientPath(exchange));
+            if (paths.stream().noneMatch(pattern -> pattern.matches(path))) {
+                return chain.filter(exchange);
+            }
+
+            RouteHedging hedging = hedger.route(routeId(exchange), config);
+            hedging.deposit();
+
+            AtomicBoolean answered = new AtomicBoolean();
+            AttemptExchange primary = new AttemptExchange(exchange, request, answered);
+            Mono<AttemptExchange> first = attempt(primary, chain, hedging);
+
+            // Un hedge fallito non decide l'esito: resta in attesa del primo tentativo
+            Mono<AttemptExchange> hedged = Mono.delay(hedging.delay())
+                    .flatMap(tick -> {
+                        if (!hedging.tryWithdraw()) {
+                            return Mono.<AttemptExchange>never();
+                        }
+                        Response<ServiceInstance> chosen = primary.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+                        ServerHttpRequest hedgeRequest = chosen != null && chosen.hasServer()
+                                ? ExcludedInstanceHeadersFilter.exclude(request, chosen.getServer())
+                                : request;
+                        return attempt(new AttemptExchange(exchange, hedgeRequest, answered), chain, hedging);
+                    })
+                    .onErrorResume(e -> Mono.never());
+
+            return Mono.firstWithSignal(first, hedged)
+                    .flatMap(winner -> {
+                        if (winner != primary) {
+                            hedging.won.increment();
+                        }
+                        return write(exchange.getResponse(), winner.getResponse(), winner != primary);
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static Mono<AttemptExchange> attempt(AttemptExchange attempt, GatewayFilterChain chain, RouteHedging hedging) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return chain.filter(attempt)
+                    .then(Mono.fromSupplier(() -> {
+                        // Prima di emettere: Mono.firstWithSignal annulla subito l'altro tentativo
+                        attempt.answered.set(true);
+                        hedging.record(System.nanoTime() - start);
+                        return attempt;
+                    }));
+        });
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, BufferedServerHttpResponse attempt, boolean hedged) {
+        if (attempt.getStatusCode() != null) {
+            response.setStatusCode(attempt.getStatusCode());
+        }
+        response.getHeaders().putAll(attempt.getHeaders());
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        response.getHeaders().setContentLength(attempt.getBody().length);
+        if (hedged) {
+            response.getHeaders().set("X-Hedged", "true");
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(attempt.getBody())));
+    }
+
+    // Percorso richiesto dal client, prima di eventuali riscritture come stripPrefix
+    private static String clientPath(ServerWebExchange exchange) {
+        Set<URI> originalUrls = exchange.getAttributeOrDefault(GATEWAY_ORIGINAL_REQUEST_URL_ATTR, Set.of());
+        return originalUrls.isEmpty()
+                ? exchange.getRequest().getPath().value()
+                : originalUrls.iterator().next().getRawPath();
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    // Exchange di un singolo tentativo: richiesta propria (l'hedge indica l'istanza da evitare),
+    // attributi copiati e risposta bufferizzata
+    private static class AttemptExchange extends ServerWebExchangeDecorator {
+
+        private final ServerHttpRequest request;
+        private final BufferedServerHttpResponse response;
+        private final Map<String, Object> attributes;
+        private final AtomicBoolean answered;
+
+        AttemptExchange(ServerWebExchange delegate, ServerHttpRequest request, AtomicBoolean answered) {
+            super(delegate);
+            this.request = request;
+            this.response = new BufferedServerHttpResponse(delegate.getResponse().bufferFactory());
+            this.attributes = new ConcurrentHashMap<>(delegate.getAttributes());
+            this.attributes.put(HEDGE_ANSWERED_ATTR, answered);
+            this.answered = answered;
+        }
+
+        @Override
+        public ServerHttpRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public BufferedServerHttpResponse getResponse() {
+            return response;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Config {
+        // Percorsi del client (pattern come nei predicati path) con risposte piccole e limitate
+        private List<String> paths = List.of();
+        // Percentile della latenza recente oltre il quale parte l'hedge
+        private double percentile = 0.95;
+        private Duration minDelay = Duration.ofMillis(10);
+        // Ritardo usato finché non ci sono abbastanza campioni e tetto massimo del ritardo calcolato
+        private Duration maxDelay = Duration.ofMillis(500);
+        // Percentuale massima di richieste che possono generare un hedge
+        private double budgetPercent = 10;
+        private int maxBudgetTokens = 20;
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.filter;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Registro delle richieste idempotenti in volo: i follower condividono la risposta del leader
+@Component
+public class RequestCoalescer {
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, RouteStats> stats = new ConcurrentHashMap<>();
+
+    // Restituisce null se il chiamante diventa leader, altrimenti il volo a cui agganciarsi
+    public Flight join(String key, Flight candidate) {
+        return inFlight.putIfAbsent(key, candidate);
+    }
+
+    public void complete(String key, Flight flight, SharedResponse response) {
+        inFlight.remove(key, flight);
+        if (response != null) {
+            flight.sink.tryEmitValue(response);
+        } else {
+            flight.sink.tryEmitEmpty();
+        }
+    }
+
+    public RouteStats stats(String routeId) {
+        return stats.computeIfAbsent(routeId, id -> new RouteStats());
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("inFlight", inFlight.size());
+        stats.forEach((routeId, routeStats) -> result.put(routeId, Map.of(
+                "upstreamCalls", routeStats.leaders.sum(),
+                "upstreamCallsSaved", routeStats.coalesced.sum(),
+                "waiterCapExceeded", routeStats.rejected.sum(),
+                "fallbackCalls", routeStats.fallbacks.sum())));
+        return result;
+    }
+
+    public static class Flight {
+        private final Sinks.One<SharedResponse> sink = Sinks.one();
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        public boolean tryAddWaiter(int maxWaiters) {
+            return waiters.incrementAndGet() <= maxWaiters;
+        }
+
+        public Mono<SharedResponse> response() {
+            return sink.asMono();
+        }
+    }
+
+    public static class RouteStats {
+        final LongAdder leaders = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder fallbacks = new LongAdder();
+    }
+
+    public record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+}
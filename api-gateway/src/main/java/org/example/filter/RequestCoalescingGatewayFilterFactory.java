@@ -0,0 +1,170 @@
+package org.example.filter;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.example.filter.RequestCoalescer.Flight;
+import org.example.filter.RequestCoalescer.RouteStats;
+import org.example.filter.RequestCoalescer.SharedResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Single-flight per GET identiche e concorrenti: solo il leader va al backend, i follower
+// ricevono una copia della sua risposta oppure, oltre il limite di attesa, fanno una chiamata indipendente
+@Component
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    private static final String RATE_LIMIT_HEADER_PREFIX = "X-RateLimit-";
+
+    private final RequestCoalescer coalescer;
+
+    public RequestCoalescingGatewayFilterFactory(RequestCoalescer coalescer) {
+        super(Config.class);
+        this.coalescer = coalescer;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!isCoalescable(request)) {
+                return chain.filter(exchange);
+            }
+
+            String routeId = routeId(exchange);
+            RouteStats stats = coalescer.stats(routeId);
+            // Il metodo fa parte della chiave: una HEAD non deve servire il suo body vuoto a una GET
+            String key = routeId + " " + request.getMethod() + " " + request.getURI()
+                    + " " + request.getHeaders().getFirst(HttpHeaders.ACCEPT)
+                    + " " + request.getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING);
+
+            Flight candidate = new Flight();
+            Flight existing = coalescer.join(key, candidate);
+            if (existing == null) {
+                stats.leaders.increment();
+                return lead(exchange, chain, key, candidate, config.getMaxBodySize().toBytes());
+            }
+            if (!existing.tryAddWaiter(config.getMaxWaiters())) {
+                stats.rejected.increment();
+                return chain.filter(exchange);
+            }
+
+            // Se il leader fallisce, viene annullato o è troppo lento si procede con una chiamata indipendente
+            return existing.response()
+                    .timeout(config.getTimeout())
+                    .map(Optional::of)
+                    .onErrorResume(e -> Mono.just(Optional.<SharedResponse>empty()))
+                    .defaultIfEmpty(Optional.<SharedResponse>empty())
+                    .flatMap(shared -> {
+                        if (shared.isPresent()) {
+                            stats.coalesced.increment();
+                            return write(exchange.getResponse(), shared.get());
+                        }
+                        stats.fallbacks.increment();
+                        return chain.filter(exchange);
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    // Le risposte in streaming o oltre maxBodySize non vengono condivise: il leader le riceve così come arrivano
+    // e i follower vengono liberati subito per una chiamata indipendente, senza attendere la fine del body
+    private Mono<Void> lead(ServerWebExchange exchange, GatewayFilterChain chain, String key, Flight flight,
+                            long maxBodySize) {
+        AtomicReference<SharedResponse> captured = new AtomicReference<>();
+        ServerHttpResponseDecorator decorated = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                if (!BoundedBody.isCapturable(getHeaders(), maxBodySize)) {
+                    coalescer.complete(key, flight, null);
+                    return super.writeWith(body);
+                }
+                return BoundedBody.read(body, maxBodySize, bytes -> {
+                    captured.set(snapshot(getDelegate(), bytes));
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                }, buffers -> {
+                    coalescer.complete(key, flight, null);
+                    return super.writeWith(buffers);
+                });
+            }
+
+            @Override
+            public Mono<Void> setComplete() {
+                captured.compareAndSet(null, snapshot(getDelegate(), new byte[0]));
+                return super.setComplete();
+            }
+        };
+
+        return chain.filter(exchange.mutate().response(decorated).build())
+                .doFinally(signal -> coalescer.complete(key, flight, captured.get()));
+    }
+
+    private static SharedResponse snapshot(ServerHttpResponse response, byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        response.getHeaders().forEach((name, values) -> {
+            if (!isPerClient(name)) {
+                headers.addAll(name, values);
+            }
+        });
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        return new SharedResponse(response.getStatusCode(), headers, body);
+    }
+
+    // I cookie impostati dal backend e lo stato del rate limit appartengono al client del leader, non ai follower
+    private static boolean isPerClient(String header) {
+        return HttpHeaders.SET_COOKIE.equalsIgnoreCase(header)
+                || header.regionMatches(true, 0, RATE_LIMIT_HEADER_PREFIX, 0, RATE_LIMIT_HEADER_PREFIX.length());
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, SharedResponse shared) {
+        response.setStatusCode(shared.status());
+        response.getHeaders().addAll(shared.headers());
+        response.getHeaders().setContentLength(shared.body().length);
+        response.getHeaders().set("X-Coalesced", "true");
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(shared.body())));
+    }
+
+    // Solo richieste sicure e non personalizzate: condizionali e credenziali restano indipendenti
+    private static boolean isCoalescable(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        return (HttpMethod.GET.equals(request.getMethod()) || HttpMethod.HEAD.equals(request.getMethod()))
+                && !headers.containsKey(HttpHeaders.AUTHORIZATION)
+                && !headers.containsKey(HttpHeaders.COOKIE)
+                && !headers.containsKey(HttpHeaders.IF_NONE_MATCH)
+                && !headers.containsKey(HttpHeaders.IF_MODIFIED_SINCE)
+                && !headers.containsKey(HttpHeaders.RANGE);
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Config {
+        private int maxWaiters = 200;
+        private Duration timeout = Duration.ofSeconds(2);
+        private DataSize maxBodySize = DataSize.ofKilobytes(512);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.filter;
+
+import org.example.filter.HedgingGatewayFilterFactory.Config;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Stato per route delle richieste hedged: latenze recenti da cui ricavare il ritardo dell'hedge
+// e budget (in millesimi di token) che limita gli hedge a una percentuale del traffico
+@Component
+public class RequestHedger {
+
+    private final Map<String, RouteHedging> routes = new ConcurrentHashMap<>();
+
+    public RouteHedging route(String routeId, Config config) {
+        return routes.computeIfAbsent(routeId, id -> new RouteHedging(config));
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        routes.forEach((routeId, route) -> result.put(routeId, route.statistics()));
+        return result;
+    }
+
+    public static class RouteHedging {
+        private static final int WINDOW = 1024;
+        private static final int MIN_SAMPLES = 100;
+        private static final int RECOMPUTE_EVERY = 64;
+        private static final long TOKEN = 1000;
+
+        private final Config config;
+        private final long[] latencies = new long[WINDOW];
+        private final AtomicInteger recorded = new AtomicInteger();
+        private final ReentrantLock recomputeLock = new ReentrantLock();
+        private final AtomicLong budget;
+        private final long maxBudget;
+        private final long deposit;
+        private volatile long delayNanos;
+
+        final LongAdder requests = new LongAdder();
+        final LongAdder issued = new LongAdder();
+        final LongAdder won = new LongAdder();
+        final LongAdder budgetExhausted = new LongAdder();
+
+        RouteHedging(Config config) {
+            this.config = config;
+            this.delayNanos = config.getMaxDelay().toNanos();
+            this.deposit = Math.round(TOKEN * config.getBudgetPercent() / 100.0);
+            this.maxBudget = TOKEN * config.getMaxBudgetTokens();
+            this.budget = new AtomicLong(maxBudget);
+        }
+
+        public Duration delay() {
+            return Duration.ofNanos(delayNanos);
+        }
+
+        // Ogni richiesta accredita budgetPercent/100 di token, ogni hedge ne consuma uno intero
+        public void deposit() {
+            requests.increment();
+            budget.getAndUpdate(current -> Math.min(maxBudget, current + deposit));
+        }
+
+        public boolean tryWithdraw() {
+            while (true) {
+                long current = budget.get();
+                if (current < TOKEN) {
+                    budgetExhausted.increment();
+                    return false;
+                }
+                if (budget.compareAndSet(current, current - TOKEN)) {
+                    issued.increment();
+                    return true;
+                }
+            }
+        }
+
+        // Scrittura non sincronizzata nel ring: una lettura occasionalmente sporca sposta di poco il percentile
+        public void record(long latencyNanos) {
+            int count = recorded.incrementAndGet();
+            latencies[(count - 1) & (WINDOW - 1)] = latencyNanos;
+            if (count >= MIN_SAMPLES && count % RECOMPUTE_EVERY == 0 && recomputeLock.tryLock()) {
+                try {
+                    long[] sorted = Arrays.copyOf(latencies, Math.min(count, WINDOW));
+                    Arrays.sort(sorted);
+                    long percentile = sorted[(int) Math.min(sorted.length - 1, Math.floor(config.getPercentile() * sorted.length))];
+                    delayNanos = Math.max(config.getMinDelay().toNanos(), Math.min(config.getMaxDelay().toNanos(), percentile));
+                } finally {
+                    recomputeLock.unlock();
+                }
+            }
+        }
+
+        Map<String, Object> statistics() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", requests.sum());
+            result.put("hedgesIssued", issued.sum());
+            result.put("hedgesWon", won.sum());
+            result.put("budgetExhausted", budgetExhausted.sum());
+            result.put("hedgeDelayMs", (double) delayNanos / TimeUnit.MILLISECONDS.toNanos(1));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.filter;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.example.filter.BudgetedRetryGatewayFilterFactory.Config;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Budget e contatori dei retry per route, più lo stato dei circuit breaker: non si ritenta mai verso un circuito aperto
+@Component
+public class RequestRetrier {
+
+    private final ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory;
+    private final Map<String, RouteRetries> routes = new ConcurrentHashMap<>();
+
+    public RequestRetrier(ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory) {
+        this.circuitBreakerFactory = circuitBreakerFactory;
+    }
+
+    public RouteRetries route(String routeId, Config config) {
+        return routes.computeIfAbsent(routeId, id -> new RouteRetries(config));
+    }
+
+    // Anche HALF_OPEN blocca i retry: le poche chiamate di prova non vanno spese per ritentare
+    public boolean isCircuitClosed(String circuitBreakerName) {
+        if (circuitBreakerName == null) {
+            return true;
+        }
+        return circuitBreakerFactory.getCircuitBreakerRegistry().find(circuitBreakerName)
+                .map(CircuitBreaker::getState)
+                .map(state -> state != CircuitBreaker.State.OPEN
+                        && state != CircuitBreaker.State.FORCED_OPEN
+                        && state != CircuitBreaker.State.HALF_OPEN)
+                .orElse(true);
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        routes.forEach((routeId, route) -> {
+            Map<String, Object> routeStats = new LinkedHashMap<>();
+            routeStats.put("retriesAttempted", route.attempted.sum());
+            routeStats.put("retriesSucceeded", route.succeeded.sum());
+            routeStats.put("suppressedByBudget", route.suppressedByBudget.sum());
+            routeStats.put("suppressedByCircuitBreaker", route.suppressedByCircuitBreaker.sum());
+            routeStats.put("exhausted", route.exhausted.sum());
+            routeStats.put("budgetAvailable", route.budget.available());
+            result.put(routeId, routeStats);
+        });
+        return result;
+    }
+
+    public static class RouteRetries {
+        final RetryBudget budget;
+        final LongAdder attempted = new LongAdder();
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder suppressedByBudget = new LongAdder();
+        final LongAdder suppressedByCircuitBreaker = new LongAdder();
+        final LongAdder exhausted = new LongAdder();
+
+        RouteRetries(Config config) {
+            this.budget = new RetryBudget(config.getBudgetRatio(), config.getMinRetriesPerSecond(), config.getMaxBudgetTokens());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.filter;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.example.filter.ResponseCacheStore.CachedResponse;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Cache delle risposte GET per path+query con ETag forti e risposte 304 servite direttamente dal gateway.
+// Le scritture (POST/PUT/PATCH/DELETE) sulla stessa route invalidano le entry salvate: con itemPath solo la risorsa
+// scritta e le liste della route (collezione, pagine, ricerche, categorie), che possono contenerla.
+// Il body viene letto in memoria solo fino a maxEntrySize; gli export in streaming non vengono mai messi in cache.
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    private static final Set<HttpMethod> WRITE_METHODS =
+            Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+    private final ResponseCacheStore store;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheStore store) {
+        super(Config.class);
+        this.store = store;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        PathPattern itemPath = config.getItemPath() != null
+                ? PathPatternParser.defaultInstance.parse(config.getItemPath())
+                : null;
+        // Deve avvolgere la risposta prima che NettyWriteResponseFilter scriva il body
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            String routeId = routeId(exchange);
+
+            if (WRITE_METHODS.contains(request.getMethod())) {
+                String path = request.getURI().getRawPath();
+                return chain.filter(exchange)
+                        .doFinally(signal -> invalidate(routeId, path, itemPath, config));
+            }
+            String requestCacheControl = request.getHeaders().getCacheControl();
+            if (!HttpMethod.GET.equals(request.getMethod())
+                    || (requestCacheControl != null && requestCacheControl.contains("no-cache"))) {
+                return chain.filter(exchange);
+            }
+
+            String key = request.getURI().getRawPath()
+                    + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : "");
+            CachedResponse cached = store.get(routeId, key);
+            if (cached != null) {
+                return writeCached(exchange, cached);
+            }
+
+            long generation = store.generation(routeId);
+            long ttlNanos = config.getTtl().toNanos();
+            ServerHttpResponse response = exchange.getResponse();
+            ServerHttpResponseDecorator decorated = new ServerHttpResponseDecorator(response) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    long maxEntrySize = config.getMaxEntrySize().toBytes();
+                    if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value()
+                            || isNoStore(getHeaders()) || !BoundedBody.isCapturable(getHeaders(), maxEntrySize)) {
+                        return super.writeWith(body);
+                    }
+                    // Oltre maxEntrySize la risposta passa al client senza ETag e senza essere salvata
+                    return BoundedBody.read(body, maxEntrySize, bytes -> {
+                        String etag = "\"" + DigestUtils.md5DigestAsHex(bytes) + "\"";
+                        getHeaders().setETag(etag);
+                        store.put(routeId, key, generation, new CachedResponse(
+                                bytes, getHeaders().getFirst(HttpHeaders.CONTENT_TYPE), etag, ttlNanos));
+                        if (matches(request.getHeaders().getIfNoneMatch(), etag)) {
+                            store.recordNotModified();
+                            setStatusCode(HttpStatus.NOT_MODIFIED);
+                            getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+                            return getDelegate().setComplete();
+                        }
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    }, super::writeWith);
+                }
+            };
+            return chain.filter(exchange.mutate().response(decorated).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> writeCached(ServerWebExchange exchange, CachedResponse cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().setETag(cached.etag());
+        response.getHeaders().set("X-Cache", "HIT");
+
+        if (matches(exchange.getRequest().getHeaders().getIfNoneMatch(), cached.etag())) {
+            store.recordNotModified();
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        response.setStatusCode(HttpStatus.OK);
+        if (cached.contentType() != null) {
+            response.getHeaders().set(HttpHeaders.CONTENT_TYPE, cached.contentType());
+        }
+        response.getHeaders().setContentLength(cached.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(cached.body())));
+    }
+
+    private void invalidate(String routeId, String path, PathPattern itemPath, Config config) {
+        if (itemPath == null) {
+            store.invalidateRoute(routeId);
+        } else if (isItem(itemPath, path)) {
+            store.invalidate(routeId, key -> path(key).equals(path) || !isItem(itemPath, path(key)));
+        } else if (path.equals(config.getItemPath().substring(0, config.getItemPath().lastIndexOf('/')))) {
+            // Creazione sulla collezione: nessuna risorsa già in cache cambia, solo le liste
+            store.invalidate(routeId, key -> !isItem(itemPath, path(key)));
+        } else {
+            // Azioni che toccano risorse non indicate nel path (es. /stock/reserve): si svuota la route
+            store.invalidateRoute(routeId);
+        }
+    }
+
+    private static boolean isItem(PathPattern itemPath, String path) {
+        return itemPath.matches(PathContainer.parsePath(path));
+    }
+
+    private static String path(String key) {
+        int query = key.indexOf('?');
+        return query < 0 ? key : key.substring(0, query);
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        return ifNoneMatch.contains(etag) || ifNoneMatch.contains("*");
+    }
+
+    private static boolean isNoStore(HttpHeaders headers) {
+        String cacheControl = headers.getCacheControl();
+        return cacheControl != null
+                && (cacheControl.contains("no-store") || cacheControl.contains("private"));
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Config {
+        private Duration ttl = Duration.ofSeconds(30);
+        private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+        // Pattern della singola risorsa (es. /api/products/{id:[0-9]+}); la collezione è il path senza l'ultimo
+        // segmento. Senza pattern ogni scrittura svuota l'intera route
+        private String itemPath;
+    }
+}
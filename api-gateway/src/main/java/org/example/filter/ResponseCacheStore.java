@@ -0,0 +1,104 @@
+package org.example.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// Store condiviso delle risposte GET in cache, limitato in byte e con TTL per singola entry (quindi per route)
+@Component
+public class ResponseCacheStore {
+
+    private final Cache<String, CachedResponse> cache;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public ResponseCacheStore(@Value("${gateway.response-cache.max-size:64MB}") DataSize maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.body().length)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+                        return response.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+                        return response.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    public CachedResponse get(String routeId, String key) {
+        return cache.getIfPresent(routeId + " " + key);
+    }
+
+    // Un'entry viene salvata solo se nessuna scrittura sulla route è passata nel frattempo
+    public void put(String routeId, String key, long generation, CachedResponse response) {
+        if (generation(routeId) == generation) {
+            cache.put(routeId + " " + key, response);
+        }
+    }
+
+    public long generation(String routeId) {
+        return generations.computeIfAbsent(routeId, id -> new AtomicLong()).get();
+    }
+
+    public void invalidateRoute(String routeId) {
+        invalidate(routeId, key -> true);
+    }
+
+    // Rimuove le entry della route la cui chiave (path+query) soddisfa il filtro. La generazione della route avanza
+    // comunque: le risposte di GET partiti prima della scrittura non vengono salvate, le altre entry restano
+    public void invalidate(String routeId, Predicate<String> keys) {
+        generations.computeIfAbsent(routeId, id -> new AtomicLong()).incrementAndGet();
+        String prefix = routeId + " ";
+        cache.asMap().keySet().removeIf(key -> key.startsWith(prefix) && keys.test(key.substring(prefix.length())));
+        invalidations.increment();
+    }
+
+    public void recordNotModified() {
+        notModified.increment();
+    }
+
+    public Map<String, Object> statistics() {
+        var stats = cache.stats();
+        long weightedSize = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("bytesHeld", weightedSize);
+        result.put("maxBytes", cache.policy().eviction().map(Policy.Eviction::getMaximum).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRatio", stats.hitRate());
+        result.put("notModified", notModified.sum());
+        result.put("evictions", stats.evictionCount());
+        result.put("invalidations", invalidations.sum());
+        return result;
+    }
+
+    public record CachedResponse(byte[] body, String contentType, String etag, long ttlNanos) {
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.filter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Budget dei retry in millesimi di token: ogni richiesta riuscita accredita `ratio` token, ogni retry ne consuma uno.
+// Una ricarica minima nel tempo lascia qualche retry anche con poco traffico, senza permettere tempeste di retry.
+public class RetryBudget {
+
+    private static final long TOKEN = 1000;
+    private static final long MAX_REFILL_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long deposit;
+    private final long refillPerSecond;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+    private final AtomicLong lastRefill = new AtomicLong(System.nanoTime());
+
+    public RetryBudget(double ratio, double minRetriesPerSecond, int maxTokens) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.refillPerSecond = Math.round(minRetriesPerSecond * TOKEN);
+        this.maxTokens = maxTokens * TOKEN;
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    public void onSuccess() {
+        add(deposit);
+    }
+
+    public boolean tryWithdraw() {
+        refill();
+        while (true) {
+            long current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    public double available() {
+        return (double) tokens.get() / TOKEN;
+    }
+
+    // Backoff esponenziale con full jitter: attesa casuale tra zero e min(maxBackoff, firstBackoff * 2^(retry-1))
+    public static Duration backoff(Duration firstBackoff, Duration maxBackoff, int retry) {
+        long ceiling = Math.min(maxBackoff.toNanos(), firstBackoff.toNanos() << Math.min(retry - 1, 20));
+        return Duration.ofNanos(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long last = lastRefill.get();
+        long elapsed = Math.min(now - last, MAX_REFILL_WINDOW_NANOS);
+        long amount = elapsed * refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        if (amount > 0 && lastRefill.compareAndSet(last, now)) {
+            add(amount);
+        }
+    }
+
+    private void add(long amount) {
+        tokens.getAndUpdate(current -> Math.min(maxTokens, current + amount));
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.filter;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.example.filter.StaleSnapshotStore.Snapshot;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Registra l'ultima risposta 200 di ogni GET nello StaleSnapshotStore e lascia sull'exchange la chiave
+// con cui il fallback del circuit breaker può ritrovarla. Le risposte già stale non sovrascrivono lo snapshot.
+// Come per la cache, il body viene letto solo fino a maxEntrySize e gli export in streaming passano senza snapshot.
+@Component
+public class StaleSnapshotGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<StaleSnapshotGatewayFilterFactory.Config> {
+
+    public static final String STALE_HEADER = "X-Stale";
+
+    private final StaleSnapshotStore store;
+
+    public StaleSnapshotGatewayFilterFactory(StaleSnapshotStore store) {
+        super(Config.class);
+        this.store = store;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!HttpMethod.GET.equals(request.getMethod())) {
+                return chain.filter(exchange);
+            }
+
+            String key = routeId(exchange) + " " + request.getURI().getRawPath()
+                    + (request.getURI().getRawQuery() != null ? "?" + request.getURI().getRawQuery() : "");
+            exchange.getAttributes().put(StaleSnapshotStore.SNAPSHOT_KEY_ATTR, key);
+
+            ServerHttpResponseDecorator decorated = new ServerHttpResponseDecorator(exchange.getResponse()) {
+                @Override
+                public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+                    long maxEntrySize = config.getMaxEntrySize().toBytes();
+                    if (getStatusCode() == null || getStatusCode().value() != HttpStatus.OK.value()
+                            || getHeaders().containsKey(STALE_HEADER)
+                            || !BoundedBody.isCapturable(getHeaders(), maxEntrySize)) {
+                        return super.writeWith(body);
+                    }
+                    return BoundedBody.read(body, maxEntrySize, bytes -> {
+                        store.put(key, new Snapshot(bytes, getHeaders().getFirst(HttpHeaders.CONTENT_TYPE),
+                                System.currentTimeMillis()));
+                        return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                    }, super::writeWith);
+                }
+            };
+            return chain.filter(exchange.mutate().response(decorated).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static String routeId(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        return route != null ? route.getId() : "";
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Config {
+        private DataSize maxEntrySize = DataSize.ofKilobytes(512);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Policy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Ultima risposta valida per risorsa (route + path + query), servita come stale dai fallback dei circuit breaker.
+// Limitata in byte (eviction W-TinyLFU di Caffeine) e per età: oltre max-age uno snapshot non viene più servito.
+@Component
+public class StaleSnapshotStore {
+
+    // Attributo dell'exchange con la chiave dello snapshot, letto dal FallbackController dopo il forward
+    public static final String SNAPSHOT_KEY_ATTR = StaleSnapshotStore.class.getName() + ".key";
+
+    private final Cache<String, Snapshot> snapshots;
+    private final LongAdder staleServed = new LongAdder();
+    private final LongAdder staleMisses = new LongAdder();
+
+    public StaleSnapshotStore(@Value("${gateway.stale-snapshots.max-size:32MB}") DataSize maxSize,
+                              @Value("${gateway.stale-snapshots.max-age:1h}") Duration maxAge) {
+        this.snapshots = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, Snapshot snapshot) -> key.length() + snapshot.body().length)
+                .expireAfterWrite(maxAge)
+                .recordStats()
+                .build();
+    }
+
+    public void put(String key, Snapshot snapshot) {
+        snapshots.put(key, snapshot);
+    }
+
+    public Snapshot getStale(String key) {
+        Snapshot snapshot = key != null ? snapshots.getIfPresent(key) : null;
+        if (snapshot != null) {
+            staleServed.increment();
+        } else {
+            staleMisses.increment();
+        }
+        return snapshot;
+    }
+
+    public Map<String, Object> statistics() {
+        long weightedSize = snapshots.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("snapshots", snapshots.estimatedSize());
+        result.put("bytesHeld", weightedSize);
+        result.put("maxBytes", snapshots.policy().eviction().map(Policy.Eviction::getMaximum).orElse(0L));
+        result.put("staleServed", staleServed.sum());
+        result.put("staleMisses", staleMisses.sum());
+        result.put("evictions", snapshots.stats().evictionCount());
+        return result;
+    }
+
+    public record Snapshot(byte[] body, String contentType, long storedAtMillis) {
+    }
+}
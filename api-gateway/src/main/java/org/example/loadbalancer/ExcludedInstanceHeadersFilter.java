@@ -0,0 +1,37 @@
+package org.example.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+// Istanza da evitare nella scelta del load balancer (quella del tentativo principale di un hedge o del tentativo
+// fallito prima di un retry). Viaggia come header interno della richiesta perché il ReactiveLoadBalancerClientFilter
+// passa al load balancer solo la richiesta e non gli attributi dell'exchange; l'header viene rimosso prima dell'inoltro.
+@Component
+public class ExcludedInstanceHeadersFilter implements HttpHeadersFilter {
+
+    public static final String HEADER = PeakEwmaLoadBalancer.EXCLUDED_INSTANCE_HEADER;
+
+    public static ServerHttpRequest exclude(ServerHttpRequest request, ServiceInstance instance) {
+        return request.mutate()
+                .headers(headers -> headers.set(HEADER, PeakEwmaLoadBalancer.instanceKey(instance)))
+                .build();
+    }
+
+    @Override
+    public HttpHeaders filter(HttpHeaders input, ServerWebExchange exchange) {
+        if (!input.containsKey(HEADER)) {
+            return input;
+        }
+        HttpHeaders filtered = new HttpHeaders();
+        input.forEach((name, values) -> {
+            if (!HEADER.equalsIgnoreCase(name)) {
+                filtered.addAll(name, values);
+            }
+        });
+        return filtered;
+    }
+}
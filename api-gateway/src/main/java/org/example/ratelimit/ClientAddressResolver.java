@@ -0,0 +1,107 @@
+package org.example.ratelimit;
+
+import io.netty.util.NetUtil;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+// Indirizzo del client usato come chiave del rate limiting. X-Forwarded-For è scritto dal client, quindi viene letto
+// solo se la connessione arriva da un proxy fidato (gateway.rate-limit.trusted-proxies, indirizzi o blocchi CIDR):
+// in quel caso vale il primo indirizzo da destra che non è a sua volta un proxy fidato, l'ultimo aggiunto da un proxy.
+public class ClientAddressResolver {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final List<AddressBlock> trustedProxies;
+
+    public ClientAddressResolver(List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies.stream()
+                .map(AddressBlock::parse)
+                .toList();
+    }
+
+    public String resolve(ServerHttpRequest request) {
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String remote = remoteAddress != null && remoteAddress.getAddress() != null
+                ? remoteAddress.getAddress().getHostAddress()
+                : UNKNOWN;
+        if (trustedProxies.isEmpty() || !isTrusted(remote)) {
+            return remote;
+        }
+
+        List<String> forwarded = forwardedFor(request);
+        for (int i = forwarded.size() - 1; i >= 0; i--) {
+            String hop = forwarded.get(i);
+            if (!isTrusted(hop)) {
+                return NetUtil.isValidIpV4Address(hop) || NetUtil.isValidIpV6Address(hop) ? hop : remote;
+            }
+        }
+        // Tutta la catena è fatta di proxy fidati: il client è il primo della lista
+        return forwarded.isEmpty() ? remote : forwarded.get(0);
+    }
+
+    private boolean isTrusted(String address) {
+        byte[] bytes = NetUtil.createByteArrayFromIpAddressString(address);
+        if (bytes == null) {
+            return false;
+        }
+        for (AddressBlock block : trustedProxies) {
+            if (block.contains(bytes)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> forwardedFor(ServerHttpRequest request) {
+        List<String> hops = new ArrayList<>();
+        List<String> headers = request.getHeaders().get("X-Forwarded-For");
+        if (headers != null) {
+            for (String header : headers) {
+                for (String hop : header.split(",")) {
+                    if (!hop.isBlank()) {
+                        hops.add(hop.trim());
+                    }
+                }
+            }
+        }
+        return hops;
+    }
+
+    private record AddressBlock(byte[] network, int prefixLength) {
+
+        static AddressBlock parse(String value) {
+            int slash = value.indexOf('/');
+            String address = slash >= 0 ? value.substring(0, slash).trim() : value.trim();
+            byte[] network = NetUtil.createByteArrayFromIpAddressString(address);
+            if (network == null) {
+                throw new IllegalArgumentException("Invalid trusted proxy address: " + value);
+            }
+            int prefixLength = slash >= 0 ? Integer.parseInt(value.substring(slash + 1).trim()) : network.length * 8;
+            if (prefixLength < 0 || prefixLength > network.length * 8) {
+                throw new IllegalArgumentException("Invalid trusted proxy prefix: " + value);
+            }
+            return new AddressBlock(network, prefixLength);
+        }
+
+        boolean contains(byte[] address) {
+            if (address.length != network.length) {
+                return false;
+            }
+            int fullBytes = prefixLength / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (address[i] != network[i]) {
+                    return false;
+                }
+            }
+            int remainingBits = prefixLength % 8;
+            if (remainingBits == 0) {
+                return true;
+            }
+            int mask = 0xFF << (8 - remainingBits);
+            return (address[fullBytes] & mask) == (network[fullBytes] & mask);
+        }
+    }
+}
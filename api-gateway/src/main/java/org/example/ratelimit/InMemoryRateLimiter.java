@@ -0,0 +1,143 @@
+package org.example.ratelimit;
+
+import org.example.ratelimit.RateLimitProperties.Limit;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Token bucket in memoria (senza Redis) implementato come GCRA: ogni chiave è un solo AtomicLong con il
+// "theoretical arrival time" aggiornato via CAS. Una chiave il cui bucket è di nuovo pieno è indistinguibile
+// da una chiave mai vista, quindi le chiavi inattive vengono rimosse periodicamente senza effetti sul limite.
+// Le pulizie scorrono l'intera tabella e non girano mai sull'event loop: quella periodica sul thread dello
+// scheduler di Spring, quella a tabella piena su boundedElastic.
+@Component
+public class InMemoryRateLimiter implements RateLimiter<Limit> {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long FULL_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String OVERFLOW_KEY = "\u0000overflow";
+
+    private final RateLimitProperties properties;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextFullSweep = new AtomicLong(System.nanoTime());
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public InMemoryRateLimiter(RateLimitProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        return Mono.just(tryAcquire(routeId, id, System.nanoTime()));
+    }
+
+    public Response tryAcquire(String routeId, String id, long now) {
+        Limit limit = getConfig().getOrDefault(routeId, properties.getDefaults());
+        long interval = (long) (NANOS_PER_SECOND / limit.getReplenishRate());
+        long cost = interval * limit.getRequestedTokens();
+        long tolerance = interval * limit.getBurstCapacity();
+
+        AtomicLong bucket = bucket(routeId, id, now);
+
+        while (true) {
+            long tat = bucket.get();
+            long newTat = Math.max(tat, now) + cost;
+            long delay = newTat - now - tolerance;
+            if (delay > 0) {
+                rejected.increment();
+                long retryAfterSeconds = Math.max(1, (delay + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+                return new Response(false, headers(limit, 0, retryAfterSeconds));
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                allowed.increment();
+                long remaining = (tolerance - (newTat - now)) / interval;
+                return new Response(true, headers(limit, remaining, 0));
+            }
+        }
+    }
+
+    private AtomicLong bucket(String routeId, String id, long now) {
+        String key = routeId + " " + id;
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        // Oltre il numero massimo di chiavi si usa il bucket condiviso e si chiede una pulizia in background:
+        // le chiavi nuove riavranno un bucket proprio quando la pulizia avrà liberato spazio.
+        // La pulizia completa costa O(maxKeys): a tabella piena parte al più una volta per FULL_SWEEP_INTERVAL,
+        // così un flusso di chiavi nuove (ad esempio indirizzi casuali) non genera una scansione per richiesta.
+        if (buckets.size() >= properties.getMaxKeys()) {
+            long due = nextFullSweep.get();
+            if (now - due >= 0 && nextFullSweep.compareAndSet(due, now + FULL_SWEEP_INTERVAL_NANOS)) {
+                Schedulers.boundedElastic().schedule(() -> sweep(now));
+            }
+            return buckets.computeIfAbsent(routeId + " " + OVERFLOW_KEY, k -> new AtomicLong(now));
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+    }
+
+    @Scheduled(fixedDelay = 10, timeUnit = TimeUnit.SECONDS)
+    public void sweepIdleKeys() {
+        sweep(System.nanoTime());
+    }
+
+    // Rimuove i bucket già ricaricati del tutto (theoretical arrival time nel passato)
+    private void sweep(long now) {
+        buckets.entrySet().removeIf(entry -> {
+            boolean idle = entry.getValue().get() - now <= 0;
+            if (idle) {
+                evicted.increment();
+            }
+            return idle;
+        });
+    }
+
+    private Map<String, String> headers(Limit limit, long remaining, long retryAfterSeconds) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Replenish-Rate", String.valueOf(limit.getReplenishRate()));
+        headers.put("X-RateLimit-Burst-Capacity", String.valueOf(limit.getBurstCapacity()));
+        headers.put("X-RateLimit-Remaining", String.valueOf(Math.max(0, remaining)));
+        if (retryAfterSeconds > 0) {
+            headers.put(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        }
+        return headers;
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("trackedKeys", buckets.size());
+        result.put("maxKeys", properties.getMaxKeys());
+        result.put("allowed", allowed.sum());
+        result.put("rejected", rejected.sum());
+        result.put("evictedKeys", evicted.sum());
+        return result;
+    }
+
+    @Override
+    public Map<String, Limit> getConfig() {
+        return properties.getRoutes();
+    }
+
+    @Override
+    public Class<Limit> getConfigClass() {
+        return Limit.class;
+    }
+
+    @Override
+    public Limit newConfig() {
+        return new Limit();
+    }
+}
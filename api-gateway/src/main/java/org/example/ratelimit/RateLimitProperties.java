@@ -0,0 +1,34 @@
+package org.example.ratelimit;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    // Numero massimo di chiavi tracciate: oltre il limite le chiavi nuove condividono un bucket per route
+    private int maxKeys = 100_000;
+
+    // Proxy (indirizzi o blocchi CIDR) di cui si accetta X-Forwarded-For; vuoto = si usa sempre l'indirizzo remoto
+    private List<String> trustedProxies = new ArrayList<>();
+
+    private Limit defaults = new Limit();
+
+    // Override per route, indicizzati per id della route
+    private Map<String, Limit> routes = new HashMap<>();
+
+    @Data
+    @Accessors(chain = true)
+    public static class Limit {
+        private double replenishRate = 100;
+        private int burstCapacity = 200;
+        private int requestedTokens = 1;
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.ratelimit;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimiterConfig {
+
+    // Chiave di default: indirizzo remoto del client (X-Forwarded-For solo dietro proxy fidati)
+    @Bean
+    @Primary
+    public KeyResolver clientIpKeyResolver(RateLimitProperties properties) {
+        ClientAddressResolver clientAddress = new ClientAddressResolver(properties.getTrustedProxies());
+        return exchange -> Mono.just(clientAddress.resolve(exchange.getRequest()));
+    }
+
+    @Bean
+    public KeyResolver apiKeyResolver(RateLimitProperties properties) {
+        ClientAddressResolver clientAddress = new ClientAddressResolver(properties.getTrustedProxies());
+        return exchange -> {
+            String apiKey = exchange.getRequest().getHeaders().getFirst("X-API-Key");
+            return Mono.just(apiKey != null && !apiKey.isBlank()
+                    ? "key:" + apiKey
+                    : "ip:" + clientAddress.resolve(exchange.getRequest()));
+        };
+    }
+
+    @Bean
+    public KeyResolver routeKeyResolver() {
+        return exchange -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            return Mono.just(route != null ? route.getId() : "unknown");
+        };
+    }
+}
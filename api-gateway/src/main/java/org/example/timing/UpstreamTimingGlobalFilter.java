@@ -0,0 +1,31 @@
+package org.example.timing;
+
+import org.example.timing.ServerTimingGlobalFilter.RequestTimings;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+// Misura il tratto upstream: dall'invio della richiesta al backend fino alla ricezione degli header di risposta
+@Component
+public class UpstreamTimingGlobalFilter implements GlobalFilter, Ordered {
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTimings timings = exchange.getAttribute(ServerTimingGlobalFilter.TIMINGS_ATTR);
+        if (timings == null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(v -> timings.upstreamNanos = System.nanoTime() - start);
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+}
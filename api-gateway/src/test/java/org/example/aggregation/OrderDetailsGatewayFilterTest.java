@@ -0,0 +1,70 @@
+package org.example.aggregation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderDetailsGatewayFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final OrderDetailsService orderDetailsService = mock(OrderDetailsService.class);
+    private final OrderDetailsGatewayFilter filter = new OrderDetailsGatewayFilter(orderDetailsService, objectMapper);
+    // La route non ha un backend: il filtro non deve proseguire nella catena
+    private final GatewayFilterChain chain = exchange -> Mono.error(new AssertionError("chain must not be called"));
+
+    @Test
+    void writesAggregatedOrder() {
+        ObjectNode order = objectMapper.createObjectNode().put("orderNumber", "A-1").put("partial", false);
+        when(orderDetailsService.getOrderDetails("A-1")).thenReturn(Mono.just(order));
+        MockServerWebExchange exchange = exchange("A-1");
+
+        filter.filter(exchange, chain).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"orderNumber\":\"A-1\",\"partial\":false}");
+    }
+
+    // Un ordine inesistente non è un errore per il circuit breaker della route
+    @Test
+    void missingOrderIsNotFoundResponse() {
+        when(orderDetailsService.getOrderDetails("missing"))
+                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)));
+        MockServerWebExchange exchange = exchange("missing");
+
+        filter.filter(exchange, chain).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    void unavailableOrderServiceReachesCircuitBreakerAsError() {
+        when(orderDetailsService.getOrderDetails("A-2"))
+                .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.BAD_GATEWAY)));
+
+        StepVerifier.create(filter.filter(exchange("A-2"), chain))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+
+    private static MockServerWebExchange exchange(String orderNumber) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/order-details/" + orderNumber));
+        ServerWebExchangeUtils.putUriTemplateVariables(exchange, Map.of("orderNumber", orderNumber));
+        return exchange;
+    }
+}
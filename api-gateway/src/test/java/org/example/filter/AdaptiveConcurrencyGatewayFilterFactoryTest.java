@@ -0,0 +1,140 @@
+package org.example.filter;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.example.GatewayConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Backend stub con un numero fisso di worker: oltre quella concorrenza le richieste si accodano e la latenza
+// cresce con il carico. Molti client in ciclo chiuso lo saturano, prima dietro il limite adattivo e poi dietro
+// la configurazione fissa del circuit breaker (slow call a 2s, timeout a 3s) dichiarata in GatewayConfig.
+class AdaptiveConcurrencyGatewayFilterFactoryTest {
+
+    private static final int WORKERS = 8;
+    private static final Duration SERVICE_TIME = Duration.ofMillis(20);
+    private static final int CLIENTS = 96;
+    private static final Duration RUN = Duration.ofSeconds(3);
+    private static final Duration REJECTED_BACKOFF = Duration.ofMillis(20);
+
+    // Con il limite adattivo le richieste in eccesso ricevono subito 503 e quelle accettate trovano il backend
+    // quasi libero; con le soglie fisse il circuit breaker non scatta mai (la coda resta sotto i 2s) e ogni
+    // richiesta attende dietro tutte le altre, con una latenza proporzionale al numero di client.
+    @Test
+    void adaptiveLimitKeepsLatencyBoundedWhereFixedCircuitBreakerDoesNot() {
+        ReactiveCircuitBreaker circuitBreaker = fixedCircuitBreaker();
+        // Un primo giro scarta JIT e caricamento delle classi, che il limite ricorderebbe come latenza senza carico
+        GatewayFilter warmup = adaptiveFilter();
+        DegradingBackend warmupBackend = new DegradingBackend();
+        run(exchange -> warmup.filter(exchange, warmupBackend));
+
+        GatewayFilter adaptive = adaptiveFilter();
+        DegradingBackend adaptiveBackend = new DegradingBackend();
+        Result adaptiveResult = run(exchange -> adaptive.filter(exchange, adaptiveBackend));
+        DegradingBackend circuitBreakerBackend = new DegradingBackend();
+        Result circuitBreakerResult = run(exchange -> circuitBreaker.run(circuitBreakerBackend.filter(exchange), error -> {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            return Mono.empty();
+        }));
+
+        long queueingLatency = SERVICE_TIME.toMillis() * CLIENTS / WORKERS;
+        assertThat(adaptiveResult.served()).isGreaterThan(0);
+        assertThat(adaptiveResult.rejected()).isGreaterThan(0);
+        assertThat(adaptiveResult.p95()).isLessThan(queueingLatency / 2);
+        assertThat(circuitBreakerResult.rejected()).isZero();
+        assertThat(circuitBreakerResult.p95()).isGreaterThanOrEqualTo(queueingLatency * 3 / 4);
+    }
+
+    // Stessa configurazione della route product-service
+    private static GatewayFilter adaptiveFilter() {
+        return new AdaptiveConcurrencyGatewayFilterFactory(new ConcurrencyLimiter())
+                .apply(config -> config.setInitialLimit(20).setMaxLimit(500));
+    }
+
+    // Stessa configurazione di default usata dalle route del gateway
+    private static ReactiveCircuitBreaker fixedCircuitBreaker() {
+        ReactiveResilience4JCircuitBreakerFactory factory = new ReactiveResilience4JCircuitBreakerFactory(
+                CircuitBreakerRegistry.ofDefaults(), TimeLimiterRegistry.ofDefaults());
+        new GatewayConfig().defaultCustomizer().customize(factory);
+        return factory.create("stub-backend");
+    }
+
+    private static Result run(Function<ServerWebExchange, Mono<Void>> gateway) {
+        long deadline = System.nanoTime() + RUN.toNanos();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        List<Long> rejections = Collections.synchronizedList(new ArrayList<>());
+        Flux.range(0, CLIENTS)
+                .flatMap(client -> Mono.defer(() -> {
+                    MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+                    long start = System.nanoTime();
+                    return gateway.apply(exchange).then(Mono.defer(() -> {
+                        if (exchange.getResponse().getStatusCode() == HttpStatus.OK) {
+                            latencies.add(Duration.ofNanos(System.nanoTime() - start).toMillis());
+                            return Mono.empty();
+                        }
+                        rejections.add(1L);
+                        return Mono.delay(REJECTED_BACKOFF).then();
+                    }));
+                }).repeat(() -> System.nanoTime() < deadline), CLIENTS)
+                .blockLast(RUN.plusSeconds(30));
+        return new Result(latencies, rejections.size());
+    }
+
+    private record Result(List<Long> latencies, int rejected) {
+
+        int served() {
+            return latencies.size();
+        }
+
+        long p95() {
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return sorted.get((int) Math.ceil(sorted.size() * 0.95) - 1);
+        }
+    }
+
+    // Coda FIFO davanti a WORKERS worker con tempo di servizio fisso. Come un backend reale, continua a
+    // lavorare anche sulle richieste abbandonate dal chiamante.
+    private static class DegradingBackend implements GatewayFilterChain {
+
+        private final long[] freeAt = new long[WORKERS];
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return Mono.defer(() -> Mono.delay(Duration.ofNanos(schedule() - System.nanoTime())))
+                    .then(Mono.defer(() -> {
+                        exchange.getResponse().setStatusCode(HttpStatus.OK);
+                        return exchange.getResponse().setComplete();
+                    }));
+        }
+
+        private synchronized long schedule() {
+            int worker = 0;
+            for (int i = 1; i < freeAt.length; i++) {
+                if (freeAt[i] < freeAt[worker]) {
+                    worker = i;
+                }
+            }
+            long end = Math.max(System.nanoTime(), freeAt[worker]) + SERVICE_TIME.toNanos();
+            freeAt[worker] = end;
+            return end;
+        }
+    }
+}
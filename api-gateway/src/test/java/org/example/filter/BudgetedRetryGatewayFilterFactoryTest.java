@@ -0,0 +1,100 @@
+package org.example.filter;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BudgetedRetryGatewayFilterFactoryTest {
+
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+    private final RequestRetrier retrier = new RequestRetrier(
+            new ReactiveResilience4JCircuitBreakerFactory(circuitBreakers, TimeLimiterRegistry.ofDefaults()));
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    // Backend che risponde 503 alle prime `failures` chiamate e 200 alle successive
+    private GatewayFilterChain backend(int failures) {
+        return exchange -> {
+            int call = upstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(call <= failures ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK);
+            return Mono.empty();
+        };
+    }
+
+    private GatewayFilter filter(int maxBudgetTokens) {
+        return new BudgetedRetryGatewayFilterFactory(retrier).apply(config -> config
+                .setMaxAttempts(3)
+                .setFirstBackoff(Duration.ofMillis(1))
+                .setMaxBackoff(Duration.ofMillis(1))
+                .setBudgetRatio(0)
+                .setMinRetriesPerSecond(0)
+                .setMaxBudgetTokens(maxBudgetTokens)
+                .setCircuitBreakerName("backend"));
+    }
+
+    @Test
+    void idempotentRequestIsRetriedUntilItSucceeds() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+
+        filter(20).filter(exchange, backend(2)).block();
+
+        assertThat(upstreamCalls).hasValue(3);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(routeStatistics()).containsEntry("retriesAttempted", 2L).containsEntry("retriesSucceeded", 1L);
+    }
+
+    // Un POST potrebbe essere già stato applicato dal backend: non si ritenta nemmeno con budget disponibile
+    @Test
+    void nonIdempotentRequestIsNeverRetried() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/orders"));
+
+        filter(20).filter(exchange, backend(Integer.MAX_VALUE)).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(routeStatistics()).containsEntry("retriesAttempted", 0L);
+    }
+
+    // Con un solo token la prima richiesta ottiene un retry, le successive arrivano al backend una volta sola
+    @Test
+    void spentBudgetStopsRetries() {
+        GatewayFilter filter = filter(1);
+        GatewayFilterChain failing = backend(Integer.MAX_VALUE);
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/products/1")), failing).block();
+        assertThat(upstreamCalls).hasValue(2);
+
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/products/1")), failing).block();
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/products/1")), failing).block();
+        assertThat(upstreamCalls).hasValue(4);
+        assertThat(routeStatistics()).containsEntry("retriesAttempted", 1L).containsEntry("suppressedByBudget", 3L);
+    }
+
+    @Test
+    void openCircuitStopsRetries() {
+        circuitBreakers.circuitBreaker("backend").transitionToOpenState();
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+
+        filter(20).filter(exchange, backend(Integer.MAX_VALUE)).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(routeStatistics()).containsEntry("suppressedByCircuitBreaker", 1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> routeStatistics() {
+        return (Map<String, Object>) retrier.statistics().get("");
+    }
+}
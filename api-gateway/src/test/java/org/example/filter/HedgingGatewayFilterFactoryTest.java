@@ -0,0 +1,110 @@
+package org.example.filter;
+
+import org.example.loadbalancer.ExcludedInstanceHeadersFilter;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+class HedgingGatewayFilterFactoryTest {
+
+    private static final ServiceInstance SLOW = new DefaultServiceInstance("slow", "product-service", "10.0.0.1", 8080, false);
+    private static final ServiceInstance FAST = new DefaultServiceInstance("fast", "product-service", "10.0.0.2", 8080, false);
+
+    private final GatewayFilter hedging = new HedgingGatewayFilterFactory(new RequestHedger())
+            .apply(config -> config
+                    .setPaths(List.of("/api/products/{id:[0-9]+}"))
+                    .setMaxDelay(Duration.ofMillis(20)));
+    private final ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+    private final GatewayFilter adaptiveConcurrency = new AdaptiveConcurrencyGatewayFilterFactory(limiter)
+            .apply(config -> config.setInitialLimit(20));
+    private final List<String> excludedHeaders = new CopyOnWriteArrayList<>();
+
+    // Load balancer e backend stub: senza istanza esclusa si sceglie quella lenta, che non risponde mai
+    private final GatewayFilterChain backend = exchange -> {
+        String excluded = exchange.getRequest().getHeaders().getFirst(ExcludedInstanceHeadersFilter.HEADER);
+        excludedHeaders.add(String.valueOf(excluded));
+        ServiceInstance chosen = excluded == null ? SLOW : FAST;
+        exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(chosen));
+        if (chosen == SLOW) {
+            return Mono.never();
+        }
+        exchange.getResponse().setStatusCode(HttpStatus.OK);
+        return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                .wrap(chosen.getInstanceId().getBytes(StandardCharsets.UTF_8))));
+    };
+
+    private final GatewayFilterChain chain = exchange -> adaptiveConcurrency.filter(exchange, backend);
+
+    @Test
+    void hedgeAvoidsPrimaryInstanceAndLoserIsNotAnOverloadSignal() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+
+        hedging.filter(exchange, chain).block(Duration.ofSeconds(5));
+
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("fast");
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Hedged")).isEqualTo("true");
+        assertThat(excludedHeaders).containsExactly("null", "10.0.0.1:8080");
+        assertThat(routeLimitEventuallyIdle()).containsEntry("inFlight", 0).containsEntry("dropped", 0L)
+                .containsEntry("limit", 20);
+    }
+
+    // L'hedge vincente risponde su un thread del timer: block() ritorna appena emette, il doFinally del limite
+    // che libera il suo posto gira subito dopo sullo stesso thread
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> routeLimitEventuallyIdle() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        Map<String, Object> route = (Map<String, Object>) limiter.statistics().get("");
+        while (!Integer.valueOf(0).equals(route.get("inFlight")) && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+            route = (Map<String, Object>) limiter.statistics().get("");
+        }
+        return route;
+    }
+
+    // L'export in streaming non è tra i percorsi abilitati: un solo tentativo, senza buffer della risposta
+    @Test
+    void pathsOutsideAllowlistAreNotHedged() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/export"));
+        AtomicInteger attempts = new AtomicInteger();
+        GatewayFilterChain export = attempt -> {
+            attempts.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).then(attempt.getResponse().setComplete());
+        };
+
+        hedging.filter(exchange, export).block(Duration.ofSeconds(5));
+
+        assertThat(attempts).hasValue(1);
+        assertThat(exchange.getResponse().getHeaders().containsKey("X-Hedged")).isFalse();
+    }
+
+    @Test
+    void excludedInstanceHeaderIsNotForwarded() {
+        ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1")
+                .header(ExcludedInstanceHeadersFilter.HEADER, "10.0.0.1:8080")
+                .header("Accept", "application/json"));
+
+        HttpHeaders forwarded = new ExcludedInstanceHeadersFilter().filter(exchange.getRequest().getHeaders(), exchange);
+
+        assertThat(forwarded.containsKey(ExcludedInstanceHeadersFilter.HEADER)).isFalse();
+        assertThat(forwarded.getFirst("Accept")).isEqualTo("application/json");
+    }
+}
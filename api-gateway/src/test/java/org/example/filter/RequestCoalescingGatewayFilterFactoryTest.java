@@ -0,0 +1,146 @@
+package org.example.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestCoalescingGatewayFilterFactoryTest {
+
+    private final GatewayFilter filter = new RequestCoalescingGatewayFilterFactory(new RequestCoalescer())
+            .apply(config -> config.setMaxWaiters(10));
+    private final Sinks.Empty<Void> release = Sinks.empty();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    // Il backend risponde solo quando il test lo sblocca, così le richieste successive trovano il leader in volo
+    private final GatewayFilterChain chain = exchange -> {
+        upstreamCalls.incrementAndGet();
+        return release.asMono().then(Mono.defer(() -> {
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().add(HttpHeaders.SET_COOKIE, "session=leader");
+            if (exchange.getRequest().getMethod().matches("HEAD")) {
+                return exchange.getResponse().setComplete();
+            }
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory()
+                    .wrap("{\"id\":1}".getBytes(StandardCharsets.UTF_8))));
+        }));
+    };
+
+    @Test
+    void followerGetsLeaderBodyWithoutItsCookies() {
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+
+        Mono<Void> leading = filter.filter(leader, chain).cache();
+        leading.subscribe();
+        Mono<Void> following = filter.filter(follower, chain).cache();
+        following.subscribe();
+        release.tryEmitEmpty();
+        leading.then(following).block();
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(follower.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}");
+        assertThat(follower.getResponse().getHeaders().containsKey(HttpHeaders.SET_COOKIE)).isFalse();
+    }
+
+    // Il rate limit è già stato applicato a ciascun client: il follower mantiene i propri header
+    @Test
+    void followerKeepsItsOwnRateLimitHeaders() {
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+        leader.getResponse().getHeaders().set("X-RateLimit-Remaining", "9");
+        follower.getResponse().getHeaders().set("X-RateLimit-Remaining", "3");
+
+        Mono<Void> leading = filter.filter(leader, chain).cache();
+        leading.subscribe();
+        Mono<Void> following = filter.filter(follower, chain).cache();
+        following.subscribe();
+        release.tryEmitEmpty();
+        leading.then(following).block();
+
+        assertThat(follower.getResponse().getHeaders().get("X-Coalesced")).containsExactly("true");
+        assertThat(follower.getResponse().getHeaders().get("X-RateLimit-Remaining")).containsExactly("3");
+    }
+
+    // L'export NDJSON del leader non finisce mai: il follower non lo attende e fa una chiamata indipendente
+    @Test
+    void streamingResponsesReleaseFollowersWithoutBuffering() {
+        GatewayFilter patient = new RequestCoalescingGatewayFilterFactory(new RequestCoalescer())
+                .apply(config -> config.setTimeout(Duration.ofMinutes(1)));
+        GatewayFilterChain export = exchange -> {
+            boolean first = upstreamCalls.incrementAndGet() == 1;
+            return release.asMono().then(Mono.defer(() -> {
+                exchange.getResponse().setStatusCode(HttpStatus.OK);
+                exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+                Mono<DataBuffer> line = Mono.just(exchange.getResponse().bufferFactory()
+                        .wrap("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8)));
+                return exchange.getResponse().writeWith(first ? Flux.concat(line, Mono.never()) : line);
+            }));
+        };
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/products/export"));
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/products/export"));
+
+        patient.filter(leader, export).subscribe();
+        Mono<Void> following = patient.filter(follower, export).cache();
+        following.subscribe();
+        release.tryEmitEmpty();
+        following.block(Duration.ofSeconds(5));
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(follower.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}\n");
+        assertThat(follower.getResponse().getHeaders().containsKey("X-Coalesced")).isFalse();
+    }
+
+    // Oltre maxBodySize la risposta del leader passa senza essere trattenuta e il follower chiama il backend
+    @Test
+    void responsesOverLimitAreNotShared() {
+        GatewayFilter small = new RequestCoalescingGatewayFilterFactory(new RequestCoalescer())
+                .apply(config -> config.setMaxBodySize(DataSize.ofBytes(4)));
+        MockServerWebExchange leader = MockServerWebExchange.from(MockServerHttpRequest.get("/products"));
+        MockServerWebExchange follower = MockServerWebExchange.from(MockServerHttpRequest.get("/products"));
+
+        Mono<Void> leading = small.filter(leader, chain).cache();
+        leading.subscribe();
+        Mono<Void> following = small.filter(follower, chain).cache();
+        following.subscribe();
+        release.tryEmitEmpty();
+        leading.then(following).block(Duration.ofSeconds(5));
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(leader.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}");
+        assertThat(follower.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}");
+        assertThat(follower.getResponse().getHeaders().containsKey("X-Coalesced")).isFalse();
+    }
+
+    @Test
+    void headAndGetAreNotCoalesced() {
+        MockServerWebExchange head = MockServerWebExchange.from(MockServerHttpRequest.head("/products/1"));
+        MockServerWebExchange get = MockServerWebExchange.from(MockServerHttpRequest.get("/products/1"));
+
+        Mono<Void> heading = filter.filter(head, chain).cache();
+        heading.subscribe();
+        Mono<Void> getting = filter.filter(get, chain).cache();
+        getting.subscribe();
+        release.tryEmitEmpty();
+        heading.then(getting).block();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(get.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}");
+        assertThat(get.getResponse().getHeaders().containsKey("X-Coalesced")).isFalse();
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.filter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private final ResponseCacheStore store = new ResponseCacheStore(DataSize.ofMegabytes(1));
+    private final GatewayFilter filter = new ResponseCacheGatewayFilterFactory(store)
+            .apply(config -> config.setMaxEntrySize(DataSize.ofBytes(64)));
+    private final GatewayFilter itemFilter = new ResponseCacheGatewayFilterFactory(store)
+            .apply(config -> config.setItemPath("/products/{id:[0-9]+}"));
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    @Test
+    void smallResponseIsCached() {
+        assertThat(get("/products/1", chunks(MediaType.APPLICATION_JSON, "{\"id\":", "1}"))).isEqualTo("{\"id\":1}");
+
+        MockServerWebExchange second = exchange("/products/1");
+        filter.filter(second, chunks(MediaType.APPLICATION_JSON, "{\"id\":", "1}")).block();
+
+        assertThat(second.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(second.getResponse().getBodyAsString().block()).isEqualTo("{\"id\":1}");
+        assertThat(upstreamCalls).hasValue(1);
+    }
+
+    // Oltre il limite il body arriva intero al client, senza ETag e senza entry in cache
+    @Test
+    void oversizedResponseStreamsThroughWithoutBeingCached() {
+        String part = "x".repeat(40);
+        MockServerWebExchange exchange = exchange("/products");
+        filter.filter(exchange, chunks(MediaType.APPLICATION_JSON, part, part, part)).block();
+
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo(part.repeat(3));
+        assertThat(exchange.getResponse().getHeaders().getETag()).isNull();
+        assertThat(store.get("", "/products")).isNull();
+    }
+
+    @Test
+    void streamingExportIsNeverCached() {
+        assertThat(get("/products/export", chunks(MediaType.APPLICATION_NDJSON, "{\"id\":1}\n"))).isEqualTo("{\"id\":1}\n");
+        assertThat(store.get("", "/products/export")).isNull();
+    }
+
+    // La modifica di un prodotto invalida il prodotto e le liste che possono contenerlo, non gli altri prodotti
+    @Test
+    void itemWriteInvalidatesItemAndLists() {
+        cacheProductPaths();
+
+        write(HttpMethod.PUT, "/products/1");
+
+        assertThat(store.get("", "/products/1")).isNull();
+        assertThat(store.get("", "/products/1?fields=name")).isNull();
+        assertThat(store.get("", "/products")).isNull();
+        assertThat(store.get("", "/products/page?size=20")).isNull();
+        assertThat(store.get("", "/products/category/casa")).isNull();
+        assertThat(store.get("", "/products/2")).isNotNull();
+    }
+
+    @Test
+    void creationInvalidatesOnlyLists() {
+        cacheProductPaths();
+
+        write(HttpMethod.POST, "/products");
+
+        assertThat(store.get("", "/products")).isNull();
+        assertThat(store.get("", "/products/page?size=20")).isNull();
+        assertThat(store.get("", "/products/1")).isNotNull();
+        assertThat(store.get("", "/products/2")).isNotNull();
+    }
+
+    // Le giacenze toccate da una prenotazione sono nel body, non nel path: si svuota la route
+    @Test
+    void actionWriteInvalidatesWholeRoute() {
+        cacheProductPaths();
+
+        write(HttpMethod.POST, "/products/stock/reserve");
+
+        assertThat(store.get("", "/products/1")).isNull();
+        assertThat(store.get("", "/products/2")).isNull();
+        assertThat(store.get("", "/products")).isNull();
+    }
+
+    private void cacheProductPaths() {
+        for (String path : List.of("/products/1", "/products/1?fields=name", "/products/2", "/products",
+                "/products/page?size=20", "/products/category/casa")) {
+            itemFilter.filter(exchange(path), chunks(MediaType.APPLICATION_JSON, "[]")).block();
+            assertThat(store.get("", path)).isNotNull();
+        }
+    }
+
+    private void write(HttpMethod method, String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(method, path));
+        itemFilter.filter(exchange, chunks(MediaType.APPLICATION_JSON, "{}")).block();
+    }
+
+    private String get(String path, GatewayFilterChain chain) {
+        MockServerWebExchange exchange = exchange(path);
+        filter.filter(exchange, chain).block();
+        return exchange.getResponse().getBodyAsString().block();
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path));
+    }
+
+    private GatewayFilterChain chunks(MediaType contentType, String... chunks) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().setContentType(contentType);
+            return exchange.getResponse().writeWith(Flux.fromArray(chunks)
+                    .map(chunk -> (DataBuffer) exchange.getResponse().bufferFactory()
+                            .wrap(chunk.getBytes(StandardCharsets.UTF_8))));
+        };
+    }
+}
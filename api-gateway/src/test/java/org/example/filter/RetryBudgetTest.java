@@ -0,0 +1,47 @@
+package org.example.filter;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryBudgetTest {
+
+    // Senza ricarica nel tempo il budget iniziale si esaurisce e torna disponibile solo con le richieste riuscite
+    @Test
+    void retriesStopWhenBudgetIsSpentAndResumeWithSuccesses() {
+        RetryBudget budget = new RetryBudget(0.1, 0, 3);
+
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+
+        for (int i = 0; i < 9; i++) {
+            budget.onSuccess();
+        }
+        assertThat(budget.tryWithdraw()).isFalse();
+        budget.onSuccess();
+        assertThat(budget.tryWithdraw()).isTrue();
+        assertThat(budget.tryWithdraw()).isFalse();
+    }
+
+    @Test
+    void successesNeverGrowBudgetPastItsMaximum() {
+        RetryBudget budget = new RetryBudget(1, 0, 2);
+        for (int i = 0; i < 100; i++) {
+            budget.onSuccess();
+        }
+
+        assertThat(budget.available()).isEqualTo(2.0);
+    }
+
+    @Test
+    void backoffIsJitteredBelowExponentialCeiling() {
+        for (int retry = 1; retry <= 10; retry++) {
+            Duration backoff = RetryBudget.backoff(Duration.ofMillis(50), Duration.ofMillis(500), retry);
+            assertThat(backoff).isBetween(Duration.ZERO, Duration.ofMillis(Math.min(500, 50L << (retry - 1))));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+class InFlightRequestsGlobalFilterTest {
+
+    private final InstanceStatsRegistry statsRegistry = new InstanceStatsRegistry();
+    private final ServiceInstance instance = new DefaultServiceInstance("slow", "product-service", "10.0.0.1", 8080, false);
+
+    // Una route annullata (timeout, hedge perdente) non riceve onComplete dal lifecycle ma libera comunque l'istanza
+    @Test
+    void cancelledRoutesDoNotLeakOutstandingRequests() {
+        InFlightRequestsGlobalFilter filter = new InFlightRequestsGlobalFilter(statsRegistry);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products"));
+        exchange.getAttributes().put(GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+        GatewayFilterChain neverAnswers = e -> Mono.never();
+
+        Disposable request = filter.filter(exchange, neverAnswers).subscribe();
+        assertThat(statsRegistry.stats(instance).snapshot().get("outstanding")).isEqualTo(1);
+        request.dispose();
+
+        assertThat(statsRegistry.stats(instance).snapshot().get("outstanding")).isEqualTo(0);
+    }
+}
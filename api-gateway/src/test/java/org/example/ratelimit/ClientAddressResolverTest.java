@@ -0,0 +1,42 @@
+package org.example.ratelimit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientAddressResolverTest {
+
+    // Senza proxy fidati un X-Forwarded-For inventato non cambia la chiave
+    @Test
+    void forwardedForIsIgnoredFromUntrustedClients() {
+        ClientAddressResolver resolver = new ClientAddressResolver(List.of("10.0.0.0/8"));
+
+        assertThat(resolver.resolve(request("203.0.113.7", "198.51.100.1"))).isEqualTo("203.0.113.7");
+        assertThat(new ClientAddressResolver(List.of()).resolve(request("203.0.113.7", "198.51.100.1")))
+                .isEqualTo("203.0.113.7");
+    }
+
+    // Dietro i proxy fidati vale l'ultimo indirizzo aggiunto da un proxy, non quello scritto dal client a sinistra
+    @Test
+    void rightmostUntrustedHopIsTheClient() {
+        ClientAddressResolver resolver = new ClientAddressResolver(List.of("10.0.0.0/8", "192.168.1.5"));
+
+        assertThat(resolver.resolve(request("10.1.2.3", "1.2.3.4, 203.0.113.7, 192.168.1.5")))
+                .isEqualTo("203.0.113.7");
+        assertThat(resolver.resolve(request("10.1.2.3", "not-an-address"))).isEqualTo("10.1.2.3");
+        assertThat(resolver.resolve(request("10.1.2.3", null))).isEqualTo("10.1.2.3");
+    }
+
+    private static MockServerHttpRequest request(String remote, String forwardedFor) {
+        MockServerHttpRequest.BaseBuilder<?> builder = MockServerHttpRequest.get("/api/products")
+                .remoteAddress(new InetSocketAddress(remote, 40000));
+        if (forwardedFor != null) {
+            builder.header("X-Forwarded-For", forwardedFor);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class InMemoryRateLimiterTest {
+
+    private static final String ROUTE = "product-service";
+
+    // Milioni di chiavi distinte e sempre attive: la memoria resta limitata a maxKeys bucket e le chiavi in più
+    // condividono il bucket di overflow, senza una scansione della tabella per ogni chiave nuova
+    @Test
+    void millionsOfKeysStayWithinMaxKeys() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxKeys(100_000);
+        // Un token ogni 1000 secondi: nessuna chiave torna inattiva durante il test
+        properties.getDefaults().setReplenishRate(0.001).setBurstCapacity(1_000_000);
+        InMemoryRateLimiter rateLimiter = new InMemoryRateLimiter(properties);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            for (int i = 0; i < 2_000_000; i++) {
+                rateLimiter.tryAcquire(ROUTE, "key-" + i, System.nanoTime());
+            }
+        });
+
+        // maxKeys chiavi più il bucket di overflow della route
+        assertThat(rateLimiter.statistics().get("trackedKeys")).isEqualTo(100_001);
+        assertThat(rateLimiter.statistics().get("evictedKeys")).isEqualTo(0L);
+    }
+
+    // Le chiavi inattive liberano spazio: la richiesta che trova la tabella piena usa il bucket di overflow e la
+    // pulizia gira in background; dopo, le chiavi nuove tornano ad avere un bucket proprio
+    @Test
+    void idleKeysAreEvictedInBackgroundWhenTableIsFull() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxKeys(1_000);
+        properties.getDefaults().setReplenishRate(1_000).setBurstCapacity(10);
+        InMemoryRateLimiter rateLimiter = new InMemoryRateLimiter(properties);
+
+        long now = System.nanoTime();
+        for (int i = 0; i < 1_000; i++) {
+            rateLimiter.tryAcquire(ROUTE, "old-" + i, now);
+        }
+        long later = now + TimeUnit.SECONDS.toNanos(2);
+        rateLimiter.tryAcquire(ROUTE, "new", later);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Long.valueOf(1_000L).equals(rateLimiter.statistics().get("evictedKeys"))
+                && System.nanoTime() - deadline < 0) {
+            Thread.onSpinWait();
+        }
+        assertThat(rateLimiter.statistics().get("evictedKeys")).isEqualTo(1_000L);
+
+        rateLimiter.tryAcquire(ROUTE, "newer", later);
+        // Il bucket di overflow usato da "new" più quello di "newer"
+        assertThat(rateLimiter.statistics().get("trackedKeys")).isEqualTo(2);
+    }
+
+    @Test
+    void scheduledSweepEvictsIdleKeys() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.getDefaults().setReplenishRate(1_000).setBurstCapacity(10);
+        InMemoryRateLimiter rateLimiter = new InMemoryRateLimiter(properties);
+
+        long past = System.nanoTime() - TimeUnit.SECONDS.toNanos(1);
+        rateLimiter.tryAcquire(ROUTE, "idle", past);
+        rateLimiter.tryAcquire(ROUTE, "active", System.nanoTime() + TimeUnit.SECONDS.toNanos(60));
+        rateLimiter.sweepIdleKeys();
+
+        assertThat(rateLimiter.statistics().get("evictedKeys")).isEqualTo(1L);
+        assertThat(rateLimiter.statistics().get("trackedKeys")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Entry point del jar: stesse opzioni di JMH, ma risultati in JSON per default (jmh-result.json, o -rff <file>)
+// così da poter confrontare le esecuzioni tra un commit e l'altro
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "-rf");
+            options.add(1, "json");
+        }
+        Main.main(options.toArray(new String[0]));
+    }
+}
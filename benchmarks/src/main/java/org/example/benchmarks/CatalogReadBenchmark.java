@@ -0,0 +1,126 @@
+package org.example.benchmarks;
+
+import org.example.catalog.CompactCatalog;
+import org.example.dto.ProductResponse;
+import org.example.inventory.StockLedger;
+import org.example.model.Product;
+import org.example.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Lettura di un prodotto per id su un catalogo sintetico: entità già in memoria convertita in DTO (il percorso JPA
+// senza la query e il persistence context) contro ProductService.getProductById servito dal catalogo compatto,
+// su heap e off-heap. All'avvio stampa la memoria occupata dalle entità e dal catalogo.
+// Con "-prof gc" il valore gc.alloc.rate.norm riporta i byte allocati per lettura.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class CatalogReadBenchmark {
+
+    private static final MethodHandle MAP_TO_PRODUCT_RESPONSE =
+            Fixtures.privateMethod(ProductService.class, "mapToProductResponse", Product.class);
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"100000", "1000000"})
+    private int products;
+
+    @Param({"false", "true"})
+    private boolean offHeap;
+
+    private Map<Long, Product> entities;
+    private ProductService productService;
+    private long[] ids;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+
+        long heapBefore = usedHeap();
+        entities = new HashMap<>(products * 2);
+        for (long id = 1; id <= products; id++) {
+            entities.put(id, product(id, random));
+        }
+        long entitiesHeap = usedHeap() - heapBefore;
+
+        heapBefore = usedHeap();
+        CompactCatalog catalog = new CompactCatalog(true, offHeap, DataSize.ofMegabytes(16));
+        for (Product product : entities.values()) {
+            catalog.put(ProductResponse.builder()
+                    .id(product.getId())
+                    .name(product.getName())
+                    .description(product.getDescription())
+                    .price(product.getPrice())
+                    .stock(product.getStock())
+                    .category(product.getCategory())
+                    .build());
+        }
+        long catalogHeap = usedHeap() - heapBefore;
+
+        // Ledger vuoto in entrambi i percorsi: la giacenza è quella memorizzata
+        productService = new ProductService(null, null, new StockLedger(), null, null, null, catalog, null);
+
+        ids = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            ids[i] = 1 + random.nextInt(products);
+        }
+
+        System.out.printf("%nCatalog with %d products (off-heap %s): %s%n"
+                        + "measured heap delta: entities %.1f MB, catalog %.1f MB%n",
+                products, offHeap, catalog.statistics(),
+                entitiesHeap / (1024.0 * 1024.0), catalogHeap / (1024.0 * 1024.0));
+    }
+
+    @Benchmark
+    public ProductResponse entityToResponse() throws Throwable {
+        return (ProductResponse) MAP_TO_PRODUCT_RESPONSE.invoke(productService, entities.get(nextId()));
+    }
+
+    @Benchmark
+    public ProductResponse catalogRead() {
+        return productService.getProductById(nextId());
+    }
+
+    private long nextId() {
+        return ids[next++ & (LOOKUPS - 1)];
+    }
+
+    private static Product product(long id, Random random) {
+        return Product.builder()
+                .id(id)
+                .name("Product " + id)
+                .description("Description of product " + id + " with some details " + random.nextInt(1_000_000))
+                .price(BigDecimal.valueOf(100 + random.nextInt(100_000), 2))
+                .stock(random.nextInt(1_000))
+                .category("category-" + random.nextInt(50))
+                .build();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
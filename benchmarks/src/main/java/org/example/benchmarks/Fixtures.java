@@ -0,0 +1,103 @@
+package org.example.benchmarks;
+
+import org.example.dto.OrderItemRequest;
+import org.example.dto.OrderRequest;
+import org.example.dto.ProductResponse;
+import org.example.model.Order;
+import org.example.model.OrderItem;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Dati di esempio condivisi dai benchmark e accesso ai metodi privati dei servizi senza cambiarne la visibilità
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    static MethodHandle privateMethod(Class<?> owner, String name, Class<?>... parameterTypes) {
+        try {
+            Method method = owner.getDeclaredMethod(name, parameterTypes);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot access " + owner.getSimpleName() + "." + name, e);
+        }
+    }
+
+    static OrderRequest orderRequest(int items) {
+        List<OrderItemRequest> orderItems = new ArrayList<>(items);
+        for (long i = 1; i <= items; i++) {
+            orderItems.add(OrderItemRequest.builder()
+                    .productId(i)
+                    .quantity((int) (i % 5) + 1)
+                    .build());
+        }
+        return OrderRequest.builder()
+                .customerName("Mario Rossi")
+                .customerEmail("mario.rossi@example.com")
+                .shippingAddress("Via Roma 1, 00100 Roma")
+                .orderItems(orderItems)
+                .build();
+    }
+
+    static Map<Long, ProductResponse> products(int count) {
+        Map<Long, ProductResponse> products = new HashMap<>(count * 2);
+        for (long id = 1; id <= count; id++) {
+            products.put(id, product(id));
+        }
+        return products;
+    }
+
+    static ProductResponse product(long id) {
+        return ProductResponse.builder()
+                .id(id)
+                .name("Product " + id)
+                .description("Description of product " + id)
+                .price(BigDecimal.valueOf(1999 + id * 37, 2))
+                .stock(100)
+                .category("category-" + id % 10)
+                .build();
+    }
+
+    // Ordine già salvato (id assegnati), come lo restituisce il repository
+    static Order order(int items) {
+        Order order = Order.builder()
+                .id(1L)
+                .orderNumber("2f1c9a52-8d4e-4c43-9d0a-5b8a3f6f2e10")
+                .orderDate(LocalDateTime.of(2024, 3, 1, 10, 30))
+                .customerName("Mario Rossi")
+                .customerEmail("mario.rossi@example.com")
+                .shippingAddress("Via Roma 1, 00100 Roma")
+                .status(Order.OrderStatus.CREATED)
+                .build();
+
+        List<OrderItem> orderItems = new ArrayList<>(items);
+        BigDecimal total = BigDecimal.ZERO;
+        for (long i = 1; i <= items; i++) {
+            ProductResponse product = product(i);
+            int quantity = (int) (i % 5) + 1;
+            BigDecimal subtotal = product.getPrice().multiply(BigDecimal.valueOf(quantity));
+            orderItems.add(OrderItem.builder()
+                    .id(i)
+                    .productId(product.getId())
+                    .productName(product.getName())
+                    .price(product.getPrice())
+                    .quantity(quantity)
+                    .subtotal(subtotal)
+                    .order(order)
+                    .build());
+            total = total.add(subtotal);
+        }
+        order.setOrderItems(orderItems);
+        order.setTotalAmount(total);
+        return order;
+    }
+}
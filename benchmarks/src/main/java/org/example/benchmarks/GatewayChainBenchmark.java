@@ -0,0 +1,253 @@
+package org.example.benchmarks;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.example.GatewayConfig;
+import org.example.filter.AdaptiveConcurrencyGatewayFilterFactory;
+import org.example.filter.BudgetedRetryGatewayFilterFactory;
+import org.example.filter.ConcurrencyLimiter;
+import org.example.filter.HedgingGatewayFilterFactory;
+import org.example.filter.RequestCoalescer;
+import org.example.filter.RequestCoalescingGatewayFilterFactory;
+import org.example.filter.RequestHedger;
+import org.example.filter.RequestRetrier;
+import org.example.filter.ResponseCacheGatewayFilterFactory;
+import org.example.filter.ResponseCacheStore;
+import org.example.filter.StaleSnapshotGatewayFilterFactory;
+import org.example.filter.StaleSnapshotStore;
+import org.example.ratelimit.InMemoryRateLimiter;
+import org.example.ratelimit.RateLimitProperties;
+import org.example.ratelimit.RateLimiterConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigurationProperties;
+import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.RequestRateLimiterGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.factory.StripPrefixGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+// Catena dei filtri delle due route di GatewayConfig (stessa configurazione e stesso ordinamento) fino a un backend
+// stub che risponde subito: misura il costo che il gateway aggiunge a ogni richiesta, senza rete né load balancer.
+// Il circuit breaker è quello di Resilience4J con la configurazione di default di GatewayConfig, senza fallback.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GatewayChainBenchmark {
+
+    private static final int WRITE_RESPONSE_ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+
+    private static final String PRODUCT_JSON = "{\"id\":1,\"name\":\"Product 1\",\"description\":\"Description of product 1\","
+            + "\"price\":20.36,\"stock\":100,\"category\":\"category-1\"}";
+    private static final String ORDER_JSON = "{\"id\":1,\"orderNumber\":\"2f1c9a52-8d4e-4c43-9d0a-5b8a3f6f2e10\","
+            + "\"orderDate\":\"2024-03-01T10:30:00\",\"customerName\":\"Mario Rossi\","
+            + "\"customerEmail\":\"mario.rossi@example.com\",\"shippingAddress\":\"Via Roma 1, 00100 Roma\","
+            + "\"totalAmount\":40.72,\"status\":\"CREATED\",\"orderItems\":[{\"id\":1,\"productId\":1,"
+            + "\"productName\":\"Product 1\",\"price\":20.36,\"quantity\":2,\"subtotal\":40.72}]}";
+
+    private Route productRoute;
+    private Route orderRoute;
+    private List<GatewayFilter> productFilters;
+    private List<GatewayFilter> orderFilters;
+
+    @Setup
+    public void setup() {
+        // Limite di richieste irraggiungibile: il rate limiter viene eseguito ma non rifiuta mai
+        RateLimitProperties rateLimits = new RateLimitProperties();
+        rateLimits.getDefaults()
+                .setReplenishRate(1_000_000_000)
+                .setBurstCapacity(1_000_000_000);
+        InMemoryRateLimiter rateLimiter = new InMemoryRateLimiter(rateLimits);
+        KeyResolver clientIpKeyResolver = new RateLimiterConfig().clientIpKeyResolver(rateLimits);
+        RequestRateLimiterGatewayFilterFactory requestRateLimiter =
+                new RequestRateLimiterGatewayFilterFactory(rateLimiter, clientIpKeyResolver);
+        GatewayFilter rateLimit = new OrderedGatewayFilter(requestRateLimiter.apply(config -> config
+                .setRateLimiter(rateLimiter)
+                .setKeyResolver(clientIpKeyResolver)), WRITE_RESPONSE_ORDER);
+
+        ReactiveResilience4JCircuitBreakerFactory circuitBreakerFactory = new ReactiveResilience4JCircuitBreakerFactory(
+                CircuitBreakerRegistry.ofDefaults(), TimeLimiterRegistry.ofDefaults(),
+                new Resilience4JConfigurationProperties());
+        new GatewayConfig().defaultCustomizer().customize(circuitBreakerFactory);
+
+        StripPrefixGatewayFilterFactory stripPrefix = new StripPrefixGatewayFilterFactory();
+        ResponseCacheGatewayFilterFactory responseCache =
+                new ResponseCacheGatewayFilterFactory(new ResponseCacheStore(DataSize.ofMegabytes(64)));
+        StaleSnapshotGatewayFilterFactory staleSnapshots =
+                new StaleSnapshotGatewayFilterFactory(new StaleSnapshotStore(DataSize.ofMegabytes(32), Duration.ofHours(1)));
+        RequestCoalescingGatewayFilterFactory requestCoalescing =
+                new RequestCoalescingGatewayFilterFactory(new RequestCoalescer());
+        HedgingGatewayFilterFactory hedging = new HedgingGatewayFilterFactory(new RequestHedger());
+        BudgetedRetryGatewayFilterFactory retry =
+                new BudgetedRetryGatewayFilterFactory(new RequestRetrier(circuitBreakerFactory));
+        AdaptiveConcurrencyGatewayFilterFactory adaptiveConcurrency =
+                new AdaptiveConcurrencyGatewayFilterFactory(new ConcurrencyLimiter());
+
+        productRoute = route("product-service", "lb://PRODUCT-SERVICE");
+        productFilters = chain(stubBackend(PRODUCT_JSON),
+                stripPrefix.apply(config -> config.setParts(1)),
+                rateLimit,
+                responseCache.apply(config -> config
+                        .setTtl(Duration.ofSeconds(30))),
+                staleSnapshots.apply(config -> config
+                        .setMaxEntrySize(DataSize.ofKilobytes(512))),
+                requestCoalescing.apply(config -> config
+                        .setMaxWaiters(200)
+                        .setTimeout(Duration.ofSeconds(2))),
+                hedging.apply(config -> config
+                        .setPaths(List.of("/api/products/{id:[0-9]+}", "/api/products/batch",
+                                "/api/products/page", "/api/products/search"))
+                        .setPercentile(0.95)
+                        .setBudgetPercent(10)),
+                circuitBreaker(circuitBreakerFactory, "productServiceCircuitBreaker"),
+                retry.apply(config -> config
+                        .setMaxAttempts(3)
+                        .setCircuitBreakerName("productServiceCircuitBreaker")),
+                adaptiveConcurrency.apply(config -> config
+                        .setInitialLimit(20)
+                        .setMaxLimit(500)));
+
+        orderRoute = route("order-service", "lb://ORDER-SERVICE");
+        orderFilters = chain(stubBackend(ORDER_JSON),
+                stripPrefix.apply(config -> config.setParts(1)),
+                rateLimit,
+                staleSnapshots.apply(config -> config
+                        .setMaxEntrySize(DataSize.ofKilobytes(512))),
+                circuitBreaker(circuitBreakerFactory, "orderServiceCircuitBreaker"),
+                retry.apply(config -> config
+                        .setMaxAttempts(3)
+                        .setCircuitBreakerName("orderServiceCircuitBreaker")),
+                adaptiveConcurrency.apply(config -> config
+                        .setInitialLimit(20)
+                        .setMaxLimit(200)));
+
+        // Una catena configurata male (429, 503 dal limiter, ...) falserebbe i risultati
+        verify(productCacheHit());
+        verify(productCacheBypass());
+        verify(orderByNumber());
+    }
+
+    // GET ripetuta della stessa risorsa: dopo la prima richiesta risponde la cache del gateway
+    @Benchmark
+    public ServerHttpResponse productCacheHit() {
+        return execute(productRoute, productFilters, MockServerHttpRequest.get("/api/products/1"));
+    }
+
+    // Cache-Control: no-cache salta la cache delle risposte: si attraversa tutta la catena fino al backend
+    @Benchmark
+    public ServerHttpResponse productCacheBypass() {
+        return execute(productRoute, productFilters, MockServerHttpRequest.get("/api/products/1")
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Benchmark
+    public ServerHttpResponse orderByNumber() {
+        return execute(orderRoute, orderFilters,
+                MockServerHttpRequest.get("/api/orders/number/2f1c9a52-8d4e-4c43-9d0a-5b8a3f6f2e10"));
+    }
+
+    private static ServerHttpResponse execute(Route route, List<GatewayFilter> filters,
+                                              MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(GATEWAY_ROUTE_ATTR, route);
+        new Chain(filters, 0).filter(exchange).block();
+        return exchange.getResponse();
+    }
+
+    private static void verify(ServerHttpResponse response) {
+        if (response.getStatusCode() == null || response.getStatusCode().value() != HttpStatus.OK.value()) {
+            throw new IllegalStateException("Unexpected gateway response " + response.getStatusCode()
+                    + ": " + ((MockServerHttpResponse) response).getBodyAsString().block());
+        }
+    }
+
+    private static Route route(String id, String uri) {
+        return Route.async()
+                .id(id)
+                .uri(uri)
+                .predicate(exchange -> true)
+                .build();
+    }
+
+    // Come il DSL delle route: i filtri senza ordine esplicito hanno ordine 0 e mantengono l'ordine di dichiarazione
+    private static List<GatewayFilter> chain(GatewayFilter backend, GatewayFilter... filters) {
+        List<GatewayFilter> ordered = new ArrayList<>(filters.length + 1);
+        for (GatewayFilter filter : filters) {
+            ordered.add(filter instanceof Ordered ? filter : new OrderedGatewayFilter(filter, 0));
+        }
+        AnnotationAwareOrderComparator.sort(ordered);
+        ordered.add(backend);
+        return ordered;
+    }
+
+    private static GatewayFilter circuitBreaker(ReactiveResilience4JCircuitBreakerFactory factory, String name) {
+        ReactiveCircuitBreaker circuitBreaker = factory.create(name);
+        return (exchange, chain) -> circuitBreaker.run(chain.filter(exchange));
+    }
+
+    // Sostituisce NettyRoutingFilter e NettyWriteResponseFilter: risposta JSON fissa scritta subito
+    private static GatewayFilter stubBackend(String json) {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        return (exchange, chain) -> {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+            response.getHeaders().setContentLength(body.length);
+            return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+        };
+    }
+
+    private static final class Chain implements GatewayFilterChain {
+
+        private final List<GatewayFilter> filters;
+        private final int index;
+
+        Chain(List<GatewayFilter> filters, int index) {
+            this.filters = filters;
+            this.index = index;
+        }
+
+        @Override
+        public Mono<Void> filter(ServerWebExchange exchange) {
+            return index < filters.size()
+                    ? filters.get(index).filter(exchange, new Chain(filters, index + 1))
+                    : Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.dto.OrderRequest;
+import org.example.dto.OrderResponse;
+import org.example.model.Order;
+import org.example.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+// (De)serializzazione Jackson del body di POST /orders e delle risposte degli ordini, anche con carrelli molto grandi
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private static final MethodHandle MAP_TO_ORDER_RESPONSE =
+            Fixtures.privateMethod(OrderService.class, "mapToOrderResponse", Order.class);
+
+    @Param({"10", "1000", "10000"})
+    private int items;
+
+    private ObjectMapper objectMapper;
+    private OrderRequest orderRequest;
+    private OrderResponse orderResponse;
+    private byte[] orderRequestJson;
+    private byte[] orderResponseJson;
+
+    @Setup
+    public void setup() throws Throwable {
+        // Stessa configurazione dell'ObjectMapper di Spring Boot (moduli java.time, date ISO-8601)
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        orderRequest = Fixtures.orderRequest(items);
+        orderResponse = (OrderResponse) MAP_TO_ORDER_RESPONSE.invoke(
+                new OrderService(null, null, null, null, null, null, null, null, null), Fixtures.order(items));
+        orderRequestJson = objectMapper.writeValueAsBytes(orderRequest);
+        orderResponseJson = objectMapper.writeValueAsBytes(orderResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeOrderRequest() throws Exception {
+        return objectMapper.writeValueAsBytes(orderRequest);
+    }
+
+    @Benchmark
+    public OrderRequest deserializeOrderRequest() throws Exception {
+        return objectMapper.readValue(orderRequestJson, OrderRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeOrderResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(orderResponse);
+    }
+
+    @Benchmark
+    public OrderResponse deserializeOrderResponse() throws Exception {
+        return objectMapper.readValue(orderResponseJson, OrderResponse.class);
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import org.example.dto.OrderResponse;
+import org.example.dto.ProductResponse;
+import org.example.inventory.StockLedger;
+import org.example.model.Order;
+import org.example.model.Product;
+import org.example.service.OrderService;
+import org.example.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Conversione entità -> DTO eseguita su ogni lettura: OrderService.mapToOrderResponse e ProductService.mapToProductResponse
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private static final MethodHandle MAP_TO_ORDER_RESPONSE =
+            Fixtures.privateMethod(OrderService.class, "mapToOrderResponse", Order.class);
+    private static final MethodHandle MAP_TO_PRODUCT_RESPONSE =
+            Fixtures.privateMethod(ProductService.class, "mapToProductResponse", Product.class);
+
+    @Param({"1", "10", "100"})
+    private int items;
+
+    private OrderService orderService;
+    private ProductService productService;
+    private Order order;
+    private Product product;
+
+    @Setup
+    public void setup() {
+        // La conversione non usa repository, client né EntityManager
+        orderService = new OrderService(null, null, null, null, null, null, null, null, null);
+        order = Fixtures.order(items);
+
+        // La giacenza viene letta dal ledger, come dopo il primo accesso al prodotto
+        StockLedger stockLedger = new StockLedger();
+        stockLedger.load(1L, 100);
+        productService = new ProductService(null, null, stockLedger, null, null, null, null, null);
+        product = Product.builder()
+                .id(1L)
+                .name("Product 1")
+                .description("Description of product 1")
+                .price(new BigDecimal("20.36"))
+                .stock(100)
+                .category("category-1")
+                .build();
+    }
+
+    @Benchmark
+    public OrderResponse mapToOrderResponse() throws Throwable {
+        return (OrderResponse) MAP_TO_ORDER_RESPONSE.invoke(orderService, order);
+    }
+
+    @Benchmark
+    public ProductResponse mapToProductResponse() throws Throwable {
+        return (ProductResponse) MAP_TO_PRODUCT_RESPONSE.invoke(productService, product);
+    }
+}
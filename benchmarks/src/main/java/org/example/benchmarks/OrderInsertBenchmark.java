@@ -0,0 +1,110 @@
+package org.example.benchmarks;
+
+import org.example.model.Order;
+import org.example.model.OrderItem;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Scrittura di un blocco di ordini con le entità dell'order-service su H2 in memoria: batchSize=1 riproduce un
+// INSERT per riga come con gli id IDENTITY (che disattivavano il batching), batchSize=50 è la configurazione attuale.
+// H2 in memoria non ha latenza di rete: il guadagno su un database remoto è maggiore, circa un round trip per riga.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderInsertBenchmark {
+
+    private static final int ORDERS_PER_TRANSACTION = 50;
+
+    @Param({"1", "50"})
+    private int batchSize;
+
+    @Param({"3"})
+    private int itemsPerOrder;
+
+    private SessionFactory sessionFactory;
+    private long next;
+
+    @Setup
+    public void setup() {
+        sessionFactory = new Configuration()
+                .addAnnotatedClass(Order.class)
+                .addAnnotatedClass(OrderItem.class)
+                .setProperty(AvailableSettings.URL, "jdbc:h2:mem:orders-" + batchSize + ";DB_CLOSE_DELAY=-1")
+                .setProperty(AvailableSettings.USER, "sa")
+                // Nomi delle colonne come con Spring Boot (gli indici di Order usano order_number, customer_email)
+                .setPhysicalNamingStrategy(new CamelCaseToUnderscoresNamingStrategy())
+                .setProperty(AvailableSettings.HBM2DDL_AUTO, "create")
+                .setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, Integer.toString(batchSize))
+                .setProperty(AvailableSettings.ORDER_INSERTS, "true")
+                .setProperty(AvailableSettings.ORDER_UPDATES, "true")
+                .buildSessionFactory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    // Risultato in ordini al millisecondo
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_TRANSACTION)
+    public void insertOrders() {
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            for (int i = 0; i < ORDERS_PER_TRANSACTION; i++) {
+                session.persist(order());
+            }
+            session.getTransaction().commit();
+        }
+    }
+
+    private Order order() {
+        Order order = Order.builder()
+                .orderNumber("order-" + next++)
+                .orderDate(LocalDateTime.now())
+                .customerName("Mario Rossi")
+                .customerEmail("mario.rossi@example.com")
+                .shippingAddress("Via Roma 1, Milano")
+                .totalAmount(BigDecimal.TEN)
+                .status(Order.OrderStatus.CREATED)
+                .build();
+        List<OrderItem> items = new ArrayList<>(itemsPerOrder);
+        for (long productId = 1; productId <= itemsPerOrder; productId++) {
+            items.add(OrderItem.builder()
+                    .productId(productId)
+                    .productName("Product " + productId)
+                    .price(BigDecimal.ONE)
+                    .quantity(1)
+                    .subtotal(BigDecimal.ONE)
+                    .order(order)
+                    .build());
+        }
+        order.setOrderItems(items);
+        return order;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.benchmarks;
+
+import org.example.dto.OrderRequest;
+import org.example.dto.ProductResponse;
+import org.example.model.Order;
+import org.example.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Parte CPU di createOrder: costruzione degli item e calcolo di subtotali e totale in BigDecimal (OrderService.buildOrder)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderTotalBenchmark {
+
+    private static final MethodHandle BUILD_ORDER =
+            Fixtures.privateMethod(OrderService.class, "buildOrder", String.class, OrderRequest.class, Map.class);
+
+    @Param({"1", "10", "100", "1000"})
+    private int items;
+
+    private OrderService orderService;
+    private OrderRequest orderRequest;
+    private Map<Long, ProductResponse> products;
+
+    @Setup
+    public void setup() {
+        orderService = new OrderService(null, null, null, null, null, null, null, null, null);
+        orderRequest = Fixtures.orderRequest(items);
+        products = Fixtures.products(items);
+    }
+
+    @Benchmark
+    public Order buildOrder() throws Throwable {
+        return (Order) BUILD_ORDER.invoke(orderService, "2f1c9a52-8d4e-4c43-9d0a-5b8a3f6f2e10", orderRequest, products);
+    }
+}
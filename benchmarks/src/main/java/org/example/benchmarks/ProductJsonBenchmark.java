@@ -0,0 +1,137 @@
+package org.example.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.catalog.CompactCatalog;
+import org.example.catalog.ProductJsonCache;
+import org.example.dto.ProductResponse;
+import org.example.inventory.StockLedger;
+import org.example.model.Product;
+import org.example.service.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Corpo della risposta di GET /products/{id} e GET /products/category/{category}: lettura dal catalogo compatto
+// e serializzazione Jackson (il percorso attuale del controller) contro il JSON già serializzato di ProductJsonCache.
+// Metà dei prodotti ha la giacenza nel ledger, come dopo alcune prenotazioni. Con "-prof gc" il valore
+// gc.alloc.rate.norm riporta i byte allocati per risposta.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductJsonBenchmark {
+
+    private static final String CATEGORY = "category-1";
+    private static final int LOOKUPS = 1 << 12;
+
+    @Param({"100"})
+    private int categorySize;
+
+    private ObjectMapper objectMapper;
+    private ProductService productService;
+    private ByteArrayOutputStream out;
+    private List<Long> categoryIds;
+    private long[] ids;
+    private int next;
+
+    @Setup
+    public void setup() {
+        // Stessa configurazione dell'ObjectMapper di Spring Boot
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        StockLedger stockLedger = new StockLedger();
+        CompactCatalog catalog = new CompactCatalog(true, false, DataSize.ofMegabytes(16));
+        ProductJsonCache jsonCache = new ProductJsonCache(true, 10_000, 1_000, Duration.ofMinutes(1), objectMapper, stockLedger);
+        List<Product> category = new ArrayList<>(categorySize);
+        for (long id = 1; id <= LOOKUPS; id++) {
+            Product product = Product.builder()
+                    .id(id)
+                    .name("Product " + id)
+                    .description("Description of product " + id)
+                    .price(BigDecimal.valueOf(1000 + id, 2))
+                    .stock(100)
+                    .category(id <= categorySize ? CATEGORY : "category-2")
+                    .version(0L)
+                    .build();
+            if (id % 2 == 0) {
+                stockLedger.load(id, 90);
+            }
+            catalog.put(ProductResponse.builder()
+                    .id(product.getId())
+                    .name(product.getName())
+                    .description(product.getDescription())
+                    .price(product.getPrice())
+                    .stock(product.getStock())
+                    .category(product.getCategory())
+                    .build());
+            jsonCache.put(product);
+            if (id <= categorySize) {
+                category.add(product);
+            }
+        }
+        jsonCache.putCategory(CATEGORY, jsonCache.categoryGeneration(), category);
+
+        productService = new ProductService(null, null, stockLedger, null, null, null, catalog, jsonCache);
+        categoryIds = category.stream().map(Product::getId).toList();
+        ids = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            ids[i] = i + 1;
+        }
+        out = new ByteArrayOutputStream(64 * 1024);
+    }
+
+    @Benchmark
+    public int productJackson() throws Exception {
+        out.reset();
+        objectMapper.writeValue(out, productService.getProductById(nextId()));
+        return out.size();
+    }
+
+    @Benchmark
+    public int productPreSerialized() throws Exception {
+        out.reset();
+        productService.getProductJson(nextId()).writeTo(out);
+        return out.size();
+    }
+
+    // La lista per categoria del percorso attuale viene dal database; qui gli stessi prodotti arrivano dal catalogo
+    @Benchmark
+    public int categoryJackson() throws Exception {
+        out.reset();
+        objectMapper.writeValue(out, productService.getProductsByIds(categoryIds));
+        return out.size();
+    }
+
+    @Benchmark
+    public int categoryPreSerialized() throws Exception {
+        out.reset();
+        productService.getProductsByCategoryJson(CATEGORY).writeTo(out);
+        return out.size();
+    }
+
+    private long nextId() {
+        return ids[next++ & (LOOKUPS - 1)];
+    }
+}
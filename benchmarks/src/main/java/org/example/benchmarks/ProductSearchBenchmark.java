@@ -0,0 +1,105 @@
+package org.example.benchmarks;
+
+import org.example.search.ProductSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Latenza delle query sull'indice di ricerca dei prodotti con un catalogo sintetico (nomi da un vocabolario ridotto,
+// descrizioni con distribuzione delle parole sbilanciata, 50 categorie). All'avvio stampa l'occupazione di memoria
+// dell'indice: stima dell'indice stesso e differenza di heap misurata dopo una GC.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ProductSearchBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final String[] ADJECTIVES = {"classic", "deluxe", "compact", "portable", "smart", "eco",
+            "premium", "ultra", "mini", "pro", "wireless", "vintage", "modern", "rugged", "silent"};
+    private static final String[] NOUNS = {"speaker", "lamp", "kettle", "backpack", "keyboard", "monitor",
+            "chair", "headphones", "blender", "camera", "watch", "jacket", "bottle", "router", "drill"};
+
+    @Param({"100000", "1000000"})
+    private int products;
+
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setup() {
+        long heapBefore = usedHeap();
+        index = new ProductSearchIndex();
+        Random random = new Random(42);
+        for (long id = 1; id <= products; id++) {
+            String name = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                    + " " + "m" + random.nextInt(5_000);
+            StringBuilder description = new StringBuilder();
+            for (int word = 0; word < 12; word++) {
+                // Parole con distribuzione sbilanciata: poche molto frequenti, molte rare
+                int rank = (int) Math.pow(20_000, random.nextDouble());
+                description.append("word").append(rank).append(' ');
+            }
+            index.index(id, name, description.toString(), "category-" + random.nextInt(50));
+        }
+        long heapAfter = usedHeap();
+
+        Map<String, Object> statistics = index.statistics();
+        System.out.printf("%nSearch index with %d products: %s, measured heap delta %.1f MB%n",
+                products, statistics, (heapAfter - heapBefore) / (1024.0 * 1024.0));
+    }
+
+    // Termine del nome presente in circa un prodotto su quindici
+    @Benchmark
+    public ProductSearchIndex.SearchResult commonTerm() {
+        return index.search("kettle", null, 0, PAGE_SIZE);
+    }
+
+    // Termine raro della descrizione
+    @Benchmark
+    public ProductSearchIndex.SearchResult rareTerm() {
+        return index.search("word19000", null, 0, PAGE_SIZE);
+    }
+
+    // Prefisso che si espande su molti termini (m1, m10, m100, ...)
+    @Benchmark
+    public ProductSearchIndex.SearchResult prefix() {
+        return index.search("m12", null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ProductSearchIndex.SearchResult twoTerms() {
+        return index.search("wireless speaker", null, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ProductSearchIndex.SearchResult termWithCategory() {
+        return index.search("portable", "category-7", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ProductSearchIndex.SearchResult deepPage() {
+        return index.search("smart", null, 2_000, PAGE_SIZE);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.benchmarks;
+
+import org.example.ratelimit.InMemoryRateLimiter;
+import org.example.ratelimit.RateLimitProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.util.concurrent.TimeUnit;
+
+// InMemoryRateLimiter con la tabella delle chiavi piena (maxKeys chiavi attive): richieste di chiavi già note
+// contro un flusso di chiavi sempre nuove, il caso di un client che varia l'indirizzo a ogni richiesta.
+// Le chiavi nuove finiscono nel bucket condiviso senza scandire la tabella a ogni richiesta.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final String ROUTE = "product-service";
+
+    @Param({"100000"})
+    private int maxKeys;
+
+    private InMemoryRateLimiter rateLimiter;
+    private String[] knownKeys;
+    private long next;
+
+    @Setup
+    public void setup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxKeys(maxKeys);
+        // Un token ogni 1000 secondi: le chiavi restano attive e la tabella resta piena per tutto il benchmark
+        properties.getDefaults()
+                .setReplenishRate(0.001)
+                .setBurstCapacity(1_000_000);
+        rateLimiter = new InMemoryRateLimiter(properties);
+        knownKeys = new String[maxKeys];
+        long now = System.nanoTime();
+        for (int i = 0; i < maxKeys; i++) {
+            knownKeys[i] = "10." + (i >> 16) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+            rateLimiter.tryAcquire(ROUTE, knownKeys[i], now);
+        }
+    }
+
+    @Benchmark
+    public RateLimiter.Response knownKey() {
+        return rateLimiter.tryAcquire(ROUTE, knownKeys[(int) (next++ % maxKeys)], System.nanoTime());
+    }
+
+    @Benchmark
+    public RateLimiter.Response newKey() {
+        return rateLimiter.tryAcquire(ROUTE, "key-" + next++, System.nanoTime());
+    }
+}
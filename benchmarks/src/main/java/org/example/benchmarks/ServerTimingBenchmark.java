@@ -0,0 +1,72 @@
+package org.example.benchmarks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.timing.ServerTiming;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Overhead della misura di un tratto con ServerTiming (budget: sotto il microsecondo), rispetto alla chiamata diretta:
+// "timed" fuori da una richiesta (solo la metrica), "timedInRequest" con la raccolta per l'header Server-Timing attiva
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerTimingBenchmark {
+
+    private ServerTiming serverTiming;
+    private long value;
+
+    @Setup
+    public void setup() {
+        serverTiming = new ServerTiming(new SimpleMeterRegistry());
+        value = 42;
+    }
+
+    @Benchmark
+    public long direct() {
+        return call();
+    }
+
+    @Benchmark
+    public long timed() {
+        return serverTiming.time("db", this::call);
+    }
+
+    @Benchmark
+    public long timedInRequest(ActiveRequest request) {
+        return serverTiming.time("db", this::call);
+    }
+
+    private long call() {
+        return value * 31;
+    }
+
+    // Raccolta aperta dal thread che esegue il benchmark, come fa ServerTimingFilter per ogni richiesta
+    @State(Scope.Thread)
+    public static class ActiveRequest {
+
+        @Setup(Level.Iteration)
+        public void begin() {
+            ServerTiming.begin();
+        }
+
+        @TearDown(Level.Iteration)
+        public void end() {
+            ServerTiming.end();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.benchmarks;
+
+import org.example.inventory.StockLedger;
+import org.example.inventory.StockReservations;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Prenotazioni al secondo sul ledger del product-service, con più thread sugli stessi prodotti "caldi":
+// prenotazione anonima (solo CAS sulle giacenze) contro prenotazione con id (idempotente, registrata per il rilascio).
+// Ogni operazione è una prenotazione seguita dal suo rilascio, così le giacenze non si esauriscono.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class StockReservationBenchmark {
+
+    @Param({"8"})
+    private int products;
+
+    private StockLedger stockLedger;
+    private StockReservations reservations;
+    private List<Map<Long, Integer>> carts;
+    private final AtomicLong nextId = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        stockLedger = new StockLedger();
+        // Le voci rilasciate scadono subito e vengono rimosse a ogni iterazione
+        reservations = new StockReservations(stockLedger, Duration.ZERO);
+        for (long id = 1; id <= products; id++) {
+            stockLedger.load(id, 1_000_000);
+        }
+        carts = List.of(Map.of(1L, 1), Map.of(1L, 1, 2L, 2), Map.of(2L, 1, 3L, 1, (long) products, 1));
+    }
+
+    @Setup(Level.Iteration)
+    public void expire() {
+        reservations.expire();
+    }
+
+    @Benchmark
+    public boolean anonymous() {
+        Map<Long, Integer> cart = carts.get((int) (nextId.getAndIncrement() % carts.size()));
+        boolean reserved = stockLedger.tryReserve(cart, id -> 0).isEmpty();
+        stockLedger.release(cart);
+        return reserved;
+    }
+
+    @Benchmark
+    public boolean withReservationId() {
+        long id = nextId.getAndIncrement();
+        String reservationId = "order-" + id;
+        boolean reserved = reservations.tryReserve(reservationId, carts.get((int) (id % carts.size())), p -> 0).isEmpty();
+        reservations.release(reservationId);
+        return reserved;
+    }
+}
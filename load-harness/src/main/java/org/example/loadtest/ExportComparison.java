@@ -0,0 +1,249 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+// Liste complete (GET /products, GET /orders) contro export NDJSON in streaming (GET .../export) con molte righe:
+// per ogni endpoint tempo al primo byte, tempo totale, byte ricevuti e picco di heap usata dal servizio durante la
+// richiesta (jvm.memory.used{area:heap} campionato ogni 10 ms). Avvia product-service e order-service come l'harness,
+// con discovery statico, e li popola direttamente senza passare dal gateway.
+// Argomenti: --rows=<righe per tabella> (default 100000), --repetitions=<misure per endpoint> (default 5),
+// --heap=<-Xmx dei servizi> (default 1g)
+@Slf4j
+public class ExportComparison {
+
+    private static final int SEED_CONCURRENCY = 32;
+    private static final String HEAP_USED = "jvm.memory.used?tag=area:heap";
+
+    public static void main(String[] args) throws Exception {
+        int rows = intOption(args, "rows", 100_000);
+        int repetitions = intOption(args, "repetitions", 5);
+        String heap = option(args, "heap", "1g");
+
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        HarnessConfig config = new HarnessConfig();
+        Path reportDir = Files.createDirectories(Path.of(config.getReportDir()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+
+        List<ServiceProcess> processes = Collections.synchronizedList(new ArrayList<>());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> processes.forEach(ServiceProcess::close)));
+        try {
+            ServiceProcess productService = start(ManagedService.PRODUCT_SERVICE, config.getProductServicePort(),
+                    config, heap, reportDir);
+            processes.add(productService);
+            ServiceProcess orderService = start(ManagedService.ORDER_SERVICE, config.getOrderServicePort(),
+                    config, heap, reportDir);
+            processes.add(orderService);
+            Duration startupTimeout = Duration.ofSeconds(config.getStartupTimeoutSeconds());
+            productService.awaitHealthy(client, startupTimeout);
+            orderService.awaitHealthy(client, startupTimeout);
+
+            // Una giacenza sufficiente per tutti gli ordini di un articolo sul primo prodotto
+            seed(client, rows, productService.baseUri().resolve("/products"), i -> ("{\"name\":\"Product " + i
+                    + "\",\"description\":\"Export comparison product " + i + "\",\"price\":" + (10 + i % 90)
+                    + ".50,\"stock\":" + (i == 0 ? rows : 100) + ",\"category\":\"category-" + (i % 10) + "\"}"));
+            seed(client, rows, orderService.baseUri().resolve("/orders"), i -> ("{\"customerName\":\"Export Test\","
+                    + "\"customerEmail\":\"customer" + (i % 1000) + "@example.com\",\"shippingAddress\":\"Via Roma 1, Milano\","
+                    + "\"orderItems\":[{\"productId\":1,\"quantity\":1}]}"));
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("rows", rows);
+            report.put("heap", heap);
+            report.put("GET /products", measure(client, objectMapper, productService.baseUri(), "/products", repetitions));
+            report.put("GET /products/export", measure(client, objectMapper, productService.baseUri(), "/products/export", repetitions));
+            report.put("GET /orders", measure(client, objectMapper, orderService.baseUri(), "/orders", repetitions));
+            report.put("GET /orders/export", measure(client, objectMapper, orderService.baseUri(), "/orders/export", repetitions));
+
+            Path reportFile = reportDir.resolve("export-comparison-" + rows + ".json");
+            objectMapper.writeValue(reportFile.toFile(), report);
+            log.info("Export comparison with {} rows written to {}", rows, reportFile);
+        } finally {
+            synchronized (processes) {
+                for (int i = processes.size() - 1; i >= 0; i--) {
+                    processes.get(i).close();
+                }
+                processes.clear();
+            }
+        }
+    }
+
+    private static ServiceProcess start(ManagedService service, int port, HarnessConfig config, String heap, Path logDir)
+            throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("eureka.client.enabled", "false");
+        properties.put("loadtest.discovery.instances",
+                "product-service=http://localhost:" + config.getProductServicePort()
+                        + ",order-service=http://localhost:" + config.getOrderServicePort());
+        properties.put("spring.jpa.show-sql", "false");
+        properties.putAll(service.requiredProperties());
+        return ServiceProcess.start(service, port, List.of("-Xmx" + heap), properties, logDir);
+    }
+
+    private static void seed(HttpClient client, int rows, URI uri, IntFunction<String> body)
+            throws InterruptedException {
+        Semaphore permits = new Semaphore(SEED_CONCURRENCY);
+        AtomicLong failed = new AtomicLong();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            permits.acquire();
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(body.apply(i)))
+                    .build();
+            pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        permits.release();
+                        if (error != null || response.statusCode() / 100 != 2) {
+                            failed.incrementAndGet();
+                        }
+                    }));
+            if (pending.size() >= 10_000) {
+                pending.removeIf(CompletableFuture::isDone);
+            }
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).exceptionally(e -> null).join();
+        if (failed.get() > 0) {
+            throw new IllegalStateException(failed.get() + " of " + rows + " POST " + uri + " failed");
+        }
+        log.info("Created {} rows with POST {}", rows, uri);
+    }
+
+    private static Map<String, Object> measure(HttpClient client, ObjectMapper objectMapper, URI service, String path,
+                                               int repetitions) throws IOException, InterruptedException {
+        List<Double> firstByteMillis = new ArrayList<>();
+        List<Double> totalMillis = new ArrayList<>();
+        List<Double> peakHeapMb = new ArrayList<>();
+        long bytes = 0;
+        // La prima richiesta scalda JIT e cache, non entra nei risultati
+        for (int i = 0; i <= repetitions; i++) {
+            HeapSampler sampler = new HeapSampler(client, objectMapper, service);
+            sampler.start();
+            long start = System.nanoTime();
+            long firstByte = -1;
+            long received = 0;
+            HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(service.resolve(path))
+                    .timeout(Duration.ofMinutes(5))
+                    .GET()
+                    .build(), HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream in = response.body()) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) >= 0) {
+                    if (firstByte < 0 && read > 0) {
+                        firstByte = System.nanoTime();
+                    }
+                    received += read;
+                }
+            }
+            long end = System.nanoTime();
+            double peak = sampler.finish();
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("GET " + path + " failed with status " + response.statusCode());
+            }
+            if (i == 0) {
+                continue;
+            }
+            firstByteMillis.add((firstByte - start) / 1_000_000.0);
+            totalMillis.add((end - start) / 1_000_000.0);
+            peakHeapMb.add(peak / (1024 * 1024));
+            bytes = received;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("bytes", bytes);
+        result.put("timeToFirstByteMillis", summary(firstByteMillis));
+        result.put("totalMillis", summary(totalMillis));
+        result.put("peakHeapUsedMb", summary(peakHeapMb));
+        log.info("GET {}: first byte {} ms, total {} ms, peak heap {} MB", path, result.get("timeToFirstByteMillis"),
+                result.get("totalMillis"), result.get("peakHeapUsedMb"));
+        return result;
+    }
+
+    private static Map<String, Double> summary(List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        Map<String, Double> summary = new LinkedHashMap<>();
+        summary.put("min", Math.round(sorted.get(0) * 10) / 10.0);
+        summary.put("median", Math.round(sorted.get(sorted.size() / 2) * 10) / 10.0);
+        summary.put("max", Math.round(sorted.get(sorted.size() - 1) * 10) / 10.0);
+        return summary;
+    }
+
+    private static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix) && arg.length() > prefix.length()) {
+                return arg.substring(prefix.length()).trim();
+            }
+        }
+        return defaultValue;
+    }
+
+    private static int intOption(String[] args, String name, int defaultValue) {
+        return Integer.parseInt(option(args, name, Integer.toString(defaultValue)));
+    }
+
+    // Campiona la heap usata dal servizio finché la richiesta misurata è in corso e ne restituisce il massimo
+    private static class HeapSampler extends Thread {
+
+        private final HttpClient client;
+        private final ObjectMapper objectMapper;
+        private final URI service;
+        private volatile boolean running = true;
+        private volatile double peak;
+
+        HeapSampler(HttpClient client, ObjectMapper objectMapper, URI service) {
+            super("heap-sampler");
+            setDaemon(true);
+            this.client = client;
+            this.objectMapper = objectMapper;
+            this.service = service;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    Double used = ServiceMetrics.snapshot(client, objectMapper, service, List.of(HEAP_USED))
+                            .get("jvm.memory.used[area:heap]");
+                    if (used != null && used > peak) {
+                        peak = used;
+                    }
+                    Thread.sleep(10);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        double finish() throws InterruptedException {
+            running = false;
+            join();
+            return peak;
+        }
+    }
+}
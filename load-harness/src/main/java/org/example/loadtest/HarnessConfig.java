@@ -0,0 +1,47 @@
+package org.example.loadtest;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Configurazione dell'harness (load-harness.json): servizi da avviare, dati iniziali e scenari di carico
+@Data
+public class HarnessConfig {
+
+    private String reportDir = "target/load-reports";
+
+    private int gatewayPort = 18080;
+    private int productServicePort = 18081;
+    private int orderServicePort = 18082;
+    private int startupTimeoutSeconds = 120;
+    private List<String> jvmArgs = new ArrayList<>(List.of("-Xmx512m"));
+
+    // Proprietà Spring aggiuntive per servizio, indicizzate per id del servizio (api-gateway, product-service, order-service)
+    private Map<String, Map<String, String>> properties = new HashMap<>();
+
+    // Prodotti creati prima degli scenari e ordini iniziali per le letture
+    private int catalogSize = 200;
+    private int seedOrders = 50;
+
+    private List<Scenario> scenarios = new ArrayList<>();
+
+    // Modello aperto: le richieste partono a tasso costante indipendentemente dai tempi di risposta
+    @Data
+    public static class Scenario {
+        private String name;
+        private double ratePerSecond = 100;
+        private int warmupSeconds = 10;
+        private int durationSeconds = 30;
+        private int timeoutMillis = 5000;
+        // Oltre questo numero di richieste in volo le nuove vengono scartate (e contate) invece di accumularsi
+        private int maxInFlight = 2000;
+        // Pesi delle operazioni: getProduct, getOrder, getOrderDetails, createOrder
+        private Map<String, Integer> mix = new LinkedHashMap<>();
+        // Pesi delle dimensioni del carrello (numero di righe) per createOrder
+        private Map<Integer, Integer> cartSizes = new LinkedHashMap<>();
+    }
+}
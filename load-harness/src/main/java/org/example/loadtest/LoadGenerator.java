@@ -0,0 +1,86 @@
+package org.example.loadtest;
+
+import org.example.loadtest.HarnessConfig.Scenario;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Generatore a modello aperto: la richiesta i-esima parte all'istante start + i / rate, qualunque sia il tempo
+// di risposta delle precedenti (le risposte sono gestite in modo asincrono). Se il sistema rallenta le richieste
+// non vengono ritardate: l'attesa accumulata finisce nella latenza misurata.
+class LoadGenerator {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final HttpClient client;
+
+    LoadGenerator(HttpClient client) {
+        this.client = client;
+    }
+
+    ScenarioRecorder run(Scenario scenario, Workload workload) throws InterruptedException {
+        workload.configure(scenario);
+        ScenarioRecorder recorder = new ScenarioRecorder(scenario);
+        Duration timeout = Duration.ofMillis(scenario.getTimeoutMillis());
+        AtomicInteger inFlight = new AtomicInteger();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long start = System.nanoTime();
+        long measureStart = start + TimeUnit.SECONDS.toNanos(scenario.getWarmupSeconds());
+        long end = measureStart + TimeUnit.SECONDS.toNanos(scenario.getDurationSeconds());
+        double intervalNanos = NANOS_PER_SECOND / scenario.getRatePerSecond();
+
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * intervalNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            boolean measured = intendedStart >= measureStart;
+            String operation = workload.nextOperation(random);
+            if (inFlight.get() >= scenario.getMaxInFlight()) {
+                if (measured) {
+                    recorder.dropped(operation);
+                }
+                continue;
+            }
+
+            HttpRequest request = workload.request(operation, random, timeout);
+            inFlight.incrementAndGet();
+            if (measured) {
+                recorder.sent();
+            }
+            long sentAt = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        long now = System.nanoTime();
+                        inFlight.decrementAndGet();
+                        int status = response != null ? response.statusCode() : 0;
+                        if (error == null && status >= 200 && status < 300) {
+                            workload.onSuccess(operation, response.body());
+                        }
+                        if (measured) {
+                            recorder.record(operation, now - intendedStart, now - sentAt, status, error);
+                        }
+                    });
+        }
+
+        // Attende le risposte ancora in volo, al massimo per il timeout delle richieste
+        long drainDeadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        recorder.finish(inFlight.get());
+        return recorder;
+    }
+}
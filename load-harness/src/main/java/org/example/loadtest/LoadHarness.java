@@ -0,0 +1,198 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.example.loadtest.HarnessConfig.Scenario;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// Test di carico end-to-end senza Eureka né Docker: avvia product-service, order-service e gateway su localhost
+// con discovery statico, crea il catalogo, esegue gli scenari e scrive un report JSON per scenario.
+// Argomenti: --config=<file json> (default load-harness.json dal classpath), --scenarios=<nomi separati da virgola>,
+// --properties=<servizio>:<chiave>=<valore>;... (proprietà aggiuntive dei servizi), --label=<suffisso dei report>
+@Slf4j
+public class LoadHarness {
+
+    private static final String DEFAULT_CONFIG = "load-harness.json";
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        HarnessConfig config = readConfig(objectMapper, option(args, "config"));
+        String scenarios = option(args, "scenarios");
+        Set<String> selected = scenarios.isBlank() ? Set.of() : Set.of(scenarios.split(","));
+        applyOverrides(config, option(args, "properties"));
+        String label = option(args, "label");
+
+        Path reportDir = Files.createDirectories(Path.of(config.getReportDir()));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+
+        List<ServiceProcess> processes = Collections.synchronizedList(new ArrayList<>());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> stopAll(processes)));
+        try {
+            ServiceProcess productService = start(ManagedService.PRODUCT_SERVICE, config.getProductServicePort(), config, reportDir);
+            processes.add(productService);
+            ServiceProcess orderService = start(ManagedService.ORDER_SERVICE, config.getOrderServicePort(), config, reportDir);
+            processes.add(orderService);
+            ServiceProcess gateway = start(ManagedService.API_GATEWAY, config.getGatewayPort(), config, reportDir);
+            processes.add(gateway);
+
+            Duration startupTimeout = Duration.ofSeconds(config.getStartupTimeoutSeconds());
+            for (ServiceProcess process : List.of(productService, orderService, gateway)) {
+                process.awaitHealthy(client, startupTimeout);
+            }
+
+            // I dati iniziali vengono creati direttamente sui servizi, senza passare dai limiti del gateway
+            List<Long> productIds = seedCatalog(client, objectMapper, productService.baseUri(), config.getCatalogSize());
+            Workload workload = new Workload(gateway.baseUri(), objectMapper, productIds);
+            seedOrders(client, objectMapper, orderService.baseUri(), workload, config.getSeedOrders())
+                    .forEach(workload::addOrderNumber);
+
+            LoadGenerator generator = new LoadGenerator(client);
+            for (Scenario scenario : config.getScenarios()) {
+                if (!selected.isEmpty() && !selected.contains(scenario.getName())) {
+                    continue;
+                }
+                log.info("Running scenario {} at {} req/s for {}s (+{}s warmup)", scenario.getName(),
+                        scenario.getRatePerSecond(), scenario.getDurationSeconds(), scenario.getWarmupSeconds());
+                Map<String, Object> report = generator.run(scenario, workload).report();
+                // Thread e pool di connessioni dell'order-service a fine scenario, per confrontare le configurazioni
+                report.put("orderService", ServiceMetrics.snapshot(client, objectMapper, orderService.baseUri(),
+                        ServiceMetrics.ORDER_SERVICE));
+
+                Path reportFile = reportDir.resolve(scenario.getName() + (label.isBlank() ? "" : "-" + label) + ".json");
+                objectMapper.writeValue(reportFile.toFile(), report);
+                log.info("Scenario {}: throughput {} req/s, latency {} ms, failed {}, report {}", scenario.getName(),
+                        report.get("throughput"), report.get("latencyMillis"), report.get("failed"), reportFile);
+            }
+        } finally {
+            stopAll(processes);
+        }
+    }
+
+    private static String option(String[] args, String name) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length()).trim();
+            }
+        }
+        return "";
+    }
+
+    // es. order-service:product-client.type=webclient;order-service:product-client.webclient.protocol=h2c
+    private static void applyOverrides(HarnessConfig config, String overrides) {
+        for (String override : overrides.split(";")) {
+            int service = override.indexOf(':');
+            int value = override.indexOf('=', service + 1);
+            if (override.isBlank()) {
+                continue;
+            }
+            if (service <= 0 || value < 0) {
+                throw new IllegalArgumentException("Invalid property override, expected service:key=value: " + override);
+            }
+            config.getProperties()
+                    .computeIfAbsent(override.substring(0, service).trim(), id -> new LinkedHashMap<>())
+                    .put(override.substring(service + 1, value).trim(), override.substring(value + 1).trim());
+        }
+    }
+
+    private static HarnessConfig readConfig(ObjectMapper objectMapper, String location) throws IOException {
+        if (location.isBlank()) {
+            try (InputStream in = LoadHarness.class.getClassLoader().getResourceAsStream(DEFAULT_CONFIG)) {
+                if (in == null) {
+                    throw new IllegalStateException(DEFAULT_CONFIG + " not found on the classpath");
+                }
+                return objectMapper.readValue(in, HarnessConfig.class);
+            }
+        }
+        return objectMapper.readValue(Path.of(location).toFile(), HarnessConfig.class);
+    }
+
+    private static ServiceProcess start(ManagedService service, int port, HarnessConfig config, Path logDir)
+            throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("eureka.client.enabled", "false");
+        properties.put("loadtest.discovery.instances",
+                "product-service=http://localhost:" + config.getProductServicePort()
+                        + ",order-service=http://localhost:" + config.getOrderServicePort());
+        properties.putAll(service.requiredProperties());
+        properties.putAll(config.getProperties().getOrDefault(service.serviceId(), Map.of()));
+        return ServiceProcess.start(service, port, config.getJvmArgs(), properties, logDir);
+    }
+
+    private static List<Long> seedCatalog(HttpClient client, ObjectMapper objectMapper, URI productService, int size)
+            throws IOException, InterruptedException {
+        List<Long> productIds = new ArrayList<>(size);
+        Random random = new Random(42);
+        for (int i = 1; i <= size; i++) {
+            Map<String, Object> product = new LinkedHashMap<>();
+            product.put("name", "Product " + i);
+            product.put("description", "Load test product " + i);
+            product.put("price", (500 + random.nextInt(50_000)) / 100.0);
+            product.put("stock", 1_000_000);
+            product.put("category", "category-" + (i % 10));
+
+            JsonNode created = post(client, objectMapper, productService.resolve("/products"), product);
+            productIds.add(created.get("id").asLong());
+        }
+        log.info("Created {} products", productIds.size());
+        return productIds;
+    }
+
+    private static List<String> seedOrders(HttpClient client, ObjectMapper objectMapper, URI orderService,
+                                           Workload workload, int count) throws IOException, InterruptedException {
+        List<String> orderNumbers = new ArrayList<>(count);
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            JsonNode created = post(client, objectMapper, orderService.resolve("/orders"),
+                    objectMapper.readTree(workload.orderBody(random, 1 + random.nextInt(5))));
+            orderNumbers.add(created.get("orderNumber").asText());
+        }
+        log.info("Created {} orders", orderNumbers.size());
+        return orderNumbers;
+    }
+
+    private static JsonNode post(HttpClient client, ObjectMapper objectMapper, URI uri, Object body)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(10))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                .build();
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("POST " + uri + " failed with status " + response.statusCode()
+                    + ": " + new String(response.body()));
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static void stopAll(List<ServiceProcess> processes) {
+        synchronized (processes) {
+            for (int i = processes.size() - 1; i >= 0; i--) {
+                processes.get(i).close();
+            }
+            processes.clear();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.loadtest;
+
+import java.util.List;
+import java.util.Map;
+
+// Servizi avviati dall'harness. Il classpath di ciascuno è quello dell'harness senza le classi degli altri servizi
+// (tutti eseguono la scansione di org.example e hanno un proprio application.yml) e senza il web server dell'altro
+// stack: il gateway deve girare su Netty, i servizi su Tomcat senza l'auto-configurazione del gateway. Il gateway
+// esclude anche il modulo server-timing, i cui filtri servlet sono condivisi solo dai due servizi.
+enum ManagedService {
+
+    PRODUCT_SERVICE("product-service", "org.example.ProductServiceApplication",
+            List.of("org/example/ApiGatewayApplication.class",
+                    "org/example/OrderServiceApplication.class",
+                    "org/springframework/cloud/gateway/config/GatewayAutoConfiguration.class"),
+            Map.of("spring.main.web-application-type", "servlet")),
+
+    ORDER_SERVICE("order-service", "org.example.OrderServiceApplication",
+            List.of("org/example/ApiGatewayApplication.class",
+                    "org/example/ProductServiceApplication.class",
+                    "org/springframework/cloud/gateway/config/GatewayAutoConfiguration.class"),
+            Map.of("spring.main.web-application-type", "servlet")),
+
+    API_GATEWAY("api-gateway", "org.example.ApiGatewayApplication",
+            List.of("org/example/ProductServiceApplication.class",
+                    "org/example/OrderServiceApplication.class",
+                    "org/example/timing/ServerTimingFilter.class",
+                    "org/apache/catalina/startup/Tomcat.class"),
+            Map.of("spring.main.web-application-type", "reactive",
+                    // JPA e H2 arrivano sul classpath con i servizi, il gateway non ha un database
+                    "spring.autoconfigure.exclude", "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration,"
+                            + "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration"));
+
+    private final String serviceId;
+    private final String mainClass;
+    private final List<String> excludedResources;
+    private final Map<String, String> requiredProperties;
+
+    ManagedService(String serviceId, String mainClass, List<String> excludedResources,
+                   Map<String, String> requiredProperties) {
+        this.serviceId = serviceId;
+        this.mainClass = mainClass;
+        this.excludedResources = excludedResources;
+        this.requiredProperties = requiredProperties;
+    }
+
+    String serviceId() {
+        return serviceId;
+    }
+
+    String mainClass() {
+        return mainClass;
+    }
+
+    // Voci del classpath che contengono una di queste risorse vengono escluse
+    List<String> excludedResources() {
+        return excludedResources;
+    }
+
+    Map<String, String> requiredProperties() {
+        return requiredProperties;
+    }
+}
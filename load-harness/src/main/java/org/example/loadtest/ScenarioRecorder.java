@@ -0,0 +1,146 @@
+package org.example.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.example.loadtest.HarnessConfig.Scenario;
+
+import java.net.http.HttpTimeoutException;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Risultati di uno scenario nella finestra di misura. La latenza parte dall'istante in cui la richiesta avrebbe
+// dovuto partire secondo il tasso pianificato (correzione della coordinated omission); il service time parte
+// dall'invio effettivo. Gli istogrammi contengono solo le risposte 2xx, gli errori sono contati per tipo.
+class ScenarioRecorder {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final Scenario scenario;
+    private final Instant startedAt = Instant.now();
+    private final OperationStats total = new OperationStats();
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long unfinished;
+
+    ScenarioRecorder(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    void sent() {
+        sent.increment();
+    }
+
+    // Richiesta non inviata perché il generatore aveva già maxInFlight richieste in attesa
+    void dropped(String operation) {
+        dropped.increment();
+        total.error("dropped");
+        operation(operation).error("dropped");
+    }
+
+    void record(String operation, long latencyNanos, long serviceTimeNanos, int status, Throwable error) {
+        OperationStats stats = operation(operation);
+        if (error == null && status >= 200 && status < 300) {
+            total.success(latencyNanos, serviceTimeNanos);
+            stats.success(latencyNanos, serviceTimeNanos);
+            return;
+        }
+        String outcome = error != null ? errorName(error) : "HTTP " + status;
+        total.error(outcome);
+        stats.error(outcome);
+    }
+
+    void finish(long stillInFlight) {
+        this.unfinished = stillInFlight;
+    }
+
+    Map<String, Object> report() {
+        double seconds = scenario.getDurationSeconds();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scenario", scenario.getName());
+        result.put("startedAt", startedAt.toString());
+        result.put("config", scenario);
+        result.put("targetRate", scenario.getRatePerSecond());
+        result.put("sent", sent.sum());
+        result.put("achievedRate", sent.sum() / seconds);
+        result.put("succeeded", total.succeeded.sum());
+        result.put("failed", total.failed.sum());
+        result.put("dropped", dropped.sum());
+        result.put("unfinished", unfinished);
+        result.put("throughput", total.succeeded.sum() / seconds);
+        result.putAll(total.report());
+
+        Map<String, Object> byOperation = new TreeMap<>();
+        operations.forEach((operation, stats) -> {
+            Map<String, Object> operationReport = new LinkedHashMap<>();
+            operationReport.put("succeeded", stats.succeeded.sum());
+            operationReport.put("failed", stats.failed.sum());
+            operationReport.put("throughput", stats.succeeded.sum() / seconds);
+            operationReport.putAll(stats.report());
+            byOperation.put(operation, operationReport);
+        });
+        result.put("operations", byOperation);
+        return result;
+    }
+
+    private OperationStats operation(String operation) {
+        return operations.computeIfAbsent(operation, name -> new OperationStats());
+    }
+
+    private static String errorName(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof HttpTimeoutException ? "timeout" : cause.getClass().getSimpleName();
+    }
+
+    private static class OperationStats {
+
+        // Valori in microsecondi, istogrammi a ridimensionamento automatico con 3 cifre significative
+        private final Histogram latency = new ConcurrentHistogram(3);
+        private final Histogram serviceTime = new ConcurrentHistogram(3);
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        void success(long latencyNanos, long serviceTimeNanos) {
+            succeeded.increment();
+            latency.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(serviceTimeNanos));
+        }
+
+        void error(String outcome) {
+            failed.increment();
+            errors.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+        }
+
+        Map<String, Object> report() {
+            Map<String, Object> result = new LinkedHashMap<>();
+            Map<String, Long> errorCounts = new TreeMap<>();
+            errors.forEach((outcome, count) -> errorCounts.put(outcome, count.sum()));
+            result.put("errors", errorCounts);
+            result.put("latencyMillis", percentiles(latency));
+            result.put("serviceTimeMillis", percentiles(serviceTime));
+            return result;
+        }
+
+        private static Map<String, Object> percentiles(Histogram histogram) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            if (histogram.getTotalCount() == 0) {
+                return result;
+            }
+            result.put("mean", histogram.getMean() / 1000.0);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                result.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]) / 1000.0);
+            }
+            result.put("max", histogram.getMaxValue() / 1000.0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Legge alcuni valori da /actuator/metrics di un servizio a fine scenario (thread, pool di connessioni...).
+// Le metriche assenti, ad esempio i gauge del pool WebClient quando il servizio usa Feign, vengono omesse.
+class ServiceMetrics {
+
+    // "nome" oppure "nome?tag=chiave:valore"
+    static final List<String> ORDER_SERVICE = List.of(
+            "jvm.threads.live",
+            "jvm.threads.peak",
+            "process.cpu.usage",
+            "product.client.pool.connections?tag=state:active",
+            "product.client.pool.connections?tag=state:idle",
+            "product.client.pool.pending",
+            "downstream.bulkhead.available?tag=downstream:product-service",
+            "downstream.bulkhead.rejected?tag=downstream:product-service");
+
+    private ServiceMetrics() {
+    }
+
+    static Map<String, Double> snapshot(HttpClient client, ObjectMapper objectMapper, URI service, List<String> meters)
+            throws InterruptedException {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (String meter : meters) {
+            int query = meter.indexOf('?');
+            String name = query < 0 ? meter : meter.substring(0, query);
+            String tag = query < 0 ? "" : meter.substring(query + "?tag=".length());
+            URI uri = service.resolve("/actuator/metrics/" + name
+                    + (tag.isEmpty() ? "" : "?tag=" + URLEncoder.encode(tag, StandardCharsets.UTF_8)));
+            try {
+                HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri)
+                        .timeout(Duration.ofSeconds(5))
+                        .GET()
+                        .build(), HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 200) {
+                    continue;
+                }
+                JsonNode measurement = objectMapper.readTree(response.body()).path("measurements").path(0);
+                if (measurement.has("value")) {
+                    values.put(tag.isEmpty() ? name : name + "[" + tag + "]", measurement.get("value").asDouble());
+                }
+            } catch (IOException e) {
+                // Il servizio non risponde: il report riporta solo le metriche lette
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Un servizio in esecuzione su localhost in una JVM separata, con l'output rediretto su file
+@Slf4j
+class ServiceProcess implements AutoCloseable {
+
+    private final ManagedService service;
+    private final URI baseUri;
+    private final Process process;
+    private final Path logFile;
+
+    private ServiceProcess(ManagedService service, URI baseUri, Process process, Path logFile) {
+        this.service = service;
+        this.baseUri = baseUri;
+        this.process = process;
+        this.logFile = logFile;
+    }
+
+    static ServiceProcess start(ManagedService service, int port, List<String> jvmArgs,
+                                Map<String, String> properties, Path logDir) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, classpath(service)));
+        command.add(service.mainClass());
+        command.add("--server.port=" + port);
+        properties.forEach((name, value) -> command.add("--" + name + "=" + value));
+
+        Path logFile = logDir.resolve(service.serviceId() + ".log");
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        log.info("Started {} on port {} (pid {}, log {})", service.serviceId(), port, process.pid(), logFile);
+        return new ServiceProcess(service, URI.create("http://localhost:" + port), process, logFile);
+    }
+
+    URI baseUri() {
+        return baseUri;
+    }
+
+    void awaitHealthy(HttpClient client, Duration timeout) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(baseUri.resolve("/actuator/health"))
+                .timeout(Duration.ofSeconds(2))
+                .build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(service.serviceId() + " exited with code " + process.exitValue()
+                        + ", see " + logFile);
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    log.info("{} is up", service.serviceId());
+                    return;
+                }
+            } catch (IOException e) {
+                // Non ancora in ascolto
+            }
+            Thread.sleep(500);
+        }
+        throw new IllegalStateException(service.serviceId() + " not healthy after " + timeout + ", see " + logFile);
+    }
+
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<String> classpath(ManagedService service) {
+        Set<Path> excluded = new HashSet<>();
+        for (String resource : service.excludedResources()) {
+            Path entry = classpathEntry(resource);
+            if (entry != null) {
+                excluded.add(entry);
+            }
+        }
+
+        List<String> classpath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.isBlank() && !excluded.contains(Path.of(entry).toAbsolutePath().normalize())) {
+                classpath.add(entry);
+            }
+        }
+        return classpath;
+    }
+
+    // Jar o directory del classpath che contiene la risorsa
+    private static Path classpathEntry(String resource) {
+        URL url = ClassLoader.getSystemClassLoader().getResource(resource);
+        if (url == null) {
+            return null;
+        }
+        try {
+            if ("jar".equals(url.getProtocol())) {
+                URL jarUrl = ((JarURLConnection) url.openConnection()).getJarFileURL();
+                return Path.of(jarUrl.toURI()).toAbsolutePath().normalize();
+            }
+            Path file = Path.of(url.toURI());
+            for (int i = 0; i < resource.split("/").length; i++) {
+                file = file.getParent();
+            }
+            return file.toAbsolutePath().normalize();
+        } catch (IOException | URISyntaxException e) {
+            throw new IllegalStateException("Cannot locate " + resource + " on the classpath", e);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package org.example.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.loadtest.HarnessConfig.Scenario;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Richieste di uno scenario verso il gateway: operazione estratta dal mix, carrello di dimensione estratta dalla
+// distribuzione. Gli ordini creati durante il test alimentano le letture successive.
+class Workload {
+
+    static final String GET_PRODUCT = "getProduct";
+    static final String GET_ORDER = "getOrder";
+    static final String GET_ORDER_DETAILS = "getOrderDetails";
+    static final String CREATE_ORDER = "createOrder";
+
+    private static final Set<String> OPERATIONS = Set.of(GET_PRODUCT, GET_ORDER, GET_ORDER_DETAILS, CREATE_ORDER);
+    private static final int MAX_ORDER_NUMBERS = 10_000;
+
+    private final URI gateway;
+    private final ObjectMapper objectMapper;
+    private final List<Long> productIds;
+    private final AtomicReferenceArray<String> orderNumbers = new AtomicReferenceArray<>(MAX_ORDER_NUMBERS);
+    private final AtomicLong ordersCreated = new AtomicLong();
+
+    private WeightedChoice<String> mix;
+    private WeightedChoice<Integer> cartSizes;
+
+    Workload(URI gateway, ObjectMapper objectMapper, List<Long> productIds) {
+        if (productIds.isEmpty()) {
+            throw new IllegalArgumentException("The catalog is empty");
+        }
+        this.gateway = gateway;
+        this.objectMapper = objectMapper;
+        this.productIds = List.copyOf(productIds);
+    }
+
+    void configure(Scenario scenario) {
+        for (String operation : scenario.getMix().keySet()) {
+            if (!OPERATIONS.contains(operation)) {
+                throw new IllegalArgumentException("Unknown operation '" + operation + "' in scenario "
+                        + scenario.getName() + ", expected one of " + OPERATIONS);
+            }
+        }
+        this.mix = new WeightedChoice<>(scenario.getMix());
+        this.cartSizes = new WeightedChoice<>(scenario.getCartSizes().isEmpty() ? Map.of(1, 1) : scenario.getCartSizes());
+    }
+
+    String nextOperation(Random random) {
+        String operation = mix.next(random);
+        // Senza ordini da leggere si crea un ordine
+        if ((GET_ORDER.equals(operation) || GET_ORDER_DETAILS.equals(operation)) && ordersCreated.get() == 0) {
+            return CREATE_ORDER;
+        }
+        return operation;
+    }
+
+    HttpRequest request(String operation, Random random, Duration timeout) {
+        HttpRequest.Builder builder = switch (operation) {
+            case GET_PRODUCT -> HttpRequest.newBuilder(gateway.resolve("/api/products/" + randomProductId(random)));
+            case GET_ORDER -> HttpRequest.newBuilder(gateway.resolve("/api/orders/number/" + randomOrderNumber(random)));
+            case GET_ORDER_DETAILS -> HttpRequest.newBuilder(gateway.resolve("/api/order-details/" + randomOrderNumber(random)));
+            case CREATE_ORDER -> HttpRequest.newBuilder(gateway.resolve("/api/orders"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(orderBody(random, cartSizes.next(random))));
+            default -> throw new IllegalArgumentException("Unknown operation " + operation);
+        };
+        return builder.timeout(timeout).build();
+    }
+
+    // Corpo di una risposta riuscita: gli ordini creati diventano leggibili dalle operazioni successive
+    void onSuccess(String operation, byte[] body) {
+        if (!CREATE_ORDER.equals(operation)) {
+            return;
+        }
+        try {
+            JsonNode orderNumber = objectMapper.readTree(body).get("orderNumber");
+            if (orderNumber != null && orderNumber.isTextual()) {
+                addOrderNumber(orderNumber.asText());
+            }
+        } catch (IOException e) {
+            // Risposta non JSON: l'ordine non viene usato per le letture
+        }
+    }
+
+    byte[] orderBody(Random random, int cartSize) {
+        List<Map<String, Object>> items = new ArrayList<>(cartSize);
+        for (int i = 0; i < cartSize; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("productId", randomProductId(random));
+            item.put("quantity", 1 + random.nextInt(3));
+            items.add(item);
+        }
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("customerName", "Load Test");
+        order.put("customerEmail", "customer" + random.nextInt(1000) + "@example.com");
+        order.put("shippingAddress", "Via Roma 1, Milano");
+        order.put("orderItems", items);
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long randomProductId(Random random) {
+        return productIds.get(random.nextInt(productIds.size()));
+    }
+
+    private String randomOrderNumber(Random random) {
+        long created = ordersCreated.get();
+        int available = (int) Math.min(created, MAX_ORDER_NUMBERS);
+        String orderNumber = orderNumbers.get(random.nextInt(available));
+        // Posizione appena riservata da un'altra risposta e non ancora scritta
+        return orderNumber != null ? orderNumber : orderNumbers.get(0);
+    }
+
+    // Buffer circolare: si leggono gli ordini più recenti
+    void addOrderNumber(String orderNumber) {
+        long index = ordersCreated.getAndIncrement();
+        orderNumbers.set((int) (index % MAX_ORDER_NUMBERS), orderNumber);
+    }
+
+    static class WeightedChoice<T> {
+
+        private final List<T> values = new ArrayList<>();
+        private final int[] cumulativeWeights;
+        private final int totalWeight;
+
+        WeightedChoice(Map<T, Integer> weights) {
+            this.cumulativeWeights = new int[weights.size()];
+            int total = 0;
+            for (Map.Entry<T, Integer> entry : weights.entrySet()) {
+                if (entry.getValue() == null || entry.getValue() < 0) {
+                    throw new IllegalArgumentException("Invalid weight for " + entry.getKey());
+                }
+                total += entry.getValue();
+                cumulativeWeights[values.size()] = total;
+                values.add(entry.getKey());
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("Weights must not be empty");
+            }
+            this.totalWeight = total;
+        }
+
+        T next(Random random) {
+            int target = random.nextInt(totalWeight);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (target < cumulativeWeights[i]) {
+                    return values.get(i);
+                }
+            }
+            return values.get(values.size() - 1);
+        }
+    }
+}
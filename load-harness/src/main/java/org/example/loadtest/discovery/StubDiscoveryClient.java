@@ -0,0 +1,34 @@
+package org.example.loadtest.discovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Gli id dei servizi sono confrontati senza distinzione tra maiuscole e minuscole, come con Eureka (lb://PRODUCT-SERVICE)
+public class StubDiscoveryClient implements DiscoveryClient {
+
+    private final Map<String, List<ServiceInstance>> instances;
+
+    public StubDiscoveryClient(Map<String, List<ServiceInstance>> instances) {
+        this.instances = instances;
+    }
+
+    @Override
+    public String description() {
+        return "Load harness stub discovery client";
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceId) {
+        return instances.getOrDefault(serviceId.toLowerCase(Locale.ROOT), List.of());
+    }
+
+    @Override
+    public List<String> getServices() {
+        return new ArrayList<>(instances.keySet());
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.loadtest.discovery;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Discovery statico al posto di Eureka per i servizi avviati dall'harness di carico:
+// loadtest.discovery.instances=product-service=http://localhost:18081,order-service=http://localhost:18082
+// Attiva solo con la proprietà impostata: i servizi avviati normalmente continuano a usare Eureka.
+@Configuration
+@ConditionalOnProperty("loadtest.discovery.instances")
+public class StubDiscoveryConfiguration {
+
+    @Bean
+    public StubDiscoveryClient stubDiscoveryClient(@Value("${loadtest.discovery.instances}") String instances) {
+        return new StubDiscoveryClient(parse(instances));
+    }
+
+    @Bean
+    public StubReactiveDiscoveryClient stubReactiveDiscoveryClient(StubDiscoveryClient stubDiscoveryClient) {
+        return new StubReactiveDiscoveryClient(stubDiscoveryClient);
+    }
+
+    // Più istanze dello stesso servizio si indicano ripetendo l'id
+    static Map<String, List<ServiceInstance>> parse(String instances) {
+        Map<String, List<ServiceInstance>> result = new LinkedHashMap<>();
+        for (String entry : instances.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid stub discovery entry '" + entry + "', expected <service-id>=<uri>");
+            }
+            String serviceId = parts[0].trim().toLowerCase(Locale.ROOT);
+            URI uri = URI.create(parts[1].trim());
+            List<ServiceInstance> serviceInstances = result.computeIfAbsent(serviceId, id -> new ArrayList<>());
+            serviceInstances.add(new DefaultServiceInstance(serviceId + "-" + serviceInstances.size(), serviceId,
+                    uri.getHost(), uri.getPort(), "https".equals(uri.getScheme())));
+        }
+        return result;
+    }
+}
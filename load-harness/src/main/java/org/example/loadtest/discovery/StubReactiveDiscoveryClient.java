@@ -0,0 +1,30 @@
+package org.example.loadtest.discovery;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import reactor.core.publisher.Flux;
+
+// Stesse istanze di StubDiscoveryClient per il load balancer reattivo (gateway e client Feign)
+public class StubReactiveDiscoveryClient implements ReactiveDiscoveryClient {
+
+    private final StubDiscoveryClient delegate;
+
+    public StubReactiveDiscoveryClient(StubDiscoveryClient delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String description() {
+        return delegate.description();
+    }
+
+    @Override
+    public Flux<ServiceInstance> getInstances(String serviceId) {
+        return Flux.fromIterable(delegate.getInstances(serviceId));
+    }
+
+    @Override
+    public Flux<String> getServices() {
+        return Flux.fromIterable(delegate.getServices());
+    }
+}
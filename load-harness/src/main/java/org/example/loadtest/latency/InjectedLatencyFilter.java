@@ -0,0 +1,49 @@
+package org.example.loadtest.latency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+// Ritardo artificiale sulle richieste di un servizio avviato dall'harness, per simulare un servizio a valle lento:
+// loadtest.latency.delay=200ms, loadtest.latency.paths=/products/batch,/products/stock (prefissi, default tutti)
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty("loadtest.latency.delay")
+public class InjectedLatencyFilter extends OncePerRequestFilter {
+
+    private final Duration delay;
+    private final List<String> paths;
+
+    public InjectedLatencyFilter(@Value("${loadtest.latency.delay}") Duration delay,
+                                 @Value("${loadtest.latency.paths:}") List<String> paths) {
+        this.delay = delay;
+        this.paths = paths.stream().filter(path -> !path.isBlank()).toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.startsWith("/actuator") || (!paths.isEmpty() && paths.stream().noneMatch(uri::startsWith));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        chain.doFilter(request, response);
+    }
+}
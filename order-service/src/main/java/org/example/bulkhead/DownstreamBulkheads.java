@@ -0,0 +1,69 @@
+package org.example.bulkhead;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Bulkhead a semaforo per servizio a valle: limita le chiamate concorrenti indipendentemente dal numero di thread.
+// Con i virtual thread le richieste in ingresso non sono più limitate dal pool di Tomcat, quindi senza bulkhead
+// un servizio lento accumulerebbe chiamate senza limite. Oltre max-wait la chiamata fallisce con BulkheadFullException.
+// Configurazione: bulkheads.<servizio>.max-concurrent-calls e bulkheads.<servizio>.max-wait
+@Component
+public class DownstreamBulkheads {
+
+    public static final String PRODUCT_SERVICE = "product-service";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejected = new ConcurrentHashMap<>();
+
+    public DownstreamBulkheads(Environment environment, MeterRegistry meterRegistry) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> T call(String downstream, Supplier<T> call) {
+        try {
+            return bulkhead(downstream).executeSupplier(call);
+        } catch (BulkheadFullException e) {
+            rejected.get(downstream).increment();
+            throw e;
+        }
+    }
+
+    public void run(String downstream, Runnable call) {
+        call(downstream, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private Bulkhead bulkhead(String downstream) {
+        return bulkheads.computeIfAbsent(downstream, name -> {
+            BulkheadConfig config = BulkheadConfig.custom()
+                    .maxConcurrentCalls(environment.getProperty("bulkheads." + name + ".max-concurrent-calls", Integer.class, 100))
+                    .maxWaitDuration(environment.getProperty("bulkheads." + name + ".max-wait", Duration.class, Duration.ofMillis(250)))
+                    .build();
+            Bulkhead bulkhead = Bulkhead.of(name, config);
+
+            Gauge.builder("downstream.bulkhead.available", bulkhead, b -> b.getMetrics().getAvailableConcurrentCalls())
+                    .tag("downstream", name)
+                    .register(meterRegistry);
+            rejected.put(name, Counter.builder("downstream.bulkhead.rejected")
+                    .tag("downstream", name)
+                    .register(meterRegistry));
+            return bulkhead;
+        });
+    }
+}
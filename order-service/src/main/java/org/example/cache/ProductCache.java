@@ -0,0 +1,207 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.example.bulkhead.DownstreamBulkheads;
+import org.example.client.ProductClient;
+import org.example.dto.ProductChangeEvent;
+import org.example.dto.ProductResponse;
+import org.example.exception.ProductUnavailableException;
+import org.example.timing.ServerTiming;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Near-cache dei prodotti davanti al ProductClient: le entry scadono per TTL e dimensione massima
+// e vengono aggiornate dagli eventi di modifica inviati dal Product Service.
+// Se il Product Service non risponde si usa l'ultimo snapshot noto di ogni prodotto; senza snapshot l'ordine viene rifiutato.
+// Con i virtual thread attivi (spring.threads.virtual.enabled, Java 21) i carrelli grandi vengono letti a blocchi in parallelo,
+// un virtual thread per blocco; ogni chiamata passa dal bulkhead del Product Service.
+// Gli eventi di modifica possono arrivare fuori ordine (invio asincrono): si applica solo una versione più recente
+// dell'ultima vista, e una lettura dal Product Service iniziata prima di una modifica non entra in cache.
+@Component
+@Slf4j
+public class ProductCache {
+
+    private static final long UNVERSIONED = -1;
+
+    private final ProductClient productClient;
+    private final ProductSnapshotStore snapshotStore;
+    private final ServerTiming serverTiming;
+    private final DownstreamBulkheads bulkheads;
+    private final Executor parallelFetchExecutor;
+    private final int parallelBatchSize;
+    private final boolean enabled;
+    private final Cache<Long, ProductResponse> cache;
+    private final Cache<Long, Change> changes;
+    private final AtomicLong changeSequence = new AtomicLong();
+
+    public ProductCache(ProductClient productClient,
+                        ProductSnapshotStore snapshotStore,
+                        ServerTiming serverTiming,
+                        DownstreamBulkheads bulkheads,
+                        MeterRegistry meterRegistry,
+                        Environment environment,
+                        @Value("${product-cache.parallel-batch-size:50}") int parallelBatchSize,
+                        @Value("${product-cache.enabled:true}") boolean enabled,
+                        @Value("${product-cache.ttl:10m}") Duration ttl,
+                        @Value("${product-cache.maximum-size:10000}") long maximumSize) {
+        this.productClient = productClient;
+        this.snapshotStore = snapshotStore;
+        this.serverTiming = serverTiming;
+        this.bulkheads = bulkheads;
+        this.parallelFetchExecutor = Threading.VIRTUAL.isActive(environment)
+                ? new VirtualThreadTaskExecutor("product-fetch-")
+                : null;
+        this.parallelBatchSize = parallelBatchSize;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.changes = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maximumSize)
+                .build();
+
+        // Espone hit/miss/eviction su /actuator/metrics (cache.gets, cache.evictions, ...)
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+        log.info("Product near-cache {} (ttl={}, maximumSize={})", enabled ? "enabled" : "disabled", ttl, maximumSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<ProductResponse> getProductsByIds(List<Long> ids) {
+        if (!enabled) {
+            return fetch(ids, changeSequence.get()).products();
+        }
+
+        Map<Long, ProductResponse> cached = cache.getAllPresent(ids);
+        if (cached.size() == ids.size()) {
+            return new ArrayList<>(cached.values());
+        }
+
+        // Solo gli id mancanti vanno al Product Service, sempre in un'unica chiamata
+        List<Long> missingIds = ids.stream()
+                .filter(id -> !cached.containsKey(id))
+                .toList();
+        long readSequence = changeSequence.get();
+        Fetched fetched = fetch(missingIds, readSequence);
+
+        List<ProductResponse> products = new ArrayList<>(cached.values());
+        for (ProductResponse product : fetched.products()) {
+            // Gli snapshot usati durante un guasto non rientrano nella near-cache
+            if (!fetched.stale()) {
+                cache.asMap().compute(product.getId(),
+                        (id, current) -> changedSince(id, readSequence) ? current : product);
+            }
+            products.add(product);
+        }
+        return products;
+    }
+
+    // Restituisce false per un evento superato da uno già applicato. Il confronto e l'aggiornamento della cache
+    // avvengono nello stesso compute, quindi due eventi dello stesso prodotto non si sovrappongono.
+    public boolean onProductChange(ProductChangeEvent event) {
+        boolean deleted = event.getType() == ProductChangeEvent.ChangeType.DELETED;
+        // Un prodotto cancellato non torna: nessuna versione successiva può reinserirlo
+        long version = deleted ? Long.MAX_VALUE : event.getVersion() != null ? event.getVersion() : UNVERSIONED;
+        boolean[] applied = {false};
+        changes.asMap().compute(event.getProductId(), (productId, previous) -> {
+            if (previous != null && previous.version() >= version && version != UNVERSIONED) {
+                return previous;
+            }
+            // Senza versione (o senza prodotto) l'evento non si può ordinare: la entry viene solo invalidata
+            if (deleted || version == UNVERSIONED || event.getProduct() == null) {
+                cache.invalidate(productId);
+                snapshotStore.remove(productId);
+            } else {
+                cache.put(productId, event.getProduct());
+                snapshotStore.record(event.getProduct());
+            }
+            applied[0] = true;
+            return new Change(previous != null ? Math.max(previous.version(), version) : version,
+                    changeSequence.incrementAndGet());
+        });
+        return applied[0];
+    }
+
+    private boolean changedSince(Long productId, long readSequence) {
+        Change change = changes.getIfPresent(productId);
+        return change != null && change.sequence() > readSequence;
+    }
+
+    private Fetched fetch(List<Long> ids, long readSequence) {
+        try {
+            List<ProductResponse> products = fetchFromService(ids);
+            products.stream()
+                    .filter(product -> !changedSince(product.getId(), readSequence))
+                    .forEach(snapshotStore::record);
+            return new Fetched(products, false);
+        } catch (RuntimeException e) {
+            Map<Long, ProductResponse> snapshots = snapshotStore.find(ids);
+            if (snapshots.size() < ids.size()) {
+                List<Long> unknown = ids.stream()
+                        .filter(id -> !snapshots.containsKey(id))
+                        .toList();
+                throw new ProductUnavailableException(unknown, e);
+            }
+            log.warn("Product Service unavailable ({}), pricing {} products from last known snapshot",
+                    e.getMessage(), ids.size());
+            return new Fetched(new ArrayList<>(snapshots.values()), true);
+        }
+    }
+
+    // Ogni chiamata è un tratto "product-service"; i blocchi paralleli lo registrano dal proprio thread virtuale
+    // nella raccolta della richiesta, così l'header riporta il numero di chiamate e la loro durata complessiva
+    private List<ProductResponse> fetchFromService(List<Long> ids) {
+        if (parallelFetchExecutor == null || ids.size() <= parallelBatchSize) {
+            return fetchBatch(ids);
+        }
+
+        List<CompletableFuture<List<ProductResponse>>> batches = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += parallelBatchSize) {
+            List<Long> batch = ids.subList(i, Math.min(ids.size(), i + parallelBatchSize));
+            batches.add(CompletableFuture.supplyAsync(ServerTiming.propagate(() -> fetchBatch(batch)),
+                    parallelFetchExecutor));
+        }
+
+        // Tutto o niente come la chiamata singola: un blocco fallito porta al fallback sugli snapshot
+        List<ProductResponse> products = new ArrayList<>(ids.size());
+        try {
+            batches.forEach(batch -> products.addAll(batch.join()));
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        return products;
+    }
+
+    private List<ProductResponse> fetchBatch(List<Long> ids) {
+        return serverTiming.time("product-service", () -> bulkheads.call(DownstreamBulkheads.PRODUCT_SERVICE,
+                () -> productClient.getProductsByIds(ids)));
+    }
+
+    // Ultima modifica applicata: la versione ordina gli eventi, la sequenza dice se una lettura è iniziata prima
+    private record Change(long version, long sequence) {
+    }
+
+    private record Fetched(List<ProductResponse> products, boolean stale) {
+    }
+}
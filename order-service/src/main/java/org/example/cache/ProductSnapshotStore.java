@@ -0,0 +1,56 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.dto.ProductResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+// Ultima versione valida di ogni prodotto ricevuta dal Product Service, usata per prezzare gli ordini
+// quando il servizio non risponde. A differenza della near-cache non scade dopo pochi minuti:
+// il limite è sul numero di prodotti (eviction W-TinyLFU di Caffeine) e sull'età massima dello snapshot.
+@Component
+public class ProductSnapshotStore {
+
+    private final Cache<Long, ProductResponse> snapshots;
+    private final Counter staleServed;
+    private final Counter staleMissing;
+
+    public ProductSnapshotStore(MeterRegistry meterRegistry,
+                                @Value("${product-snapshots.maximum-size:100000}") long maximumSize,
+                                @Value("${product-snapshots.max-age:24h}") Duration maxAge) {
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxAge)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "product-snapshots");
+        this.staleServed = Counter.builder("products.stale.served")
+                .register(meterRegistry);
+        this.staleMissing = Counter.builder("products.stale.missing")
+                .register(meterRegistry);
+    }
+
+    public void record(ProductResponse product) {
+        snapshots.put(product.getId(), product);
+    }
+
+    public void remove(Long productId) {
+        snapshots.invalidate(productId);
+    }
+
+    public Map<Long, ProductResponse> find(Collection<Long> productIds) {
+        Map<Long, ProductResponse> found = snapshots.getAllPresent(productIds);
+        staleServed.increment(found.size());
+        staleMissing.increment(productIds.size() - found.size());
+        return found;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.client;
+
+import feign.RetryableException;
+import feign.Retryer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Retryer di Feign: backoff esponenziale con jitter, decisioni delegate a FeignRetryPolicy.
+// Feign ne crea una copia con clone() per ogni chiamata, quindi il numero di tentativi è per chiamata
+public class BudgetedRetryer implements Retryer {
+
+    private final FeignRetryPolicy policy;
+    private int attempt = 1;
+
+    public BudgetedRetryer(FeignRetryPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    public void continueOrPropagate(RetryableException e) {
+        Duration backoff = policy.nextRetry(e, attempt);
+        if (backoff == null) {
+            throw e;
+        }
+        attempt++;
+        try {
+            TimeUnit.NANOSECONDS.sleep(backoff.toNanos());
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    @Override
+    public Retryer clone() {
+        policy.beginCall();
+        return new BudgetedRetryer(policy);
+    }
+}
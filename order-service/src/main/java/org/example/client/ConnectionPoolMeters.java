@@ -0,0 +1,56 @@
+package org.example.client;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+
+// Gauge del pool di connessioni Reactor Netty, uno per host remoto:
+// product.client.pool.connections{state=active|idle|total}, product.client.pool.pending (acquisizioni in attesa)
+public class ConnectionPoolMeters implements ConnectionProvider.MeterRegistrar {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, List<Meter>> meters = new ConcurrentHashMap<>();
+
+    public ConnectionPoolMeters(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        Tags tags = Tags.of("pool", poolName, "remote", String.valueOf(remoteAddress));
+        meters.put(id, List.of(
+                connections(metrics, tags, "active", ConnectionPoolMetrics::acquiredSize),
+                connections(metrics, tags, "idle", ConnectionPoolMetrics::idleSize),
+                connections(metrics, tags, "total", ConnectionPoolMetrics::allocatedSize),
+                Gauge.builder("product.client.pool.pending", metrics, ConnectionPoolMetrics::pendingAcquireSize)
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder("product.client.pool.max.connections", metrics, ConnectionPoolMetrics::maxAllocatedSize)
+                        .tags(tags)
+                        .register(meterRegistry)));
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        List<Meter> removed = meters.remove(id);
+        if (removed != null) {
+            removed.forEach(meterRegistry::remove);
+        }
+    }
+
+    private Meter connections(ConnectionPoolMetrics metrics, Tags tags, String state,
+                              ToDoubleFunction<ConnectionPoolMetrics> value) {
+        return Gauge.builder("product.client.pool.connections", metrics, value)
+                .tags(tags.and("state", state))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.client;
+
+import feign.Request;
+import feign.RetryableException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+
+// Regole di retry condivise dai client Feign (e dal client WebClient del Product Service): solo metodi idempotenti,
+// entro il budget globale, mai con il circuit breaker del servizio aperto. Esito dei retry su /actuator/metrics/feign.client.retries
+@Component
+public class FeignRetryPolicy {
+
+    private static final Set<Request.HttpMethod> IDEMPOTENT_METHODS =
+            Set.of(Request.HttpMethod.GET, Request.HttpMethod.HEAD, Request.HttpMethod.OPTIONS);
+
+    // Retry già eseguiti dalla chiamata in corso: Feign esegue tentativi e retry sullo stesso thread
+    private static final ThreadLocal<int[]> RETRIES = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final Resilience4JCircuitBreakerFactory circuitBreakerFactory;
+    private final RetryBudget budget;
+    private final int maxAttempts;
+    private final Duration firstBackoff;
+    private final Duration maxBackoff;
+    private final Counter attempted;
+    private final Counter succeeded;
+    private final Counter suppressedByBudget;
+    private final Counter suppressedByCircuitBreaker;
+    private final Counter exhausted;
+
+    public FeignRetryPolicy(Resilience4JCircuitBreakerFactory circuitBreakerFactory,
+                            MeterRegistry meterRegistry,
+                            @Value("${product-client.retry.max-attempts:3}") int maxAttempts,
+                            @Value("${product-client.retry.first-backoff:50ms}") Duration firstBackoff,
+                            @Value("${product-client.retry.max-backoff:500ms}") Duration maxBackoff,
+                            @Value("${product-client.retry.budget-ratio:0.1}") double budgetRatio,
+                            @Value("${product-client.retry.min-retries-per-second:1}") double minRetriesPerSecond) {
+        this.circuitBreakerFactory = circuitBreakerFactory;
+        this.budget = new RetryBudget(budgetRatio, minRetriesPerSecond, 20);
+        this.maxAttempts = maxAttempts;
+        this.firstBackoff = firstBackoff;
+        this.maxBackoff = maxBackoff;
+
+        this.attempted = retries(meterRegistry, "attempted");
+        this.succeeded = retries(meterRegistry, "succeeded");
+        this.suppressedByBudget = retries(meterRegistry, "suppressed_budget");
+        this.suppressedByCircuitBreaker = retries(meterRegistry, "suppressed_circuit_breaker");
+        this.exhausted = retries(meterRegistry, "exhausted");
+        Gauge.builder("feign.client.retry.budget", budget, RetryBudget::available)
+                .register(meterRegistry);
+    }
+
+    private static Counter retries(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("feign.client.retries")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // Nome del circuit breaker di un client Feign: "product-service" -> "productService"
+    public static String circuitBreakerName(String feignClientName) {
+        StringBuilder name = new StringBuilder();
+        boolean upper = false;
+        for (char c : feignClientName.toCharArray()) {
+            if (c == '-' || c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    public void beginCall() {
+        RETRIES.get()[0] = 0;
+    }
+
+    // Restituisce l'attesa prima del retry, oppure null se la chiamata deve fallire subito
+    public Duration nextRetry(RetryableException e, int attempt) {
+        boolean idempotent = e.method() != null && IDEMPOTENT_METHODS.contains(e.method());
+        Duration backoff = nextRetry(idempotent, isCircuitClosed(e.request()), attempt);
+        if (backoff != null) {
+            RETRIES.get()[0]++;
+        }
+        return backoff;
+    }
+
+    // Variante indipendente da Feign: il chiamante indica se la richiesta è idempotente e lo stato del circuito
+    public Duration nextRetry(boolean idempotent, boolean circuitClosed, int attempt) {
+        if (!idempotent) {
+            return null;
+        }
+        if (attempt >= maxAttempts) {
+            exhausted.increment();
+            return null;
+        }
+        if (!circuitClosed) {
+            suppressedByCircuitBreaker.increment();
+            return null;
+        }
+        if (!budget.tryWithdraw()) {
+            suppressedByBudget.increment();
+            return null;
+        }
+        attempted.increment();
+        return RetryBudget.backoff(firstBackoff, maxBackoff, attempt);
+    }
+
+    public void onSuccess() {
+        int[] retries = RETRIES.get();
+        onSuccess(retries[0] > 0);
+        retries[0] = 0;
+    }
+
+    public void onSuccess(boolean retried) {
+        budget.onSuccess();
+        if (retried) {
+            succeeded.increment();
+        }
+    }
+
+    public boolean isCircuitClosed(String circuitBreakerName) {
+        return circuitBreakerFactory.getCircuitBreakerRegistry().find(circuitBreakerName)
+                .map(CircuitBreaker::getState)
+                .map(state -> state == CircuitBreaker.State.CLOSED
+                        || state == CircuitBreaker.State.DISABLED
+                        || state == CircuitBreaker.State.METRICS_ONLY)
+                .orElse(true);
+    }
+
+    private boolean isCircuitClosed(Request request) {
+        if (request == null || request.requestTemplate() == null || request.requestTemplate().feignTarget() == null) {
+            return true;
+        }
+        return isCircuitClosed(circuitBreakerName(request.requestTemplate().feignTarget().name()));
+    }
+}
@@ -1,26 +1,46 @@
 package org.example.client;
 
 import org.example.dto.ProductResponse;
+import org.example.dto.StockItemRequest;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
-@FeignClient(name = "product-service")
+import java.util.List;
+
+// primary = false: con product-client.type=webclient il bean primario è ReactiveProductClient
+@FeignClient(name = "product-service", primary = false)
 public interface ProductClient {
-    
+
+    // Senza fallback a prezzo zero: in caso di errore ProductCache usa l'ultimo prezzo noto (ProductSnapshotStore)
     @GetMapping("/products/{id}")
-    @CircuitBreaker(name = "productService", fallbackMethod = "getDefaultProduct")
+    @CircuitBreaker(name = "productService")
     ProductResponse getProductById(@PathVariable("id") Long id);
-    
-    default ProductResponse getDefaultProduct(Long id, Throwable e) {
-        return ProductResponse.builder()
-                .id(id)
-                .name("Fallback Product")
-                .description("This is a fallback product when service is down")
-                .price(java.math.BigDecimal.ZERO)
-                .stock(0)
-                .category("Fallback")
-                .build();
-    }
-}
\ No newline at end of file
+
+    // Recupera tutti i prodotti di un carrello con un solo round trip
+    @GetMapping("/products/batch")
+    @CircuitBreaker(name = "productService")
+    List<ProductResponse> getProductsByIds(@RequestParam("ids") List<Long> ids);
+
+    // Prenotazione tutto-o-niente delle giacenze: senza fallback, un errore deve far fallire l'ordine.
+    // Il reservationId (il numero d'ordine) rende la prenotazione idempotente e permette di rilasciarla per id
+    @PostMapping("/products/stock/reserve")
+    @CircuitBreaker(name = "productService")
+    void reserveStock(@RequestParam("reservationId") String reservationId, @RequestBody List<StockItemRequest> items);
+
+    // Con reservationId restituisce solo quanto quella prenotazione ha scalato; senza, le quantità indicate
+    @PostMapping("/products/stock/release")
+    @CircuitBreaker(name = "productService")
+    void releaseStock(@RequestParam(value = "reservationId", required = false) String reservationId,
+                      @RequestBody List<StockItemRequest> items);
+
+    // Restituisce le quantità indicate una sola volta per releaseId (es. l'annullamento di un ordine), anche se la
+    // richiesta viene ripetuta dopo un timeout o dopo il rollback del cambio di stato
+    @PostMapping("/products/stock/release")
+    @CircuitBreaker(name = "productService")
+    void releaseStockOnce(@RequestParam("releaseId") String releaseId, @RequestBody List<StockItemRequest> items);
+}
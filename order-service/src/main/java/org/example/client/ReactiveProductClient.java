@@ -0,0 +1,158 @@
+package org.example.client;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import org.example.config.Resilience4jConfig;
+import org.example.dto.ProductResponse;
+import org.example.dto.StockItemRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Client non bloccante del Product Service (product-client.type=webclient), alternativo al client Feign.
+// Stesso circuit breaker "productService" e stesso time limiter, stesse regole e stesso budget dei retry:
+// gli errori arrivano al chiamante come con Feign (ProductCache ripiega sull'ultimo prezzo noto).
+// I metodi di ProductClient attendono il risultato sul thread chiamante, ma l'I/O e i backoff
+// restano sugli event loop di Netty e non occupano thread dedicati.
+@Component
+@Primary
+@ConditionalOnProperty(name = "product-client.type", havingValue = "webclient")
+public class ReactiveProductClient implements ProductClient {
+
+    private static final String CIRCUIT_BREAKER = "productService";
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+    private static final ParameterizedTypeReference<List<ProductResponse>> PRODUCT_LIST =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final WebClient webClient;
+    private final FeignRetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final TimeLimiter timeLimiter;
+
+    public ReactiveProductClient(WebClient productServiceWebClient,
+                                 FeignRetryPolicy retryPolicy,
+                                 Resilience4JCircuitBreakerFactory circuitBreakerFactory) {
+        this.webClient = productServiceWebClient;
+        this.retryPolicy = retryPolicy;
+        // Stessa istanza del registry usata dal percorso Feign: stato e metriche del circuito restano condivisi
+        this.circuitBreaker = circuitBreakerFactory.getCircuitBreakerRegistry()
+                .circuitBreaker(CIRCUIT_BREAKER, Resilience4jConfig.productServiceCircuitBreakerConfig());
+        this.timeLimiter = TimeLimiter.of(CIRCUIT_BREAKER, Resilience4jConfig.productServiceTimeLimiterConfig());
+    }
+
+    public Mono<ProductResponse> fetchProductById(Long id) {
+        return call(() -> webClient.get()
+                .uri("/products/{id}", id)
+                .retrieve()
+                .bodyToMono(ProductResponse.class), true);
+    }
+
+    public Mono<List<ProductResponse>> fetchProductsByIds(List<Long> ids) {
+        return call(() -> webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/products/batch")
+                        .queryParam("ids", ids.toArray())
+                        .build())
+                .retrieve()
+                .bodyToMono(PRODUCT_LIST), true);
+    }
+
+    public Mono<Void> reserveStockAsync(String reservationId, List<StockItemRequest> items) {
+        return post("/products/stock/reserve", "reservationId", reservationId, items);
+    }
+
+    public Mono<Void> releaseStockAsync(String reservationId, List<StockItemRequest> items) {
+        return post("/products/stock/release", "reservationId", reservationId, items);
+    }
+
+    public Mono<Void> releaseStockOnceAsync(String releaseId, List<StockItemRequest> items) {
+        return post("/products/stock/release", "releaseId", releaseId, items);
+    }
+
+    @Override
+    public ProductResponse getProductById(Long id) {
+        return fetchProductById(id).block();
+    }
+
+    @Override
+    public List<ProductResponse> getProductsByIds(List<Long> ids) {
+        return fetchProductsByIds(ids).block();
+    }
+
+    @Override
+    public void reserveStock(String reservationId, List<StockItemRequest> items) {
+        reserveStockAsync(reservationId, items).block();
+    }
+
+    @Override
+    public void releaseStock(String reservationId, List<StockItemRequest> items) {
+        releaseStockAsync(reservationId, items).block();
+    }
+
+    @Override
+    public void releaseStockOnce(String releaseId, List<StockItemRequest> items) {
+        releaseStockOnceAsync(releaseId, items).block();
+    }
+
+    private Mono<Void> post(String path, String idParam, String id, List<StockItemRequest> items) {
+        return call(() -> webClient.post()
+                .uri(uriBuilder -> uriBuilder
+                        .path(path)
+                        .queryParamIfPresent(idParam, Optional.ofNullable(id))
+                        .build())
+                .bodyValue(items)
+                .retrieve()
+                .toBodilessEntity()
+                .then(), false);
+    }
+
+    // Come con Feign il circuit breaker avvolge il time limiter, che a sua volta copre tentativi e retry
+    private <T> Mono<T> call(Supplier<Mono<T>> request, boolean idempotent) {
+        return Mono.defer(() -> attempt(request, idempotent, 1))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private <T> Mono<T> attempt(Supplier<Mono<T>> request, boolean idempotent, int attempt) {
+        return request.get()
+                .doOnSuccess(result -> retryPolicy.onSuccess(attempt > 1))
+                .onErrorResume(e -> {
+                    if (e instanceof WebClientResponseException response && response.getStatusCode().value() < 500) {
+                        // Il servizio ha risposto: alimenta il budget come le risposte 4xx di Feign
+                        retryPolicy.onSuccess(attempt > 1);
+                        return Mono.error(e);
+                    }
+                    Duration backoff = isRetryable(e)
+                            ? retryPolicy.nextRetry(idempotent, retryPolicy.isCircuitClosed(CIRCUIT_BREAKER), attempt)
+                            : null;
+                    if (backoff == null) {
+                        return Mono.error(e);
+                    }
+                    return Mono.delay(backoff).then(Mono.defer(() -> attempt(request, idempotent, attempt + 1)));
+                });
+    }
+
+    // Errori di rete e 502/503/504, gli stessi che il client Feign rende ritentabili
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof WebClientRequestException) {
+            return true;
+        }
+        return e instanceof WebClientResponseException response
+                && RETRYABLE_STATUSES.contains(response.getStatusCode().value());
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.config;
+
+import feign.FeignException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.util.function.Predicate;
+
+// Le risposte 4xx del Product Service (ad esempio il 409 di giacenza insufficiente) sono esiti applicativi:
+// il circuit breaker "productService" le ignora, sia dal client Feign sia da ReactiveProductClient.
+public class ClientErrorPredicate implements Predicate<Throwable> {
+
+    @Override
+    public boolean test(Throwable throwable) {
+        return clientErrorStatus(throwable) != 0;
+    }
+
+    // Stato 4xx della prima risposta del Product Service nella catena delle cause, 0 se non ce n'è
+    public static int clientErrorStatus(Throwable throwable) {
+        for (Throwable e = throwable; e != null; e = e.getCause()) {
+            if (e instanceof FeignException feign && feign.status() >= 400 && feign.status() < 500) {
+                return feign.status();
+            }
+            if (e instanceof WebClientResponseException response && response.getStatusCode().is4xxClientError()) {
+                return response.getStatusCode().value();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,74 @@
+package org.example.config;
+
+import feign.Capability;
+import feign.Client;
+import feign.Response;
+import feign.RetryableException;
+import feign.Retryer;
+import feign.codec.ErrorDecoder;
+import org.example.client.BudgetedRetryer;
+import org.example.client.FeignRetryPolicy;
+import org.springframework.cloud.openfeign.CircuitBreakerNameResolver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+@Configuration
+public class FeignRetryConfig {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(502, 503, 504);
+
+    @Bean
+    public Retryer budgetedRetryer(FeignRetryPolicy policy) {
+        return new BudgetedRetryer(policy);
+    }
+
+    // Feign ritenta solo le RetryableException: 502/503/504 diventano ritentabili (il retryer filtra i metodi non idempotenti)
+    @Bean
+    public ErrorDecoder retryableStatusErrorDecoder() {
+        ErrorDecoder delegate = new ErrorDecoder.Default();
+        return (methodKey, response) -> {
+            Exception exception = delegate.decode(methodKey, response);
+            if (exception instanceof RetryableException || !RETRYABLE_STATUSES.contains(response.status())) {
+                return exception;
+            }
+            return new RetryableException(response.status(), exception.getMessage(),
+                    response.request().httpMethod(), exception, (Long) null, response.request());
+        };
+    }
+
+    // Le risposte senza errore alimentano il budget dei retry
+    @Bean
+    public Capability retryBudgetCapability(FeignRetryPolicy policy) {
+        return new RetryBudgetCapability(policy);
+    }
+
+    // Classe pubblica e non anonima: Feign invoca enrich via reflection e non può accedere a una classe anonima
+    public static class RetryBudgetCapability implements Capability {
+
+        private final FeignRetryPolicy policy;
+
+        public RetryBudgetCapability(FeignRetryPolicy policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public Client enrich(Client client) {
+            return (request, options) -> {
+                Response response = client.execute(request, options);
+                if (response.status() < 500) {
+                    policy.onSuccess();
+                }
+                return response;
+            };
+        }
+    }
+
+    // Un circuit breaker per client ("productService") invece di uno per metodo: lo stato è quello
+    // configurato in Resilience4jConfig e il retryer può consultarlo prima di ritentare
+    @Bean
+    public CircuitBreakerNameResolver circuitBreakerNameResolver() {
+        return (feignClientName, target, method) -> FeignRetryPolicy.circuitBreakerName(feignClientName);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.example.client.ConnectionPoolMeters;
+import org.example.loadbalancer.InFlightExchangeFilterFunction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+
+// WebClient del Product Service (product-client.type=webclient): pool di connessioni dedicato e limitato per host,
+// keep-alive HTTP/1.1 oppure HTTP/2 in chiaro (h2c) con un'unica connessione multiplexata per istanza.
+// Le istanze sono scelte dallo stesso load balancer usato da Feign.
+@Configuration
+@ConditionalOnProperty(name = "product-client.type", havingValue = "webclient")
+public class ProductWebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider productServiceConnectionProvider(
+            MeterRegistry meterRegistry,
+            @Value("${product-client.webclient.max-connections:50}") int maxConnections,
+            @Value("${product-client.webclient.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${product-client.webclient.pending-acquire-timeout:1s}") Duration pendingAcquireTimeout,
+            @Value("${product-client.webclient.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${product-client.webclient.max-life-time:5m}") Duration maxLifeTime) {
+        // maxConnections e la coda di attesa valgono per ogni host remoto (un pool per istanza del servizio)
+        return ConnectionProvider.builder("product-service")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true, () -> new ConnectionPoolMeters(meterRegistry))
+                .build();
+    }
+
+    @Bean
+    public WebClient productServiceWebClient(
+            WebClient.Builder webClientBuilder,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            ConnectionProvider productServiceConnectionProvider,
+            @Value("${product-client.webclient.protocol:http11}") String protocol,
+            @Value("${product-client.webclient.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${product-client.webclient.response-timeout:2s}") Duration responseTimeout) {
+        // h2c passa per l'upgrade da HTTP/1.1, quindi funziona anche verso istanze senza HTTP/2
+        HttpProtocol[] protocols = "h2c".equalsIgnoreCase(protocol)
+                ? new HttpProtocol[]{HttpProtocol.H2C, HttpProtocol.HTTP11}
+                : new HttpProtocol[]{HttpProtocol.HTTP11};
+
+        HttpClient httpClient = HttpClient.create(productServiceConnectionProvider)
+                .protocol(protocols)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+
+        // Filtro di bilanciamento senza retry propri: i retry sono solo quelli con budget di FeignRetryPolicy
+        return webClientBuilder.clone()
+                .baseUrl("http://product-service")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter(new InFlightExchangeFilterFunction(
+                        new ReactorLoadBalancerExchangeFilterFunction(loadBalancerClientFactory, List.of())))
+                .build();
+    }
+}
@@ -39,23 +39,31 @@ public class Resilience4jConfig {
 
     @Bean
     public Customizer<Resilience4JCircuitBreakerFactory> productServiceCustomizer() {
-        // Configurazione specifica per il servizio product
-        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+        CircuitBreakerConfig circuitBreakerConfig = productServiceCircuitBreakerConfig();
+        TimeLimiterConfig timeLimiterConfig = productServiceTimeLimiterConfig();
+
+        return factory -> factory.configure(builder -> builder
+                        .circuitBreakerConfig(circuitBreakerConfig)
+                        .timeLimiterConfig(timeLimiterConfig),
+                "productService"); // Nome del circuit breaker
+    }
+
+    // Configurazione specifica per il servizio product, usata anche dal client WebClient (ReactiveProductClient)
+    public static CircuitBreakerConfig productServiceCircuitBreakerConfig() {
+        return CircuitBreakerConfig.custom()
                 .failureRateThreshold(30)                // Threshold più basso per product service
                 .waitDurationInOpenState(Duration.ofMillis(3000))
                 .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
                 .slidingWindowSize(5)
                 .permittedNumberOfCallsInHalfOpenState(2)
                 .minimumNumberOfCalls(3)
+                .ignoreException(new ClientErrorPredicate()) // Un 409 sulla prenotazione non è un guasto
                 .build();
+    }
 
-        TimeLimiterConfig timeLimiterConfig = TimeLimiterConfig.custom()
+    public static TimeLimiterConfig productServiceTimeLimiterConfig() {
+        return TimeLimiterConfig.custom()
                 .timeoutDuration(Duration.ofSeconds(2))  // Timeout più breve per product service
                 .build();
-
-        return factory -> factory.configure(builder -> builder
-                        .circuitBreakerConfig(circuitBreakerConfig)
-                        .timeLimiterConfig(timeLimiterConfig),
-                "productService"); // Nome del circuit breaker
     }
 }
\ No newline at end of file
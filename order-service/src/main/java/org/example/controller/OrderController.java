@@ -1,14 +1,23 @@
 package org.example.controller;
 
-import com.example.orderservice.dto.OrderRequest;
-import com.example.orderservice.dto.OrderResponse;
-import com.example.orderservice.model.Order;
-import com.example.orderservice.service.OrderService;
+import org.example.config.ClientErrorPredicate;
+import org.example.dto.CursorPage;
+import org.example.dto.OrderRequest;
+import org.example.dto.OrderResponse;
+import org.example.intake.OrderIntake;
+import org.example.model.Order;
+import org.example.service.OrderService;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.HashMap;
 import java.util.List;
@@ -19,13 +28,32 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final OrderService orderService;
+    private final OrderIntake orderIntake;
 
     @PostMapping
-    @ResponseStatus(HttpStatus.CREATED)
     @CircuitBreaker(name = "orderService", fallbackMethod = "createOrderFallback")
-    public OrderResponse createOrder(@RequestBody OrderRequest orderRequest) {
-        return orderService.createOrder(orderRequest);
+    public ResponseEntity<OrderResponse> createOrder(@RequestBody OrderRequest orderRequest) {
+        if (!orderIntake.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.CREATED).body(orderService.createOrder(orderRequest));
+        }
+
+        // Modalità asincrona: l'ordine viene accodato e lo stato è consultabile tramite il numero ordine
+        if (!OrderIntake.isValid(orderRequest)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return orderIntake.submit(orderRequest)
+                .map(pending -> ResponseEntity.accepted()
+                        .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                .path("/orders/number/{orderNumber}")
+                                .buildAndExpand(pending.getOrderNumber())
+                                .toUri())
+                        .body(pending))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build());
     }
 
     @GetMapping
@@ -34,6 +62,22 @@ public class OrderController {
         return orderService.getAllOrders();
     }
     
+    // Paginazione keyset: ?after=<ultimo id ricevuto>&limit=<n>
+    @GetMapping("/page")
+    @ResponseStatus(HttpStatus.OK)
+    public CursorPage<OrderResponse> getOrdersPage(@RequestParam(defaultValue = "0") Long after,
+                                                   @RequestParam(defaultValue = "50") int limit) {
+        return orderService.getOrdersPage(after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        StreamingResponseBody body = orderService::exportOrders;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     public OrderResponse getOrderById(@PathVariable Long id) {
@@ -43,7 +87,9 @@ public class OrderController {
     @GetMapping("/number/{orderNumber}")
     @ResponseStatus(HttpStatus.OK)
     public OrderResponse getOrderByOrderNumber(@PathVariable String orderNumber) {
-        return orderService.getOrderByOrderNumber(orderNumber);
+        // Gli ordini ancora in coda vengono restituiti in stato PENDING
+        return orderIntake.findPending(orderNumber)
+                .orElseGet(() -> orderService.getOrderByOrderNumber(orderNumber));
     }
     
     @GetMapping("/customer/{email}")
@@ -59,16 +105,27 @@ public class OrderController {
         return orderService.updateOrderStatus(id, status);
     }
     
-    // Fallback method per Circuit Breaker
-    public OrderResponse createOrderFallback(OrderRequest orderRequest, Throwable e) {
+    // Fallback method per Circuit Breaker: solo per i guasti di infrastruttura. I rifiuti applicativi (prodotto
+    // sconosciuto o senza prezzo noto, giacenza insufficiente, altri 4xx del Product Service) arrivano al client
+    // con il loro stato
+    public ResponseEntity<OrderResponse> createOrderFallback(OrderRequest orderRequest, Throwable e) throws Throwable {
+        if (isRefusal(e)) {
+            throw e;
+        }
         // In un'implementazione reale, si potrebbe salvare l'ordine in uno stato di "pending"
-        // o implementare un sistema di coda per ritentare più tardi
-        return OrderResponse.builder()
+        // o implementare un sistema di coda per ritentare più tardi (vedi orders.intake.mode=async)
+        return ResponseEntity.status(HttpStatus.CREATED).body(OrderResponse.builder()
                 .orderNumber("FALLBACK-" + System.currentTimeMillis())
                 .status(Order.OrderStatus.CANCELLED)
-                .build();
+                .build());
     }
     
+    private static boolean isRefusal(Throwable e) {
+        return e instanceof ResponseStatusException
+                || AnnotatedElementUtils.hasAnnotation(e.getClass(), ResponseStatus.class)
+                || ClientErrorPredicate.clientErrorStatus(e) != 0;
+    }
+
     // Endpoint di test per simulare problemi (utile per testare Circuit Breaker)
     @GetMapping("/test-error")
     public ResponseEntity<Object> testError(@RequestParam(defaultValue = "false") boolean throwError, 
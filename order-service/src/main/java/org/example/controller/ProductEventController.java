@@ -0,0 +1,52 @@
+package org.example.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.cache.ProductCache;
+import org.example.dto.ProductChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+// Riceve gli eventi di modifica pubblicati dal Product Service per mantenere aggiornata la near-cache.
+// Il path è raggiungibile anche dal discovery locator del gateway (/order-service/product-events): gli eventi
+// sono accettati solo con il token condiviso product-events.token. Senza token configurato sono tutti rifiutati
+// e la near-cache si aggiorna solo alla scadenza del TTL.
+@RestController
+@RequestMapping("/product-events")
+@Slf4j
+public class ProductEventController {
+
+    static final String TOKEN_HEADER = "X-Product-Events-Token";
+
+    private final ProductCache productCache;
+    private final byte[] token;
+
+    public ProductEventController(ProductCache productCache, @Value("${product-events.token:}") String token) {
+        this.productCache = productCache;
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        if (token.isBlank()) {
+            log.warn("product-events.token is not set: product change events will be rejected");
+        }
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void onProductChange(@RequestHeader(value = TOKEN_HEADER, required = false) String eventToken,
+                                @RequestBody ProductChangeEvent event) {
+        // Confronto a tempo costante: la durata della risposta non rivela il prefisso corretto del token
+        if (token.length == 0 || eventToken == null
+                || !MessageDigest.isEqual(token, eventToken.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        // Le notifiche sono asincrone e possono arrivare fuori ordine: ProductCache scarta le versioni superate
+        if (productCache.onProductChange(event)) {
+            log.debug("Product {} {} (version {}) applied to near-cache", event.getProductId(), event.getType(), event.getVersion());
+        } else {
+            log.debug("Product {} {} (version {}) is stale, ignored", event.getProductId(), event.getType(), event.getVersion());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.example.dto;
 
-import com.example.orderservice.model.Order;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.example.model.Order;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,4 +25,7 @@ public class OrderResponse {
     private BigDecimal totalAmount;
     private Order.OrderStatus status;
     private List<OrderItemResponse> orderItems;
+    // Versione dell'ordine: il modello di lettura non sostituisce una vista con una più vecchia
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
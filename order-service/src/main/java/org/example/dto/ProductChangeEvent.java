@@ -0,0 +1,21 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangeEvent {
+    private Long productId;
+    private ChangeType type;
+    private ProductResponse product;
+    private Long version;
+
+    public enum ChangeType {
+        CREATED, UPDATED, DELETED
+    }
+}
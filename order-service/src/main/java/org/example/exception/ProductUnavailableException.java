@@ -0,0 +1,14 @@
+package org.example.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.Collection;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ProductUnavailableException extends RuntimeException {
+
+    public ProductUnavailableException(Collection<Long> productIds, Throwable cause) {
+        super("Product Service unavailable and no known price for products: " + productIds, cause);
+    }
+}
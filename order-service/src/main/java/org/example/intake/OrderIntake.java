@@ -0,0 +1,224 @@
+package org.example.intake;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.OrderItemRequest;
+import org.example.dto.OrderRequest;
+import org.example.dto.OrderResponse;
+import org.example.model.Order;
+import org.example.service.OrderService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Intake asincrono degli ordini: il controller accoda e risponde 202, un thread consumer
+// prezza e salva gli ordini a blocchi (write-behind). Allo shutdown la coda viene svuotata prima di fermarsi.
+@Component
+@Slf4j
+public class OrderIntake implements SmartLifecycle {
+
+    private static final Duration RETRY_DELAY = Duration.ofMillis(500);
+
+    private final OrderService orderService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration shutdownTimeout;
+    private final RingBuffer<PendingOrder> queue;
+    private final Map<String, PendingOrder> inFlight = new ConcurrentHashMap<>();
+    private final Counter rejected;
+    private final Timer lag;
+
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile Thread consumer;
+
+    public OrderIntake(OrderService orderService,
+                       MeterRegistry meterRegistry,
+                       @Value("${orders.intake.mode:sync}") String mode,
+                       @Value("${orders.intake.capacity:4096}") int capacity,
+                       @Value("${orders.intake.batch-size:64}") int batchSize,
+                       @Value("${orders.intake.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.orderService = orderService;
+        this.enabled = "async".equalsIgnoreCase(mode);
+        this.batchSize = batchSize;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new RingBuffer<>(capacity);
+
+        Gauge.builder("orders.intake.queue.depth", queue, RingBuffer::size)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.intake.rejected")
+                .register(meterRegistry);
+        this.lag = Timer.builder("orders.intake.lag")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean isValid(OrderRequest orderRequest) {
+        return orderRequest.getCustomerEmail() != null && !orderRequest.getCustomerEmail().isBlank()
+                && orderRequest.getOrderItems() != null && !orderRequest.getOrderItems().isEmpty()
+                && orderRequest.getOrderItems().stream().allMatch(OrderIntake::isValid);
+    }
+
+    private static boolean isValid(OrderItemRequest item) {
+        return item.getProductId() != null && item.getQuantity() != null && item.getQuantity() > 0;
+    }
+
+    // Restituisce l'ordine in stato PENDING, oppure vuoto se la coda è piena (backpressure)
+    public Optional<OrderResponse> submit(OrderRequest orderRequest) {
+        if (!accepting) {
+            rejected.increment();
+            return Optional.empty();
+        }
+
+        PendingOrder pendingOrder = new PendingOrder(
+                UUID.randomUUID().toString(), orderRequest, LocalDateTime.now(), System.nanoTime());
+        inFlight.put(pendingOrder.orderNumber(), pendingOrder);
+        if (!queue.offer(pendingOrder)) {
+            inFlight.remove(pendingOrder.orderNumber());
+            rejected.increment();
+            return Optional.empty();
+        }
+
+        LockSupport.unpark(consumer);
+        return Optional.of(toPendingResponse(pendingOrder));
+    }
+
+    public Optional<OrderResponse> findPending(String orderNumber) {
+        return Optional.ofNullable(inFlight.get(orderNumber)).map(this::toPendingResponse);
+    }
+
+    private void consume() {
+        while (running || queue.size() > 0) {
+            Map<String, OrderRequest> batch = new LinkedHashMap<>();
+            List<PendingOrder> drained = new ArrayList<>(batchSize);
+            PendingOrder pendingOrder;
+            while (drained.size() < batchSize && (pendingOrder = queue.poll()) != null) {
+                drained.add(pendingOrder);
+                batch.put(pendingOrder.orderNumber(), pendingOrder.orderRequest());
+            }
+
+            if (drained.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+                continue;
+            }
+
+            List<PendingOrder> requeued = new ArrayList<>();
+            try {
+                orderService.createOrders(batch);
+            } catch (RuntimeException e) {
+                // Il blocco non è stato salvato: gli ordini vengono ritentati singolarmente
+                log.error("Failed to persist batch of {} orders, retrying one by one", drained.size(), e);
+                drained.stream()
+                        .filter(order -> !persistAlone(order) && requeue(order))
+                        .forEach(requeued::add);
+            }
+
+            long now = System.nanoTime();
+            drained.stream()
+                    .filter(order -> !requeued.contains(order))
+                    .forEach(order -> {
+                        inFlight.remove(order.orderNumber());
+                        lag.record(now - order.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+                    });
+            if (!requeued.isEmpty()) {
+                // Probabilmente il database non è disponibile: pausa prima di riprovare
+                LockSupport.parkNanos(RETRY_DELAY.toNanos());
+            }
+        }
+    }
+
+    // Un ordine accettato con 202 non viene scartato: se non si riesce a crearlo viene salvato come CANCELLED
+    private boolean persistAlone(PendingOrder order) {
+        try {
+            orderService.createOrders(Map.of(order.orderNumber(), order.orderRequest()));
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Order {} could not be created, saving it as cancelled", order.orderNumber(), e);
+        }
+        try {
+            orderService.saveCancelledOrder(order.orderNumber(), order.orderRequest());
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Order {} could not be saved", order.orderNumber(), e);
+            return false;
+        }
+    }
+
+    // Se nemmeno l'annullamento si può salvare l'ordine torna in coda e resta visibile come PENDING.
+    // Durante lo shutdown o con la coda piena non c'è altro da fare che registrarne la perdita.
+    private boolean requeue(PendingOrder order) {
+        if (running && queue.offer(order)) {
+            return true;
+        }
+        log.error("Order {} accepted as pending is lost", order.orderNumber());
+        return false;
+    }
+
+    private OrderResponse toPendingResponse(PendingOrder pendingOrder) {
+        OrderRequest request = pendingOrder.orderRequest();
+        return OrderResponse.builder()
+                .orderNumber(pendingOrder.orderNumber())
+                .orderDate(pendingOrder.orderDate())
+                .customerName(request.getCustomerName())
+                .customerEmail(request.getCustomerEmail())
+                .shippingAddress(request.getShippingAddress())
+                .status(Order.OrderStatus.PENDING)
+                .orderItems(List.of())
+                .build();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        accepting = true;
+        consumer = new Thread(this::consume, "order-intake");
+        consumer.start();
+        log.info("Async order intake started (capacity={}, batchSize={})", queue.capacity(), batchSize);
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        accepting = false;
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            // Attende che il consumer salvi gli ordini ancora in coda
+            consumer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queue.size() > 0) {
+            log.warn("Async order intake stopped with {} orders still queued", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.intake;
+
+import org.example.dto.OrderRequest;
+
+import java.time.LocalDateTime;
+
+public record PendingOrder(String orderNumber, OrderRequest orderRequest, LocalDateTime orderDate,
+                           long enqueuedAtNanos) {
+}
@@ -11,7 +11,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+// Indici per le letture per numero ordine e per cliente quando il modello di lettura non risponde
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_number", columnList = "order_number", unique = true),
+        @Index(name = "idx_orders_customer_email", columnList = "customer_email")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -19,7 +23,9 @@ import java.util.List;
 public class Order {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequence con allocazione a blocchi: a differenza di IDENTITY consente il batching JDBC degli insert
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_seq")
+    @SequenceGenerator(name = "order_seq", sequenceName = "order_seq", allocationSize = 50)
     private Long id;
     
     private String orderNumber;
@@ -34,8 +40,12 @@ public class Order {
     
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "order")
     private List<OrderItem> orderItems;
+
+    // Contatore delle modifiche: ordina gli aggiornamenti del modello di lettura e rifiuta i cambi di stato concorrenti
+    @Version
+    private Long version;
     
     public enum OrderStatus {
-        CREATED, PROCESSING, SHIPPED, DELIVERED, CANCELLED
+        PENDING, CREATED, PROCESSING, SHIPPED, DELIVERED, CANCELLED
     }
 }
\ No newline at end of file
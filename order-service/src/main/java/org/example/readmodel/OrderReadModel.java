@@ -0,0 +1,113 @@
+package org.example.readmodel;
+
+import org.example.dto.OrderResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Modello di lettura degli ordini (lato query CQRS): le OrderResponse già pronte indicizzate per numero ordine
+// e per email del cliente, aggiornate da OrderService dopo il commit di creazioni e cambi di stato.
+// Le letture non prendono lock; le scritture e la ricostruzione dalla tabella sono serializzate. Durante una
+// ricostruzione le scritture vanno anche nelle viste nuove e prevalgono sulle righe lette dalla tabella.
+// Gli aggiornamenti dopo il commit possono arrivare in ordine diverso da quello dei commit: una vista con una
+// versione più vecchia di quella già presente viene scartata.
+@Component
+public class OrderReadModel {
+
+    private final boolean enabled;
+
+    private volatile Views views = new Views();
+    private Views rebuilding;
+
+    public OrderReadModel(@Value("${orders.read-model.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public OrderResponse findByOrderNumber(String orderNumber) {
+        return views.byOrderNumber.get(orderNumber);
+    }
+
+    // Ordini del cliente in ordine di id, come la query sulla tabella
+    public List<OrderResponse> findByCustomerEmail(String customerEmail) {
+        NavigableMap<Long, OrderResponse> orders = views.byCustomerEmail.get(customerEmail);
+        return orders == null ? List.of() : new ArrayList<>(orders.values());
+    }
+
+    public synchronized void apply(Collection<OrderResponse> orders) {
+        for (OrderResponse order : orders) {
+            views.put(order);
+            if (rebuilding != null) {
+                rebuilding.put(order);
+            }
+        }
+    }
+
+    public synchronized void beginRebuild() {
+        if (rebuilding != null) {
+            throw new IllegalStateException("Order read model rebuild already in progress");
+        }
+        rebuilding = new Views();
+    }
+
+    // Una riga letta dalla tabella non sostituisce una scrittura arrivata dopo l'inizio della ricostruzione
+    public synchronized void rebuildPage(Collection<OrderResponse> orders) {
+        for (OrderResponse order : orders) {
+            if (!rebuilding.byOrderNumber.containsKey(order.getOrderNumber())) {
+                rebuilding.put(order);
+            }
+        }
+    }
+
+    public synchronized int completeRebuild() {
+        views = rebuilding;
+        rebuilding = null;
+        return views.byOrderNumber.size();
+    }
+
+    public synchronized void abortRebuild() {
+        rebuilding = null;
+    }
+
+    public Map<String, Object> statistics() {
+        Views current = views;
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("enabled", enabled);
+        statistics.put("orders", current.byOrderNumber.size());
+        statistics.put("customers", current.byCustomerEmail.size());
+        return statistics;
+    }
+
+    private static final class Views {
+        private final Map<String, OrderResponse> byOrderNumber = new ConcurrentHashMap<>();
+        private final Map<String, NavigableMap<Long, OrderResponse>> byCustomerEmail = new ConcurrentHashMap<>();
+
+        void put(OrderResponse order) {
+            OrderResponse current = byOrderNumber.get(order.getOrderNumber());
+            if (current != null && isNewer(current, order)) {
+                return;
+            }
+            byOrderNumber.put(order.getOrderNumber(), order);
+            if (order.getCustomerEmail() != null) {
+                byCustomerEmail.computeIfAbsent(order.getCustomerEmail(), email -> new ConcurrentSkipListMap<>())
+                        .put(order.getId(), order);
+            }
+        }
+
+        private static boolean isNewer(OrderResponse current, OrderResponse incoming) {
+            return current.getVersion() != null && incoming.getVersion() != null
+                    && current.getVersion() > incoming.getVersion();
+        }
+    }
+}
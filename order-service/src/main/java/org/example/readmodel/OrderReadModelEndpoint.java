@@ -0,0 +1,31 @@
+package org.example.readmodel;
+
+import lombok.RequiredArgsConstructor;
+import org.example.service.OrderService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Ordini e clienti nel modello di lettura: GET /actuator/orderreadmodel; POST lo ricostruisce dalla tabella
+@Component
+@Endpoint(id = "orderreadmodel")
+@RequiredArgsConstructor
+public class OrderReadModelEndpoint {
+
+    private final OrderReadModel readModel;
+    private final OrderService orderService;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return readModel.statistics();
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        orderService.rebuildReadModel();
+        return readModel.statistics();
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.readmodel;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.service.OrderService;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+// Ricostruisce il modello di lettura dalla tabella degli ordini all'avvio, prima che il server accetti richieste
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OrderReadModelLoader implements SmartInitializingSingleton {
+
+    private final OrderReadModel readModel;
+    private final OrderService orderService;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!readModel.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int orders = orderService.rebuildReadModel();
+        log.info("Order read model built with {} orders in {} ms", orders, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -1,14 +1,51 @@
 package org.example.repository;
 
-import com.example.orderservice.model.Order;
+import jakarta.persistence.QueryHint;
+import org.example.model.Order;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    // Le query di lettura caricano gli item con una fetch join per evitare N+1 query
+    @EntityGraph(attributePaths = "orderItems")
+    @Query("select o from Order o")
+    List<Order> findAllWithItems();
+
+    @EntityGraph(attributePaths = "orderItems")
+    Optional<Order> findWithItemsById(Long id);
+
+    @EntityGraph(attributePaths = "orderItems")
     Optional<Order> findByOrderNumber(String orderNumber);
+
+    @EntityGraph(attributePaths = "orderItems")
     List<Order> findByCustomerEmail(String customerEmail);
-}
\ No newline at end of file
+
+    // Paginazione keyset in due passi: prima gli id della pagina, poi gli ordini con i loro item
+    // (il limit su una fetch join di collezione verrebbe applicato in memoria)
+    @Query("select o.id from Order o where o.id > :after order by o.id")
+    List<Long> findIdsAfter(@Param("after") Long after, Pageable pageable);
+
+    @EntityGraph(attributePaths = "orderItems")
+    List<Order> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    // Cursore JDBC per l'export: una riga per item, ordinata per ordine
+    @Query("select o, i from Order o left join o.orderItems i order by o.id, i.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Object[]> streamAllWithItems();
+}
@@ -1,38 +1,170 @@
 package org.example.service;
 
-import com.example.orderservice.client.ProductClient;
-import com.example.orderservice.dto.*;
-import com.example.orderservice.model.Order;
-import com.example.orderservice.model.OrderItem;
-import com.example.orderservice.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.bulkhead.DownstreamBulkheads;
+import org.example.cache.ProductCache;
+import org.example.client.ProductClient;
+import org.example.dto.*;
+import org.example.config.ClientErrorPredicate;
+import org.example.exception.InsufficientStockException;
+import org.example.exception.OrderConflictException;
+import org.example.exception.OrderNotFoundException;
+import org.example.exception.ProductNotFoundException;
+import org.example.model.Order;
+import org.example.model.OrderItem;
+import org.example.readmodel.OrderReadModel;
+import org.example.repository.OrderRepository;
+import org.example.timing.ServerTiming;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.example.dto.OrderItemResponse;
 import org.example.dto.OrderRequest;
 import org.example.dto.OrderResponse;
 import org.example.dto.ProductResponse;
+import jakarta.persistence.EntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OrderService {
 
+    private static final int EXPORT_FLUSH_SIZE = 500;
+    private static final int READ_MODEL_PAGE_SIZE = 500;
+
     private final OrderRepository orderRepository;
+    private final ProductCache productCache;
     private final ProductClient productClient;
+    private final MeterRegistry meterRegistry;
+    private final ServerTiming serverTiming;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final DownstreamBulkheads bulkheads;
+    private final OrderReadModel readModel;
 
     @Transactional
     public OrderResponse createOrder(OrderRequest orderRequest) {
         // Genera un numero ordine univoco
         String orderNumber = UUID.randomUUID().toString();
 
+        Map<Long, ProductResponse> products = getProducts(List.of(orderRequest));
+        Order order = buildOrder(orderNumber, orderRequest, products);
+
+        // Prenota le giacenze (tutto-o-niente); se la transazione non va a buon fine vengono rilasciate
+        reserveStock(orderNumber, order.getOrderItems());
+
+        // Salva l'ordine nel database
+        Order savedOrder = orderRepository.save(order);
+        log.info("Order {} is created", savedOrder.getId());
+
+        // Converte l'ordine in risposta
+        OrderResponse response = mapToOrderResponse(savedOrder);
+        updateReadModel(List.of(response));
+        return response;
+    }
+
+    // Crea un blocco di ordini accodati in modalità asincrona: una sola chiamata di pricing per tutto il blocco
+    // e un unico saveAll (insert in batch). Gli ordini che non possono essere evasi vengono salvati come CANCELLED.
+    @Transactional
+    public List<Order> createOrders(Map<String, OrderRequest> orderRequests) {
+        Map<Long, ProductResponse> batchProducts = getBatchProducts(orderRequests.values());
+
+        List<Order> orders = new ArrayList<>(orderRequests.size());
+        orderRequests.forEach((orderNumber, orderRequest) -> {
+            try {
+                Map<Long, ProductResponse> products = batchProducts != null
+                        ? batchProducts
+                        : getProducts(List.of(orderRequest));
+                Order order = buildOrder(orderNumber, orderRequest, products);
+                reserveStock(orderNumber, order.getOrderItems());
+                orders.add(order);
+            } catch (RuntimeException e) {
+                log.warn("Order {} cannot be fulfilled: {}", orderNumber, e.getMessage());
+                orders.add(cancelledOrder(orderNumber, orderRequest));
+            }
+        });
+
+        List<Order> savedOrders = orderRepository.saveAll(orders);
+        log.info("{} orders are created", savedOrders.size());
+        updateReadModel(savedOrders.stream()
+                .map(this::mapToOrderResponse)
+                .collect(Collectors.toList()));
+        return savedOrders;
+    }
+
+    // Ultima risorsa dell'intake asincrono: un ordine già accettato (202) che non si riesce a creare viene salvato
+    // come CANCELLED, così il cliente ne vede l'esito invece di perderlo
+    @Transactional
+    public Order saveCancelledOrder(String orderNumber, OrderRequest orderRequest) {
+        Order savedOrder = orderRepository.save(cancelledOrder(orderNumber, orderRequest));
+        log.warn("Order {} is saved as cancelled", orderNumber);
+        updateReadModel(List.of(mapToOrderResponse(savedOrder)));
+        return savedOrder;
+    }
+
+    private Order cancelledOrder(String orderNumber, OrderRequest orderRequest) {
+        return Order.builder()
+                .orderNumber(orderNumber)
+                .orderDate(LocalDateTime.now())
+                .customerName(orderRequest.getCustomerName())
+                .customerEmail(orderRequest.getCustomerEmail())
+                .shippingAddress(orderRequest.getShippingAddress())
+                .totalAmount(BigDecimal.ZERO)
+                .status(Order.OrderStatus.CANCELLED)
+                .orderItems(new ArrayList<>())
+                .build();
+    }
+
+    // Un errore di pricing sul blocco non fa fallire tutti gli ordini: restituisce null e ogni ordine viene
+    // prezzato da solo, così vengono annullati solo quelli con prodotti non disponibili
+    private Map<Long, ProductResponse> getBatchProducts(Collection<OrderRequest> orderRequests) {
+        try {
+            return getProducts(orderRequests);
+        } catch (RuntimeException e) {
+            log.warn("Pricing of {} orders failed, pricing them one by one: {}", orderRequests.size(), e.getMessage());
+            return null;
+        }
+    }
+
+    // Recupera tutti i prodotti dei carrelli con una sola chiamata al Product Service
+    private Map<Long, ProductResponse> getProducts(Collection<OrderRequest> orderRequests) {
+        List<Long> productIds = orderRequests.stream()
+                .flatMap(orderRequest -> orderRequest.getOrderItems().stream())
+                .map(OrderItemRequest::getProductId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        return Timer.builder("orders.pricing")
+                .tag("cache", productCache.isEnabled() ? "enabled" : "disabled")
+                .register(meterRegistry)
+                .record(() -> productCache.getProductsByIds(productIds).stream()
+                        .collect(Collectors.toMap(ProductResponse::getId, Function.identity(), (a, b) -> a)));
+    }
+
+    private Order buildOrder(String orderNumber, OrderRequest orderRequest, Map<Long, ProductResponse> products) {
         // Crea un nuovo ordine
         Order order = Order.builder()
                 .orderNumber(orderNumber)
@@ -46,8 +178,10 @@ public class OrderService {
         // Crea gli item dell'ordine e calcola il totale
         List<OrderItem> orderItems = orderRequest.getOrderItems().stream()
                 .map(itemRequest -> {
-                    // Ottiene i dettagli del prodotto tramite Feign Client (con circuit breaker)
-                    ProductResponse product = productClient.getProductById(itemRequest.getProductId());
+                    ProductResponse product = products.get(itemRequest.getProductId());
+                    if (product == null) {
+                        throw new ProductNotFoundException(itemRequest.getProductId());
+                    }
 
                     // Calcola il subtotale
                     BigDecimal subtotal = product.getPrice()
@@ -72,38 +206,97 @@ public class OrderService {
 
         order.setOrderItems(orderItems);
         order.setTotalAmount(totalAmount);
-
-        // Salva l'ordine nel database
-        Order savedOrder = orderRepository.save(order);
-        log.info("Order {} is created", savedOrder.getId());
-
-        // Converte l'ordine in risposta
-        return mapToOrderResponse(savedOrder);
+        return order;
     }
 
+    @Transactional(readOnly = true)
     public List<OrderResponse> getAllOrders() {
-        List<Order> orders = orderRepository.findAll();
+        List<Order> orders = orderRepository.findAllWithItems();
 
         return orders.stream()
                 .map(this::mapToOrderResponse)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public CursorPage<OrderResponse> getOrdersPage(Long after, int limit) {
+        // Si legge un id in più per sapere se esiste una pagina successiva
+        List<Long> ids = orderRepository.findIdsAfter(after, PageRequest.of(0, limit + 1));
+        boolean hasNext = ids.size() > limit;
+        List<Long> pageIds = hasNext ? ids.subList(0, limit) : ids;
+
+        List<OrderResponse> items = pageIds.isEmpty() ? List.of() : orderRepository.findByIdInOrderByIdAsc(pageIds).stream()
+                .map(this::mapToOrderResponse)
+                .collect(Collectors.toList());
+
+        return CursorPage.<OrderResponse>builder()
+                .items(items)
+                .next(hasNext ? pageIds.get(pageIds.size() - 1) : null)
+                .build();
+    }
+
+    // Export NDJSON: le righe ordine/item arrivano ordinate per ordine e vengono raggruppate al volo
+    @Transactional(readOnly = true)
+    public void exportOrders(OutputStream out) throws IOException {
+        int written = 0;
+        try (Stream<Object[]> rows = orderRepository.streamAllWithItems()) {
+            Iterator<Object[]> iterator = rows.iterator();
+            OrderResponse current = null;
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                Order order = (Order) row[0];
+                OrderItem item = (OrderItem) row[1];
+
+                if (current == null || !current.getId().equals(order.getId())) {
+                    if (current != null) {
+                        writeLine(out, current);
+                        // Il persistence context viene svuotato a blocchi per mantenere la memoria costante
+                        if (++written % EXPORT_FLUSH_SIZE == 1) {
+                            out.flush();
+                            entityManager.clear();
+                        }
+                    }
+                    current = mapToOrderHeader(order);
+                }
+                if (item != null) {
+                    current.getOrderItems().add(mapToOrderItemResponse(item));
+                }
+            }
+            if (current != null) {
+                writeLine(out, current);
+            }
+        }
+        out.flush();
+    }
+
+    @Transactional(readOnly = true)
     public OrderResponse getOrderById(Long id) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
+        Order order = orderRepository.findWithItemsById(id)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + id));
 
         return mapToOrderResponse(order);
     }
 
+    // Dal modello di lettura senza transazione né query; la tabella (con indice sul numero ordine) resta il fallback
+    // per gli ordini che il modello non conosce
     public OrderResponse getOrderByOrderNumber(String orderNumber) {
+        if (readModel.isEnabled()) {
+            OrderResponse order = readModel.findByOrderNumber(orderNumber);
+            if (order != null) {
+                return order;
+            }
+        }
         Order order = orderRepository.findByOrderNumber(orderNumber)
-                .orElseThrow(() -> new RuntimeException("Order not found with order number: " + orderNumber));
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with order number: " + orderNumber));
 
         return mapToOrderResponse(order);
     }
 
+    // Il modello di lettura contiene tutti gli ordini salvati, quindi un cliente assente non ha ordini
     public List<OrderResponse> getOrdersByCustomerEmail(String customerEmail) {
+        if (readModel.isEnabled()) {
+            return readModel.findByCustomerEmail(customerEmail);
+        }
         List<Order> orders = orderRepository.findByCustomerEmail(customerEmail);
 
         return orders.stream()
@@ -113,28 +306,145 @@ public class OrderService {
 
     @Transactional
     public OrderResponse updateOrderStatus(Long id, Order.OrderStatus status) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found with id: " + id));
+        Order order = orderRepository.findWithItemsById(id)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + id));
 
+        boolean cancelling = status == Order.OrderStatus.CANCELLED && order.getStatus() != Order.OrderStatus.CANCELLED;
         order.setStatus(status);
-        Order updatedOrder = orderRepository.save(order);
+        Order updatedOrder;
+        try {
+            // Il flush immediato verifica e incrementa la versione: un cambio di stato concorrente fallisce qui,
+            // prima di restituire le giacenze, e il modello di lettura riceve la versione nuova
+            updatedOrder = orderRepository.saveAndFlush(order);
+        } catch (OptimisticLockingFailureException e) {
+            throw new OrderConflictException("Order " + id + " was updated concurrently", e);
+        }
+
+        // Un ordine annullato restituisce le giacenze prenotate; se il rilascio fallisce il cambio di stato è annullato.
+        // L'id del rilascio rende sicuro ripetere l'annullamento: il Product Service lo applica una volta sola
+        if (cancelling) {
+            List<StockItemRequest> stockItems = toStockItems(updatedOrder.getOrderItems());
+            serverTiming.run("product-service", () -> bulkheads.run(DownstreamBulkheads.PRODUCT_SERVICE,
+                    () -> productClient.releaseStockOnce(cancelReleaseId(updatedOrder), stockItems)));
+        }
         log.info("Order {} status updated to {}", updatedOrder.getId(), status);
 
-        return mapToOrderResponse(updatedOrder);
+        OrderResponse response = mapToOrderResponse(updatedOrder);
+        updateReadModel(List.of(response));
+        return response;
     }
 
-    private OrderResponse mapToOrderResponse(Order order) {
-        List<OrderItemResponse> orderItemResponses = order.getOrderItems().stream()
-                .map(item -> OrderItemResponse.builder()
-                        .id(item.getId())
+    // Ricostruisce il modello di lettura dalla tabella a pagine keyset: all'avvio e su richiesta (/actuator/orderreadmodel)
+    public int rebuildReadModel() {
+        if (!readModel.isEnabled()) {
+            return 0;
+        }
+        readModel.beginRebuild();
+        try {
+            long after = 0;
+            List<Long> ids;
+            do {
+                ids = orderRepository.findIdsAfter(after, PageRequest.of(0, READ_MODEL_PAGE_SIZE));
+                if (!ids.isEmpty()) {
+                    readModel.rebuildPage(orderRepository.findByIdInOrderByIdAsc(ids).stream()
+                            .map(this::mapToOrderResponse)
+                            .collect(Collectors.toList()));
+                    after = ids.get(ids.size() - 1);
+                }
+            } while (ids.size() == READ_MODEL_PAGE_SIZE);
+            return readModel.completeRebuild();
+        } catch (RuntimeException e) {
+            readModel.abortRebuild();
+            throw e;
+        }
+    }
+
+    // Il modello di lettura riceve solo ordini salvati: con una transazione attiva l'aggiornamento avviene dopo il commit
+    private void updateReadModel(List<OrderResponse> orders) {
+        if (!readModel.isEnabled()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            readModel.apply(orders);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                readModel.apply(orders);
+            }
+        });
+    }
+
+    // La compensazione è registrata prima della chiamata: anche una prenotazione riuscita sul Product Service ma
+    // fallita per il chiamante (timeout, errore di rete) viene rilasciata. Il rilascio per id è idempotente e non
+    // restituisce giacenze mai scalate, ad esempio dopo un 409 o se arriva prima della prenotazione stessa.
+    private void reserveStock(String reservationId, List<OrderItem> orderItems) {
+        List<StockItemRequest> stockItems = toStockItems(orderItems);
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                releaseReservation(reservationId, stockItems);
+            }
+        };
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release.run();
+                }
+            }
+        });
+
+        try {
+            serverTiming.run("product-service", () -> bulkheads.run(DownstreamBulkheads.PRODUCT_SERVICE,
+                    () -> productClient.reserveStock(reservationId, stockItems)));
+        } catch (RuntimeException e) {
+            // createOrders salva l'ordine come CANCELLED e la transazione va in commit: il rilascio non può attendere
+            release.run();
+            if (ClientErrorPredicate.clientErrorStatus(e) == HttpStatus.CONFLICT.value()) {
+                throw new InsufficientStockException(reservationId, e);
+            }
+            throw e;
+        }
+    }
+
+    private static String cancelReleaseId(Order order) {
+        return order.getOrderNumber() + ":cancel";
+    }
+
+    // Compensazione fuori dal bulkhead: un rifiuto lascerebbe le giacenze prenotate
+    private void releaseReservation(String reservationId, List<StockItemRequest> stockItems) {
+        try {
+            productClient.releaseStock(reservationId, stockItems);
+        } catch (RuntimeException e) {
+            log.error("Stock reservation {} could not be released: {}", reservationId, e.getMessage());
+        }
+    }
+
+    private List<StockItemRequest> toStockItems(List<OrderItem> orderItems) {
+        return orderItems.stream()
+                .map(item -> StockItemRequest.builder()
                         .productId(item.getProductId())
-                        .productName(item.getProductName())
-                        .price(item.getPrice())
                         .quantity(item.getQuantity())
-                        .subtotal(item.getSubtotal())
                         .build())
                 .collect(Collectors.toList());
+    }
 
+    private void writeLine(OutputStream out, OrderResponse order) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(order));
+        out.write('\n');
+    }
+
+    private OrderResponse mapToOrderResponse(Order order) {
+        OrderResponse response = mapToOrderHeader(order);
+        order.getOrderItems().stream()
+                .map(this::mapToOrderItemResponse)
+                .forEach(response.getOrderItems()::add);
+        return response;
+    }
+
+    private OrderResponse mapToOrderHeader(Order order) {
         return OrderResponse.builder()
                 .id(order.getId())
                 .orderNumber(order.getOrderNumber())
@@ -144,7 +454,19 @@ public class OrderService {
                 .shippingAddress(order.getShippingAddress())
                 .totalAmount(order.getTotalAmount())
                 .status(order.getStatus())
-                .orderItems(orderItemResponses)
+                .orderItems(new ArrayList<>())
+                .version(order.getVersion())
+                .build();
+    }
+
+    private OrderItemResponse mapToOrderItemResponse(OrderItem item) {
+        return OrderItemResponse.builder()
+                .id(item.getId())
+                .productId(item.getProductId())
+                .productName(item.getProductName())
+                .price(item.getPrice())
+                .quantity(item.getQuantity())
+                .subtotal(item.getSubtotal())
                 .build();
     }
-}
\ No newline at end of file
+}
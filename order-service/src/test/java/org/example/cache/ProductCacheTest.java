@@ -0,0 +1,95 @@
+package org.example.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.bulkhead.DownstreamBulkheads;
+import org.example.client.ProductClient;
+import org.example.dto.ProductChangeEvent;
+import org.example.dto.ProductResponse;
+import org.example.timing.ServerTiming;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductCacheTest {
+
+    private final ProductClient productClient = mock(ProductClient.class);
+    private ProductCache productCache;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MockEnvironment environment = new MockEnvironment();
+        productCache = new ProductCache(productClient,
+                new ProductSnapshotStore(meterRegistry, 1000, Duration.ofHours(1)),
+                new ServerTiming(meterRegistry), new DownstreamBulkheads(environment, meterRegistry),
+                meterRegistry, environment, 50, true, Duration.ofMinutes(10), 1000);
+    }
+
+    @Test
+    void olderEventDoesNotReplaceNewerOne() {
+        assertThat(productCache.onProductChange(updated(1L, 3L, "30.00"))).isTrue();
+        assertThat(productCache.onProductChange(updated(1L, 2L, "20.00"))).isFalse();
+
+        assertThat(productCache.getProductsByIds(List.of(1L)))
+                .extracting(ProductResponse::getPrice)
+                .containsExactly(new BigDecimal("30.00"));
+        verify(productClient, never()).getProductsByIds(anyList());
+    }
+
+    @Test
+    void updateArrivingAfterDeleteIsIgnored() {
+        productCache.onProductChange(ProductChangeEvent.builder()
+                .productId(1L)
+                .type(ProductChangeEvent.ChangeType.DELETED)
+                .build());
+
+        assertThat(productCache.onProductChange(updated(1L, 5L, "50.00"))).isFalse();
+    }
+
+    // Una modifica applicata mentre la lettura è in corso vince sulla risposta (più vecchia) del Product Service
+    @Test
+    void fetchRacingAnEventDoesNotOverwriteIt() {
+        when(productClient.getProductsByIds(anyList())).thenAnswer(invocation -> {
+            productCache.onProductChange(updated(1L, 4L, "40.00"));
+            return List.of(product(1L, "10.00"));
+        });
+
+        assertThat(productCache.getProductsByIds(List.of(1L)))
+                .extracting(ProductResponse::getPrice)
+                .containsExactly(new BigDecimal("10.00"));
+        assertThat(productCache.getProductsByIds(List.of(1L)))
+                .extracting(ProductResponse::getPrice)
+                .containsExactly(new BigDecimal("40.00"));
+        verify(productClient, times(1)).getProductsByIds(anyList());
+    }
+
+    private static ProductChangeEvent updated(Long id, Long version, String price) {
+        return ProductChangeEvent.builder()
+                .productId(id)
+                .type(ProductChangeEvent.ChangeType.UPDATED)
+                .product(product(id, price))
+                .version(version)
+                .build();
+    }
+
+    private static ProductResponse product(Long id, String price) {
+        return ProductResponse.builder()
+                .id(id)
+                .name("Product " + id)
+                .price(new BigDecimal(price))
+                .stock(10)
+                .build();
+    }
+}
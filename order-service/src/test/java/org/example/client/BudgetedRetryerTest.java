@@ -0,0 +1,104 @@
+package org.example.client;
+
+import feign.Feign;
+import feign.FeignException;
+import feign.RequestLine;
+import feign.Response;
+import feign.Target;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.config.FeignRetryConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Client Feign reale con retryer, error decoder e capability di FeignRetryConfig su un trasporto finto
+// che risponde 503 alle prime `failures` chiamate
+class BudgetedRetryerTest {
+
+    interface StubApi {
+        @RequestLine("GET /products/1")
+        String get();
+
+        @RequestLine("POST /products/stock/reserve")
+        void post();
+    }
+
+    private final CircuitBreakerRegistry circuitBreakers = CircuitBreakerRegistry.ofDefaults();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FeignRetryPolicy policy = new FeignRetryPolicy(
+            new Resilience4JCircuitBreakerFactory(circuitBreakers, TimeLimiterRegistry.ofDefaults(), null),
+            meterRegistry, 3, Duration.ofMillis(1), Duration.ofMillis(1), 0, 0);
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private StubApi client(int failures) {
+        FeignRetryConfig config = new FeignRetryConfig();
+        return Feign.builder()
+                .client((request, options) -> Response.builder()
+                        .request(request)
+                        .status(upstreamCalls.incrementAndGet() <= failures ? 503 : 200)
+                        .headers(Map.of())
+                        .body("ok", StandardCharsets.UTF_8)
+                        .build())
+                .retryer(config.budgetedRetryer(policy))
+                .errorDecoder(config.retryableStatusErrorDecoder())
+                .addCapability(config.retryBudgetCapability(policy))
+                .target(new Target.HardCodedTarget<>(StubApi.class, "product-service", "http://product-service"));
+    }
+
+    @Test
+    void getIsRetriedUntilItSucceeds() {
+        assertThat(client(2).get()).isEqualTo("ok");
+
+        assertThat(upstreamCalls).hasValue(3);
+        assertThat(retries("attempted")).isEqualTo(2);
+        assertThat(retries("succeeded")).isEqualTo(1);
+    }
+
+    // Una prenotazione potrebbe essere già stata applicata: il 503 arriva al chiamante senza retry
+    @Test
+    void postIsNeverRetried() {
+        assertThatThrownBy(() -> client(Integer.MAX_VALUE).post()).isInstanceOf(FeignException.class);
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(retries("attempted")).isZero();
+    }
+
+    // Il budget parte da 20 token e senza ricarica né successi non cresce: dopo 20 retry ogni chiamata è singola
+    @Test
+    void spentBudgetStopsRetries() {
+        StubApi client = client(Integer.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            assertThatThrownBy(client::get).isInstanceOf(FeignException.class);
+        }
+        assertThat(upstreamCalls).hasValue(30);
+
+        assertThatThrownBy(client::get).isInstanceOf(FeignException.class);
+        assertThat(upstreamCalls).hasValue(31);
+        assertThat(retries("attempted")).isEqualTo(20);
+        assertThat(retries("suppressed_budget")).isEqualTo(1);
+    }
+
+    @Test
+    void openCircuitStopsRetries() {
+        circuitBreakers.circuitBreaker("productService").transitionToOpenState();
+
+        assertThatThrownBy(() -> client(Integer.MAX_VALUE).get()).isInstanceOf(FeignException.class);
+
+        assertThat(upstreamCalls).hasValue(1);
+        assertThat(retries("suppressed_circuit_breaker")).isEqualTo(1);
+    }
+
+    private double retries(String outcome) {
+        return meterRegistry.get("feign.client.retries").tag("outcome", outcome).counter().count();
+    }
+}
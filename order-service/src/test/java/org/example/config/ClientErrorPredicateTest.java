@@ -0,0 +1,54 @@
+package org.example.config;
+
+import feign.FeignException;
+import feign.Request;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientErrorPredicateTest {
+
+    private static final Request RESERVE = Request.create(Request.HttpMethod.POST,
+            "http://product-service/products/stock/reserve", Map.of(), new byte[0], StandardCharsets.UTF_8, null);
+
+    // Un prodotto esaurito non deve aprire il circuito per tutti gli altri ordini
+    @Test
+    void conflictsDoNotCountAsFailures() {
+        CircuitBreaker circuitBreaker = CircuitBreaker.of("productService",
+                Resilience4jConfig.productServiceCircuitBreakerConfig());
+
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.onError(0, TimeUnit.NANOSECONDS, feignError(409));
+            circuitBreaker.onError(0, TimeUnit.NANOSECONDS,
+                    WebClientResponseException.create(HttpStatus.CONFLICT.value(), "Conflict", null, null, null));
+        }
+
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void serverErrorsStillCount() {
+        ClientErrorPredicate predicate = new ClientErrorPredicate();
+
+        assertThat(predicate.test(feignError(503))).isFalse();
+        assertThat(predicate.test(WebClientResponseException.create(502, "Bad Gateway", null, null, null))).isFalse();
+        assertThat(predicate.test(new RuntimeException(feignError(404)))).isTrue();
+    }
+
+    private static FeignException feignError(int status) {
+        return FeignException.errorStatus("ProductClient#reserveStock(String,List)", feign.Response.builder()
+                .status(status)
+                .reason("error")
+                .request(RESERVE)
+                .headers(Map.of())
+                .build());
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.controller;
+
+import io.github.resilience4j.springboot3.circuitbreaker.autoconfigure.CircuitBreakerAutoConfiguration;
+import org.example.exception.InsufficientStockException;
+import org.example.exception.ProductUnavailableException;
+import org.example.intake.OrderIntake;
+import org.example.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Il circuit breaker "orderService" è attivo come nell'applicazione: il fallback scatta solo per i guasti
+@WebMvcTest(OrderController.class)
+@ImportAutoConfiguration({AopAutoConfiguration.class, CircuitBreakerAutoConfiguration.class})
+class OrderControllerTest {
+
+    private static final String ORDER = """
+            {"customerName":"Mario Rossi","customerEmail":"mario.rossi@example.com","shippingAddress":"Via Roma 1",
+             "orderItems":[{"productId":1,"quantity":2}]}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private OrderService orderService;
+
+    @MockBean
+    private OrderIntake orderIntake;
+
+    // Product Service irraggiungibile e nessun prezzo noto: l'ordine viene rifiutato, non creato come CANCELLED
+    @Test
+    void unknownPriceIsServiceUnavailable() throws Exception {
+        when(orderService.createOrder(any())).thenThrow(new ProductUnavailableException(List.of(1L), null));
+
+        mockMvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(ORDER))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void insufficientStockIsConflict() throws Exception {
+        when(orderService.createOrder(any())).thenThrow(new InsufficientStockException("order-1", null));
+
+        mockMvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(ORDER))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void infrastructureFailureUsesFallback() throws Exception {
+        when(orderService.createOrder(any())).thenThrow(new ResourceAccessException("connection refused"));
+
+        mockMvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(ORDER))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.controller;
+
+import org.example.cache.ProductCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Il path è esposto anche dal gateway: senza il token condiviso l'evento non arriva alla near-cache
+@WebMvcTest(value = ProductEventController.class, properties = "product-events.token=secret")
+class ProductEventControllerTest {
+
+    private static final String EVENT = """
+            {"productId":1,"type":"UPDATED","version":2}
+            """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductCache productCache;
+
+    @Test
+    void eventWithTokenIsApplied() throws Exception {
+        mockMvc.perform(event().header(ProductEventController.TOKEN_HEADER, "secret"))
+                .andExpect(status().isAccepted());
+
+        verify(productCache).onProductChange(any());
+    }
+
+    @Test
+    void eventWithoutTokenIsForbidden() throws Exception {
+        mockMvc.perform(event()).andExpect(status().isForbidden());
+        mockMvc.perform(event().header(ProductEventController.TOKEN_HEADER, "secreT"))
+                .andExpect(status().isForbidden());
+
+        verify(productCache, never()).onProductChange(any());
+    }
+
+    private static MockHttpServletRequestBuilder event() {
+        return post("/product-events").contentType(MediaType.APPLICATION_JSON).content(EVENT);
+    }
+}
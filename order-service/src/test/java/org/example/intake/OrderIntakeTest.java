@@ -0,0 +1,80 @@
+package org.example.intake;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.dto.OrderItemRequest;
+import org.example.dto.OrderRequest;
+import org.example.dto.OrderResponse;
+import org.example.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIntakeTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final OrderIntake intake = new OrderIntake(orderService, new SimpleMeterRegistry(),
+            "async", 16, 8, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        intake.stop();
+    }
+
+    // Un ordine accettato con 202 che non si riesce a creare viene salvato come CANCELLED invece di sparire
+    @Test
+    void orderThatCannotBeCreatedIsSavedAsCancelled() {
+        when(orderService.createOrders(anyMap())).thenThrow(new IllegalStateException("pricing failed"));
+        intake.start();
+
+        OrderResponse accepted = intake.submit(request()).orElseThrow();
+
+        verify(orderService, timeout(5000)).saveCancelledOrder(eq(accepted.getOrderNumber()), any());
+        verifyEventuallyNotPending(accepted.getOrderNumber());
+    }
+
+    // Se nemmeno l'annullamento si può salvare l'ordine resta in coda e viene ritentato
+    @Test
+    void orderIsRequeuedWhileDatabaseIsUnavailable() {
+        when(orderService.createOrders(anyMap())).thenThrow(new IllegalStateException("database unavailable"));
+        when(orderService.saveCancelledOrder(any(), any()))
+                .thenThrow(new IllegalStateException("database unavailable"))
+                .thenReturn(null);
+        intake.start();
+
+        OrderResponse accepted = intake.submit(request()).orElseThrow();
+
+        verify(orderService, timeout(5000).times(2)).saveCancelledOrder(eq(accepted.getOrderNumber()), any());
+        verifyEventuallyNotPending(accepted.getOrderNumber());
+        // Blocco, tentativo singolo e, dopo la nuova presa dalla coda, di nuovo blocco e tentativo singolo
+        verify(orderService, times(4)).createOrders(anyMap());
+    }
+
+    private void verifyEventuallyNotPending(String orderNumber) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (intake.findPending(orderNumber).isPresent() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(intake.findPending(orderNumber)).isEmpty();
+    }
+
+    private static OrderRequest request() {
+        return OrderRequest.builder()
+                .customerName("Mario Rossi")
+                .customerEmail("mario.rossi@example.com")
+                .shippingAddress("Via Roma 1")
+                .orderItems(List.of(OrderItemRequest.builder().productId(1L).quantity(1).build()))
+                .build();
+    }
+}
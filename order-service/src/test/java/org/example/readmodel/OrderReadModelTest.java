@@ -0,0 +1,44 @@
+package org.example.readmodel;
+
+import org.example.dto.OrderResponse;
+import org.example.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderReadModelTest {
+
+    private final OrderReadModel readModel = new OrderReadModel(true);
+
+    // Due cambi di stato concorrenti: l'aggiornamento del commit più vecchio arriva per ultimo e viene scartato
+    @Test
+    void olderVersionAppliedAfterNewerIsIgnored() {
+        readModel.apply(List.of(order(2L, Order.OrderStatus.CANCELLED)));
+        readModel.apply(List.of(order(1L, Order.OrderStatus.SHIPPED)));
+
+        assertThat(readModel.findByOrderNumber("order-1").getStatus()).isEqualTo(Order.OrderStatus.CANCELLED);
+        assertThat(readModel.findByCustomerEmail("mario.rossi@example.com"))
+                .extracting(OrderResponse::getStatus)
+                .containsExactly(Order.OrderStatus.CANCELLED);
+    }
+
+    @Test
+    void newerVersionReplacesOlder() {
+        readModel.apply(List.of(order(0L, Order.OrderStatus.CREATED)));
+        readModel.apply(List.of(order(1L, Order.OrderStatus.SHIPPED)));
+
+        assertThat(readModel.findByOrderNumber("order-1").getStatus()).isEqualTo(Order.OrderStatus.SHIPPED);
+    }
+
+    private static OrderResponse order(Long version, Order.OrderStatus status) {
+        return OrderResponse.builder()
+                .id(1L)
+                .orderNumber("order-1")
+                .customerEmail("mario.rossi@example.com")
+                .status(status)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.repository;
+
+import jakarta.persistence.EntityManager;
+import org.example.model.Order;
+import org.example.model.OrderItem;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Con id da sequence e batching JDBC un ordine con K item è un INSERT per tabella, indipendentemente da K.
+// Lo StatementInspector vede ogni statement preparato: un batch è un solo statement, le chiamate alla sequence
+// (una ogni allocationSize id) sono escluse dal conteggio.
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=org.example.repository.OrderBatchInsertTest$RecordingInspector"
+})
+class OrderBatchInsertTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        RecordingInspector.STATEMENTS.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 40})
+    void orderIsOneInsertPerTable(int items) {
+        orderRepository.save(order("single", items));
+        entityManager.flush();
+
+        assertThat(inserts()).containsExactlyInAnyOrder("orders", "order_item");
+    }
+
+    // 20 ordini da 3 item: gli insert ordinati per tabella (order_inserts) riusano lo stesso statement,
+    // i 60 item partono in due executeBatch da 50 e 10 righe
+    @Test
+    void burstOfOrdersIsOneInsertPerTable() {
+        List<Order> burst = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            burst.add(order("burst-" + i, 3));
+        }
+        orderRepository.saveAll(burst);
+        entityManager.flush();
+
+        assertThat(inserts()).containsExactlyInAnyOrder("orders", "order_item");
+    }
+
+    private static List<String> inserts() {
+        return RecordingInspector.STATEMENTS.stream()
+                .map(sql -> sql.toLowerCase(Locale.ROOT))
+                .filter(sql -> sql.startsWith("insert into "))
+                .map(sql -> sql.substring("insert into ".length()).split("[\\s(]")[0])
+                .toList();
+    }
+
+    private static Order order(String orderNumber, int items) {
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .orderDate(LocalDateTime.now())
+                .customerName("Mario Rossi")
+                .customerEmail("mario.rossi@example.com")
+                .totalAmount(BigDecimal.TEN)
+                .status(Order.OrderStatus.CREATED)
+                .build();
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (long productId = 1; productId <= items; productId++) {
+            orderItems.add(OrderItem.builder()
+                    .productId(productId)
+                    .quantity(1)
+                    .price(BigDecimal.ONE)
+                    .subtotal(BigDecimal.ONE)
+                    .order(order)
+                    .build());
+        }
+        order.setOrderItems(orderItems);
+        return order;
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
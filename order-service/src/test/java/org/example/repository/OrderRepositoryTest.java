@@ -0,0 +1,102 @@
+package org.example.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.model.Order;
+import org.example.model.OrderItem;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Le letture di N ordini con i loro item costano un numero fisso di query, qualunque sia N
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderRepositoryTest {
+
+    private static final int ORDERS = 20;
+    private static final String CUSTOMER = "mario.rossi@example.com";
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = Order.builder()
+                    .orderNumber("order-" + i)
+                    .orderDate(LocalDateTime.now())
+                    .customerName("Mario Rossi")
+                    .customerEmail(CUSTOMER)
+                    .totalAmount(BigDecimal.TEN)
+                    .status(Order.OrderStatus.CREATED)
+                    .build();
+            List<OrderItem> items = new ArrayList<>();
+            for (long productId = 1; productId <= 3; productId++) {
+                items.add(OrderItem.builder()
+                        .productId(productId)
+                        .quantity(1)
+                        .price(BigDecimal.ONE)
+                        .subtotal(BigDecimal.ONE)
+                        .order(order)
+                        .build());
+            }
+            order.setOrderItems(items);
+            orderRepository.save(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllWithItemsIsASingleQuery() {
+        assertThat(itemCount(orderRepository.findAllWithItems())).isEqualTo(ORDERS * 3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByCustomerEmailIsASingleQuery() {
+        assertThat(itemCount(orderRepository.findByCustomerEmail(CUSTOMER))).isEqualTo(ORDERS * 3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void findByOrderNumberLoadsItemsInTheSameQuery() {
+        assertThat(orderRepository.findByOrderNumber("order-7").orElseThrow().getOrderItems()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    // Pagina keyset: una query per gli id e una per gli ordini con gli item
+    @Test
+    void keysetPageIsTwoQueries() {
+        List<Long> ids = orderRepository.findIdsAfter(0L, PageRequest.of(0, 10));
+        assertThat(itemCount(orderRepository.findByIdInOrderByIdAsc(ids))).isEqualTo(10 * 3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    private static int itemCount(List<Order> orders) {
+        return orders.stream()
+                .mapToInt(order -> order.getOrderItems().size())
+                .sum();
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.bulkhead.DownstreamBulkheads;
+import org.example.cache.ProductCache;
+import org.example.cache.ProductSnapshotStore;
+import org.example.client.ProductClient;
+import org.example.dto.OrderItemRequest;
+import org.example.dto.OrderRequest;
+import org.example.dto.OrderResponse;
+import org.example.dto.ProductResponse;
+import org.example.exception.InsufficientStockException;
+import org.example.exception.OrderConflictException;
+import org.example.model.Order;
+import org.example.readmodel.OrderReadModel;
+import org.example.repository.OrderRepository;
+import org.example.timing.ServerTiming;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderServiceTest {
+
+    private final ProductClient productClient = mock(ProductClient.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MockEnvironment environment = new MockEnvironment();
+        ServerTiming serverTiming = new ServerTiming(meterRegistry);
+        DownstreamBulkheads bulkheads = new DownstreamBulkheads(environment, meterRegistry);
+        ProductCache productCache = new ProductCache(productClient,
+                new ProductSnapshotStore(meterRegistry, 1000, Duration.ofHours(1)),
+                serverTiming, bulkheads, meterRegistry, environment, 50, true, Duration.ofMinutes(10), 1000);
+
+        orderService = new OrderService(orderRepository, productCache, productClient, meterRegistry, serverTiming,
+                null, null, bulkheads, new OrderReadModel(false));
+
+        when(productClient.getProductsByIds(anyList())).thenAnswer(invocation -> invocation.<List<Long>>getArgument(0)
+                .stream()
+                .map(id -> ProductResponse.builder()
+                        .id(id)
+                        .name("Product " + id)
+                        .price(BigDecimal.TEN)
+                        .stock(100)
+                        .build())
+                .collect(Collectors.toList()));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // reserveStock registra la compensazione sulla transazione, qui simulata senza transaction manager
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    // Pricing e prenotazione sono un round trip ciascuno, qualunque sia la dimensione del carrello
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    void downstreamCallsDoNotGrowWithCartSize(int cartSize) {
+        OrderResponse response = orderService.createOrder(request(cartSize));
+
+        assertThat(response.getOrderItems()).hasSize(cartSize);
+        assertThat(response.getTotalAmount()).isEqualByComparingTo(BigDecimal.valueOf(20L * cartSize));
+        verify(productClient, times(1)).getProductsByIds(anyList());
+        verify(productClient, times(1)).reserveStock(anyString(), anyList());
+    }
+
+    // Una prenotazione scaduta per il chiamante può essere stata applicata: viene rilasciata per id una sola volta,
+    // anche se poi la transazione va in rollback
+    @Test
+    void failedReservationIsReleasedOnceById() {
+        doThrow(new IllegalStateException("timeout")).when(productClient).reserveStock(anyString(), anyList());
+
+        assertThatThrownBy(() -> orderService.createOrder(request(3))).isInstanceOf(IllegalStateException.class);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        ArgumentCaptor<String> reserved = ArgumentCaptor.forClass(String.class);
+        verify(productClient).reserveStock(reserved.capture(), anyList());
+        verify(productClient, times(1)).releaseStock(eq(reserved.getValue()), anyList());
+    }
+
+    // Il 409 del Product Service è una giacenza insufficiente: arriva al controller come rifiuto, non come guasto
+    @Test
+    void stockConflictIsInsufficientStock() {
+        doThrow(WebClientResponseException.create(409, "Conflict", null, null, null))
+                .when(productClient).reserveStock(anyString(), anyList());
+
+        assertThatThrownBy(() -> orderService.createOrder(request(1))).isInstanceOf(InsufficientStockException.class);
+        verify(productClient, times(1)).releaseStock(anyString(), anyList());
+    }
+
+    // Nel blocco asincrono l'ordine non evaso viene salvato come CANCELLED in una transazione che va in commit
+    @Test
+    void cancelledBatchOrderReleasesItsReservation() {
+        doThrow(new IllegalStateException("timeout")).when(productClient).reserveStock(eq("order-1"), anyList());
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Order> orders = orderService.createOrders(Map.of("order-1", request(2)));
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(orders).extracting(Order::getStatus).containsExactly(Order.OrderStatus.CANCELLED);
+        verify(productClient, times(1)).releaseStock(eq("order-1"), anyList());
+    }
+
+    // Un prodotto che non si riesce a prezzare annulla solo gli ordini che lo contengono, non l'intero blocco
+    @Test
+    void batchPricingFailureCancelsOnlyAffectedOrders() {
+        when(productClient.getProductsByIds(argThat(ids -> ids.contains(99L))))
+                .thenThrow(new IllegalStateException("product-service unavailable"));
+        when(orderRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        OrderRequest unavailable = request(1);
+        unavailable.getOrderItems().get(0).setProductId(99L);
+
+        Map<String, OrderRequest> batch = new LinkedHashMap<>();
+        batch.put("order-1", request(2));
+        batch.put("order-2", unavailable);
+        List<Order> orders = orderService.createOrders(batch);
+
+        assertThat(orders).extracting(Order::getStatus)
+                .containsExactly(Order.OrderStatus.CREATED, Order.OrderStatus.CANCELLED);
+    }
+
+    // Un cambio di stato concorrente fa fallire il flush prima del rilascio delle giacenze e diventa un 409
+    @Test
+    void concurrentStatusChangeIsAConflictAndReleasesNothing() {
+        Order order = Order.builder()
+                .id(1L)
+                .orderNumber("order-1")
+                .status(Order.OrderStatus.CREATED)
+                .orderItems(List.of())
+                .version(0L)
+                .build();
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.saveAndFlush(order))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Order.class, 1L));
+
+        assertThatThrownBy(() -> orderService.updateOrderStatus(1L, Order.OrderStatus.CANCELLED))
+                .isInstanceOf(OrderConflictException.class);
+        verify(productClient, never()).releaseStock(any(), anyList());
+        verify(productClient, never()).releaseStockOnce(any(), anyList());
+    }
+
+    // L'annullamento restituisce le giacenze con un id legato all'ordine, così un nuovo tentativo non le restituisce due volte
+    @Test
+    void cancellationReleasesStockOnceByOrderNumber() {
+        Order order = Order.builder()
+                .id(1L)
+                .orderNumber("order-1")
+                .status(Order.OrderStatus.CREATED)
+                .orderItems(List.of())
+                .version(0L)
+                .build();
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.saveAndFlush(order)).thenReturn(order);
+
+        orderService.updateOrderStatus(1L, Order.OrderStatus.CANCELLED);
+
+        verify(productClient, times(1)).releaseStockOnce(eq("order-1:cancel"), anyList());
+        verify(productClient, never()).releaseStock(any(), anyList());
+    }
+
+    private static OrderRequest request(int cartSize) {
+        return OrderRequest.builder()
+                .customerName("Mario Rossi")
+                .customerEmail("mario.rossi@example.com")
+                .shippingAddress("Via Roma 1")
+                .orderItems(LongStream.rangeClosed(1, cartSize)
+                        .mapToObj(id -> OrderItemRequest.builder().productId(id).quantity(2).build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package org.example.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+// Avvolge il filtro di load balancing di un WebClient: ogni chiamata porta un InFlightRequest che viene chiuso
+// anche quando il chiamante annulla, caso in cui il lifecycle del load balancer non riceve onComplete
+@RequiredArgsConstructor
+public class InFlightExchangeFilterFunction implements ExchangeFilterFunction {
+
+    private final ExchangeFilterFunction loadBalancer;
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.using(InFlightRequest::new,
+                inFlight -> loadBalancer.filter(ClientRequest.from(request)
+                        .attribute(InFlightRequest.ATTRIBUTE, inFlight)
+                        .build(), next),
+                InFlightRequest::end);
+    }
+}
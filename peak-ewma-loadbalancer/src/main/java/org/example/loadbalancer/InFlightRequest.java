@@ -0,0 +1,41 @@
+package org.example.loadbalancer;
+
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Chiamata bilanciata di un WebClient: il lifecycle la avvia sull'istanza scelta, InFlightExchangeFilterFunction
+// la chiude una sola volta, all'esito o all'annullamento (timeout, hedge perdente)
+public class InFlightRequest {
+
+    public static final String ATTRIBUTE = InFlightRequest.class.getName();
+
+    private static final InstanceStats ENDED = new InstanceStats();
+
+    private final AtomicReference<InstanceStats> state = new AtomicReference<>();
+
+    void start(InstanceStats stats) {
+        if (state.compareAndSet(null, stats)) {
+            stats.onStart();
+        }
+    }
+
+    void end() {
+        InstanceStats stats = state.getAndSet(ENDED);
+        if (stats != null && stats != ENDED) {
+            stats.onEnd();
+        }
+    }
+
+    static InFlightRequest of(Request<?> request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            Map<String, Object> attributes = context.getClientRequest().getAttributes();
+            if (attributes != null && attributes.get(ATTRIBUTE) instanceof InFlightRequest inFlight) {
+                return inFlight;
+            }
+        }
+        return null;
+    }
+}
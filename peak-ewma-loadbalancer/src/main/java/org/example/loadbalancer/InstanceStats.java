@@ -0,0 +1,60 @@
+package org.example.loadbalancer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Statistiche di una singola istanza: latenza peak-EWMA e richieste in corso
+public class InstanceStats {
+
+    private static final double DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private double ewmaNanos;
+    private long lastUpdateNanos;
+
+    public void onStart() {
+        outstanding.incrementAndGet();
+        requests.increment();
+    }
+
+    // Una sola volta per ogni onStart, qualunque sia l'esito: risposta, errore o annullamento
+    public void onEnd() {
+        outstanding.decrementAndGet();
+    }
+
+    public void onComplete(long latencyNanos, boolean failed) {
+        if (failed) {
+            failures.increment();
+        }
+        if (latencyNanos >= 0) {
+            record(latencyNanos);
+        }
+    }
+
+    // I picchi vengono recepiti subito, i miglioramenti decadono gradualmente nel tempo
+    private synchronized void record(long latencyNanos) {
+        long now = System.nanoTime();
+        double weight = lastUpdateNanos == 0 ? 0 : Math.exp(-(now - lastUpdateNanos) / DECAY_NANOS);
+        ewmaNanos = latencyNanos > ewmaNanos ? latencyNanos : ewmaNanos * weight + latencyNanos * (1 - weight);
+        lastUpdateNanos = now;
+    }
+
+    // Costo atteso di una nuova richiesta: latenza stimata pesata per il carico in corso
+    public synchronized double score() {
+        return (ewmaNanos + 1) * (outstanding.get() + 1);
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ewmaMillis", ewmaNanos / 1_000_000);
+        result.put("outstanding", outstanding.get());
+        result.put("requests", requests.sum());
+        result.put("failures", failures.sum());
+        return result;
+    }
+}
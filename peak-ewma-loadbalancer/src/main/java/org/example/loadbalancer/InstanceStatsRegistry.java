@@ -0,0 +1,33 @@
+package org.example.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class InstanceStatsRegistry {
+
+    private final Map<String, Map<String, InstanceStats>> stats = new ConcurrentHashMap<>();
+
+    public InstanceStats stats(ServiceInstance instance) {
+        return stats.computeIfAbsent(instance.getServiceId().toLowerCase(), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key(instance), key -> new InstanceStats());
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        stats.forEach((serviceId, instances) -> {
+            Map<String, Object> byInstance = new LinkedHashMap<>();
+            instances.forEach((key, instanceStats) -> byInstance.put(key, instanceStats.snapshot()));
+            result.put(serviceId, byInstance);
+        });
+        return result;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.stereotype.Component;
+
+// Alimenta le statistiche per istanza usate da PeakEwmaLoadBalancer con latenza ed esito di ogni chiamata bilanciata.
+// Le chiamate dei WebClient possono essere annullate senza onComplete e sono contate con l'InFlightRequest aggiunto
+// da InFlightExchangeFilterFunction. Le altre (Feign, bloccante, riceve sempre onComplete) sono contate qui, a meno
+// che loadbalancer.lifecycle-counts-in-flight=false: nel gateway le route le conta InFlightRequestsGlobalFilter.
+@Component
+public class LatencyRecordingLifecycle implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final InstanceStatsRegistry statsRegistry;
+    private final boolean countsInFlight;
+
+    public LatencyRecordingLifecycle(InstanceStatsRegistry statsRegistry,
+                                     @Value("${loadbalancer.lifecycle-counts-in-flight:true}") boolean countsInFlight) {
+        this.statsRegistry = statsRegistry;
+        this.countsInFlight = countsInFlight;
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        if (request.getContext() instanceof TimedRequestContext context) {
+            context.setRequestStartTime(System.nanoTime());
+        }
+        InstanceStats stats = statsRegistry.stats(lbResponse.getServer());
+        InFlightRequest inFlight = InFlightRequest.of(request);
+        if (inFlight != null) {
+            inFlight.start(stats);
+        } else if (countsInFlight) {
+            stats.onStart();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()
+                || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+
+        long latencyNanos = -1;
+        Object context = completionContext.getLoadBalancerRequest().getContext();
+        if (context instanceof TimedRequestContext timed && timed.getRequestStartTime() > 0) {
+            latencyNanos = System.nanoTime() - timed.getRequestStartTime();
+        }
+        InstanceStats stats = statsRegistry.stats(lbResponse.getServer());
+        InFlightRequest inFlight = InFlightRequest.of(completionContext.getLoadBalancerRequest());
+        if (inFlight != null) {
+            inFlight.end();
+        } else if (countsInFlight) {
+            stats.onEnd();
+        }
+        stats.onComplete(latencyNanos, completionContext.status() == CompletionContext.Status.FAILED);
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.loadbalancer;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Latenza EWMA e richieste in corso per istanza: /actuator/loadbalancer
+@Component
+@Endpoint(id = "loadbalancer")
+@RequiredArgsConstructor
+public class LoadBalancerEndpoint {
+
+    private final InstanceStatsRegistry statsRegistry;
+
+    @ReadOperation
+    public Map<String, Object> instances() {
+        return statsRegistry.snapshot();
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Power of two choices: tra due istanze scelte a caso vince quella con latenza EWMA x richieste in corso minore.
+// Una richiesta può indicare un'istanza da evitare (host:port) nell'header EXCLUDED_INSTANCE_HEADER: il gateway lo
+// usa per gli hedge e per i retry, perché al load balancer arriva solo la richiesta e non gli attributi dell'exchange.
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    public static final String EXCLUDED_INSTANCE_HEADER = "X-Gateway-Excluded-Instance";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final InstanceStatsRegistry statsRegistry;
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                InstanceStatsRegistry statsRegistry) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.statsRegistry = statsRegistry;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String excluded = excludedInstance(request);
+        return supplier.get(request).next()
+                .map(instances -> choose(excluded != null ? without(instances, excluded) : instances));
+    }
+
+    public static String instanceKey(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static String excludedInstance(Request<?> request) {
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null
+                && context.getClientRequest().getHeaders() != null) {
+            return context.getClientRequest().getHeaders().getFirst(EXCLUDED_INSTANCE_HEADER);
+        }
+        return null;
+    }
+
+    // Se l'istanza esclusa è l'unica disponibile la si usa comunque
+    private static List<ServiceInstance> without(List<ServiceInstance> instances, String excluded) {
+        List<ServiceInstance> remaining = instances.stream()
+                .filter(instance -> !instanceKey(instance).equals(excluded))
+                .toList();
+        return remaining.isEmpty() ? instances : remaining;
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(statsRegistry.stats(a).score() <= statsRegistry.stats(b).score() ? a : b);
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+// Configurazione dei client di load balancing (volutamente senza @Configuration: viene caricata
+// nel contesto figlio di ogni servizio tramite @LoadBalancerClients)
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory,
+            InstanceStatsRegistry statsRegistry) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        ObjectProvider<ServiceInstanceListSupplier> supplier =
+                loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class);
+
+        // loadbalancer.strategy=round-robin ripristina il bilanciamento di default per confronto
+        if ("round-robin".equalsIgnoreCase(environment.getProperty("loadbalancer.strategy"))) {
+            return new RoundRobinLoadBalancer(supplier, name);
+        }
+        return new PeakEwmaLoadBalancer(supplier, statsRegistry);
+    }
+}
@@ -0,0 +1,208 @@
+package org.example.loadbalancer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Istanze stub locali con latenze diverse: una lenta e due veloci, chiamate tramite WebClient bilanciato
+class PeakEwmaLoadBalancerTest {
+
+    private static final String SERVICE_ID = "stub-service";
+    private static final Duration SLOW = Duration.ofMillis(150);
+    private static final Duration FAST = Duration.ofMillis(2);
+    private static final int REQUESTS = 600;
+    private static final int CONCURRENCY = 8;
+
+    private final List<DisposableServer> servers = new ArrayList<>();
+    private final InstanceStatsRegistry statsRegistry = new InstanceStatsRegistry();
+    private List<ServiceInstance> instances;
+
+    @BeforeEach
+    void startStubs() {
+        instances = List.of(stub("slow", SLOW), stub("fast-1", FAST), stub("fast-2", FAST));
+    }
+
+    @AfterEach
+    void stopStubs() {
+        servers.forEach(DisposableServer::disposeNow);
+    }
+
+    // Con il round robin un terzo delle richieste va all'istanza lenta e il p95 è la sua latenza;
+    // con peak-EWMA l'istanza lenta riceve solo le prime richieste, finché la sua latenza non è nota.
+    // Un primo giro scarta JIT e apertura delle connessioni, che peak-EWMA ricorderebbe come picchi.
+    @Test
+    void peakEwmaImprovesTailLatencyOverRoundRobin() {
+        InstanceStatsRegistry warmup = new InstanceStatsRegistry();
+        run(new RoundRobinLoadBalancer(suppliers(), SERVICE_ID), warmup, Function.identity());
+
+        InstanceStatsRegistry roundRobinStats = new InstanceStatsRegistry();
+        long roundRobinP95 = p95(run(new RoundRobinLoadBalancer(suppliers(), SERVICE_ID), roundRobinStats,
+                Function.identity()));
+        long peakEwmaP95 = p95(run(new PeakEwmaLoadBalancer(suppliers(), statsRegistry), statsRegistry,
+                Function.identity()));
+
+        assertThat(roundRobinP95).isGreaterThanOrEqualTo(SLOW.toMillis());
+        assertThat(peakEwmaP95).isLessThan(SLOW.toMillis() / 2);
+        assertOutstanding(0);
+    }
+
+    // Le chiamate annullate dal chiamante (qui per timeout) non ricevono onComplete ma liberano comunque l'istanza
+    @Test
+    void cancelledCallsDoNotLeakOutstandingRequests() {
+        run(new PeakEwmaLoadBalancer(suppliers(), statsRegistry), statsRegistry,
+                call -> call.timeout(Duration.ofMillis(20)).onErrorResume(e -> Mono.empty()));
+
+        assertOutstanding(0);
+    }
+
+    // Le chiamate Feign non portano un InFlightRequest: le conta il lifecycle, salvo dove le conta già il chiamante
+    @Test
+    void untaggedCallsAreCountedByLifecycleUnlessDisabled() {
+        ServiceInstance instance = instances.get(0);
+        Request<Object> request = new DefaultRequest<>(new RequestDataContext(
+                new RequestData(HttpMethod.GET, URI.create("http://" + SERVICE_ID + "/"), new HttpHeaders(),
+                        new LinkedMultiValueMap<>(), new HashMap<>())));
+
+        new LatencyRecordingLifecycle(statsRegistry, true).onStartRequest(request, new DefaultResponse(instance));
+        assertThat(statsRegistry.stats(instance).snapshot().get("outstanding")).isEqualTo(1);
+        new LatencyRecordingLifecycle(statsRegistry, true).onComplete(new CompletionContext<>(
+                CompletionContext.Status.SUCCESS, request, new DefaultResponse(instance)));
+        assertOutstanding(0);
+
+        new LatencyRecordingLifecycle(statsRegistry, false).onStartRequest(request, new DefaultResponse(instance));
+        assertOutstanding(0);
+    }
+
+    // Il gateway costruisce RequestData dalla sola richiesta, senza gli attributi dell'exchange:
+    // l'istanza da evitare arriva al load balancer come header
+    @Test
+    void excludedInstanceHeaderReachesLoadBalancer() {
+        PeakEwmaLoadBalancer loadBalancer = new PeakEwmaLoadBalancer(suppliers(), statsRegistry);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(PeakEwmaLoadBalancer.EXCLUDED_INSTANCE_HEADER, PeakEwmaLoadBalancer.instanceKey(instances.get(1)));
+        Request<RequestDataContext> lbRequest = new DefaultRequest<>(new RequestDataContext(new RequestData(
+                HttpMethod.GET, URI.create("http://" + SERVICE_ID + "/products/1"), headers, new LinkedMultiValueMap<>(),
+                new HashMap<>())));
+
+        for (int i = 0; i < 50; i++) {
+            assertThat(loadBalancer.choose(lbRequest).block().getServer()).isNotEqualTo(instances.get(1));
+        }
+    }
+
+    private List<Long> run(ReactorServiceInstanceLoadBalancer loadBalancer, InstanceStatsRegistry stats,
+                           Function<Mono<String>, Mono<String>> decorate) {
+        LatencyRecordingLifecycle lifecycle = new LatencyRecordingLifecycle(stats, true);
+        WebClient webClient = WebClient.builder()
+                .filter(new InFlightExchangeFilterFunction(
+                        new ReactorLoadBalancerExchangeFilterFunction(new StubFactory(loadBalancer, lifecycle), List.of())))
+                .build();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        Flux.range(0, REQUESTS)
+                .flatMap(i -> Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return decorate.apply(webClient.get().uri("http://" + SERVICE_ID + "/").retrieve().bodyToMono(String.class))
+                            .doFinally(signal -> latencies.add((System.nanoTime() - start) / 1_000_000));
+                }), CONCURRENCY)
+                .blockLast(Duration.ofMinutes(1));
+        return latencies;
+    }
+
+    private static long p95(List<Long> latencies) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return sorted.get((int) Math.ceil(sorted.size() * 0.95) - 1);
+    }
+
+    private void assertOutstanding(int expected) {
+        instances.forEach(instance ->
+                assertThat(statsRegistry.stats(instance).snapshot().get("outstanding")).isEqualTo(expected));
+    }
+
+    private ObjectProvider<ServiceInstanceListSupplier> suppliers() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return SERVICE_ID;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(instances);
+            }
+        };
+        beanFactory.registerSingleton("supplier", supplier);
+        return beanFactory.getBeanProvider(ServiceInstanceListSupplier.class);
+    }
+
+    private ServiceInstance stub(String id, Duration latency) {
+        DisposableServer server = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> Mono.delay(latency).then(response.sendString(Mono.just(id)).then()))
+                .bindNow();
+        servers.add(server);
+        return new DefaultServiceInstance(id, SERVICE_ID, "localhost", server.port(), false);
+    }
+
+    private record StubFactory(ReactorServiceInstanceLoadBalancer loadBalancer, LatencyRecordingLifecycle lifecycle)
+            implements ReactiveLoadBalancer.Factory<ServiceInstance> {
+
+        @Override
+        public LoadBalancerProperties getProperties(String serviceId) {
+            return new LoadBalancerProperties();
+        }
+
+        @Override
+        public ReactiveLoadBalancer<ServiceInstance> getInstance(String serviceId) {
+            return loadBalancer;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <X> Map<String, X> getInstances(String name, Class<X> type) {
+            return LoadBalancerLifecycle.class.equals(type) ? Map.of("latency", (X) lifecycle) : Map.of();
+        }
+
+        @Override
+        public <X> X getInstance(String name, Class<?> clazz, Class<?>... generics) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package org.example.catalog;
+
+import org.example.collection.LongIntMap;
+import org.example.dto.ProductResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Catalogo per le letture: i prodotti sono record compatti in un unico buffer (heap oppure off-heap) indicizzato
+// da una mappa id -> offset senza boxing. Le letture non passano da Hibernate; ogni scrittura accoda una nuova
+// versione del record e quando le versioni superate superano metà del buffer il catalogo viene compattato.
+// Il contenuto può essere salvato in un file di snapshot e ricaricato (memory-mapped) al riavvio.
+//
+// Record: [int lunghezza][long id][byte flag][long prezzo non scalato][int scala][int giacenza][nome][descrizione][categoria]
+// con le stringhe come [int lunghezza in byte, -1 se null][UTF-8]. Un prezzo che non entra in un long è salvato come testo.
+@Component
+public class CompactCatalog {
+
+    private static final int SNAPSHOT_MAGIC = 0x50434154; // "PCAT"
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_HEADER = 4 + 4 + 4 + 8 + 8 + 4;
+    private static final int COMPACTION_MIN_BYTES = 1 << 20;
+
+    private static final byte PRICE_NULL = 1;
+    private static final byte STOCK_NULL = 2;
+    private static final byte PRICE_TEXT = 4;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean enabled;
+    private final boolean offHeap;
+
+    private ByteBuffer buffer;
+    private LongIntMap offsets;
+    private int records;
+    private int garbageBytes;
+    private long maxId;
+
+    public CompactCatalog(@Value("${product-catalog.enabled:true}") boolean enabled,
+                          @Value("${product-catalog.off-heap:false}") boolean offHeap,
+                          @Value("${product-catalog.initial-capacity:16MB}") DataSize initialCapacity) {
+        this.enabled = enabled;
+        this.offHeap = offHeap;
+        this.buffer = allocate(enabled ? (int) Math.min(initialCapacity.toBytes(), Integer.MAX_VALUE - 8) : 0);
+        this.offsets = new LongIntMap(enabled ? 1024 : 16);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public ProductResponse get(long id) {
+        lock.readLock().lock();
+        try {
+            int offset = offsets.get(id);
+            return offset < 0 ? null : decode(buffer, offset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(ProductResponse product) {
+        byte[] record = encode(product);
+        lock.writeLock().lock();
+        try {
+            int previous = offsets.get(product.getId());
+            if (previous >= 0) {
+                garbageBytes += buffer.getInt(previous);
+            } else {
+                records++;
+            }
+            if (buffer.remaining() < record.length) {
+                grow(record.length);
+            }
+            int offset = buffer.position();
+            buffer.put(record);
+            offsets.put(product.getId(), offset);
+            maxId = Math.max(maxId, product.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int offset = offsets.get(id);
+            if (offset >= 0) {
+                garbageBytes += buffer.getInt(offset);
+                offsets.remove(id);
+                records--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return records;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> statistics() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("enabled", enabled);
+            statistics.put("products", records);
+            statistics.put("offHeap", offHeap);
+            statistics.put("usedBytes", buffer.position());
+            statistics.put("garbageBytes", garbageBytes);
+            statistics.put("capacityBytes", buffer.capacity());
+            statistics.put("indexBytes", offsets.estimatedBytes());
+            statistics.put("bytesPerProduct", records == 0 ? 0 : (buffer.position() - garbageBytes) / records);
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Snapshot compattato: intestazione con numero di prodotti, id massimo e checksum del database al momento del
+    // salvataggio, poi solo le versioni correnti dei record.
+    // Il file viene scritto accanto e poi rinominato, così un arresto a metà non lascia uno snapshot troncato.
+    public void writeSnapshot(Path file, long checksum) throws IOException {
+        lock.readLock().lock();
+        try {
+            ByteBuffer live = liveRecords();
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER)
+                    .putInt(SNAPSHOT_MAGIC)
+                    .putInt(SNAPSHOT_VERSION)
+                    .putInt(records)
+                    .putLong(maxId)
+                    .putLong(checksum)
+                    .putInt(live.remaining());
+            header.flip();
+
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (live.hasRemaining()) {
+                    channel.write(live);
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Carica uno snapshot solo se corrisponde al catalogo atteso (numero di prodotti, id massimo e checksum),
+    // altrimenti restituisce false e il catalogo va ricostruito dal database
+    public boolean loadSnapshot(Path file, long expectedProducts, long expectedMaxId, long expectedChecksum)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < SNAPSHOT_HEADER) {
+                return false;
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt() != SNAPSHOT_MAGIC || mapped.getInt() != SNAPSHOT_VERSION) {
+                return false;
+            }
+            int count = mapped.getInt();
+            long snapshotMaxId = mapped.getLong();
+            long checksum = mapped.getLong();
+            int length = mapped.getInt();
+            if (count != expectedProducts || snapshotMaxId != expectedMaxId || checksum != expectedChecksum
+                    || mapped.remaining() != length) {
+                return false;
+            }
+
+            lock.writeLock().lock();
+            try {
+                ByteBuffer loaded = allocate(Math.max(buffer.capacity(), length + length / 2));
+                loaded.put(mapped);
+                LongIntMap loadedOffsets = new LongIntMap(count);
+                for (int offset = 0; offset < length; offset += loaded.getInt(offset)) {
+                    loadedOffsets.put(loaded.getLong(offset + 4), offset);
+                }
+                buffer = loaded;
+                offsets = loadedOffsets;
+                records = count;
+                garbageBytes = 0;
+                maxId = snapshotMaxId;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Versioni correnti dei record, in ordine di scrittura: un record è corrente se la mappa punta al suo offset
+    private ByteBuffer liveRecords() {
+        ByteBuffer live = allocate(Math.max(16, buffer.position() - garbageBytes));
+        int end = buffer.position();
+        for (int offset = 0; offset < end; ) {
+            int length = buffer.getInt(offset);
+            if (offsets.get(buffer.getLong(offset + 4)) == offset) {
+                live.put(buffer.slice(offset, length));
+            }
+            offset += length;
+        }
+        live.flip();
+        return live;
+    }
+
+    private void grow(int needed) {
+        if (garbageBytes > COMPACTION_MIN_BYTES && garbageBytes >= buffer.position() / 2) {
+            compact();
+            if (buffer.remaining() >= needed) {
+                return;
+            }
+        }
+        long capacity = Math.max((long) buffer.capacity() * 2, (long) buffer.position() + needed);
+        if (capacity > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Product catalog exceeds the maximum buffer size");
+        }
+        ByteBuffer grown = allocate((int) capacity);
+        grown.put(buffer.flip());
+        buffer = grown;
+    }
+
+    private void compact() {
+        ByteBuffer live = liveRecords();
+        ByteBuffer compacted = allocate(buffer.capacity());
+        LongIntMap compactedOffsets = new LongIntMap(records);
+        while (live.hasRemaining()) {
+            int offset = compacted.position();
+            int length = live.getInt(live.position());
+            compactedOffsets.put(live.getLong(live.position() + 4), offset);
+            compacted.put(live.slice(live.position(), length));
+            live.position(live.position() + length);
+        }
+        buffer = compacted;
+        offsets = compactedOffsets;
+        garbageBytes = 0;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return offHeap ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    static byte[] encode(ProductResponse product) {
+        byte[] name = utf8(product.getName());
+        byte[] description = utf8(product.getDescription());
+        byte[] category = utf8(product.getCategory());
+
+        byte flags = 0;
+        long unscaled = 0;
+        int scale = 0;
+        byte[] priceText = null;
+        BigDecimal price = product.getPrice();
+        if (price == null) {
+            flags |= PRICE_NULL;
+        } else if (price.unscaledValue().bitLength() < 64) {
+            unscaled = price.unscaledValue().longValue();
+            scale = price.scale();
+        } else {
+            flags |= PRICE_TEXT;
+            priceText = utf8(price.toString());
+        }
+        if (product.getStock() == null) {
+            flags |= STOCK_NULL;
+        }
+
+        int length = 4 + 8 + 1 + 8 + 4 + 4 + size(name) + size(description) + size(category) + size(priceText);
+        ByteBuffer record = ByteBuffer.allocate(length)
+                .putInt(length)
+                .putLong(product.getId())
+                .put(flags)
+                .putLong(unscaled)
+                .putInt(scale)
+                .putInt(product.getStock() == null ? 0 : product.getStock());
+        putString(record, name);
+        putString(record, description);
+        putString(record, category);
+        putString(record, priceText);
+        return record.array();
+    }
+
+    static ProductResponse decode(ByteBuffer buffer, int offset) {
+        byte flags = buffer.get(offset + 12);
+        int position = offset + 29;
+        String name = getString(buffer, position);
+        position += stringSize(buffer, position);
+        String description = getString(buffer, position);
+        position += stringSize(buffer, position);
+        String category = getString(buffer, position);
+        position += stringSize(buffer, position);
+
+        BigDecimal price = null;
+        if ((flags & PRICE_TEXT) != 0) {
+            price = new BigDecimal(getString(buffer, position));
+        } else if ((flags & PRICE_NULL) == 0) {
+            price = BigDecimal.valueOf(buffer.getLong(offset + 13), buffer.getInt(offset + 21));
+        }
+
+        return ProductResponse.builder()
+                .id(buffer.getLong(offset + 4))
+                .name(name)
+                .description(description)
+                .price(price)
+                .stock((flags & STOCK_NULL) != 0 ? null : buffer.getInt(offset + 25))
+                .category(category)
+                .build();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int size(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void putString(ByteBuffer record, byte[] value) {
+        record.putInt(value == null ? -1 : value.length);
+        if (value != null) {
+            record.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(ByteBuffer buffer, int position) {
+        return 4 + Math.max(0, buffer.getInt(position));
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.catalog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Prodotti, byte occupati e spazio da compattare del catalogo di lettura: /actuator/catalog
+@Component
+@Endpoint(id = "catalog")
+@RequiredArgsConstructor
+public class CompactCatalogEndpoint {
+
+    private final CompactCatalog catalog;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return catalog.statistics();
+    }
+}
@@ -0,0 +1,145 @@
+package org.example.catalog;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.ProductChangeEvent;
+import org.example.dto.ProductResponse;
+import org.example.dto.ProductStamp;
+import org.example.model.Product;
+import org.example.repository.ProductRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// Riempie il catalogo compatto all'avvio, prima che il server accetti richieste: dallo snapshot se presente e
+// coerente con il database, altrimenti leggendo i prodotti a pagine keyset. La coerenza si verifica con numero di
+// prodotti, id massimo e un checksum di id, versione e giacenza di ogni prodotto: una modifica fatta dopo il
+// salvataggio (anche da un'altra istanza) cambia la versione o la giacenza e invalida lo snapshot. Lo tiene aggiornato con gli eventi
+// di modifica pubblicati dopo il commit e salva lo snapshot all'arresto.
+@Component
+@Slf4j
+public class CompactCatalogLoader implements SmartInitializingSingleton {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final int STAMP_PAGE_SIZE = 5000;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final ProductRepository productRepository;
+    private final CompactCatalog catalog;
+    private final Path snapshotFile;
+
+    public CompactCatalogLoader(ProductRepository productRepository,
+                                CompactCatalog catalog,
+                                @Value("${product-catalog.snapshot-file:}") String snapshotFile) {
+        this.productRepository = productRepository;
+        this.catalog = catalog;
+        this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!catalog.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (loadSnapshot()) {
+            log.info("Product catalog loaded from snapshot {} with {} products in {} ms",
+                    snapshotFile, catalog.size(), (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+
+        long after = 0;
+        List<Product> page;
+        do {
+            page = productRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (Product product : page) {
+                catalog.put(ProductResponse.builder()
+                        .id(product.getId())
+                        .name(product.getName())
+                        .description(product.getDescription())
+                        .price(product.getPrice())
+                        .stock(product.getStock())
+                        .category(product.getCategory())
+                        .build());
+                after = product.getId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        log.info("Product catalog built with {} products in {} ms", catalog.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Sincrono come l'indice di ricerca: una lettura fatta subito dopo la scrittura vede già la modifica
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (!catalog.isEnabled()) {
+            return;
+        }
+        if (event.getType() == ProductChangeEvent.ChangeType.DELETED) {
+            catalog.remove(event.getProductId());
+            return;
+        }
+        catalog.put(event.getProduct());
+    }
+
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!catalog.isEnabled() || snapshotFile == null) {
+            return;
+        }
+        try {
+            catalog.writeSnapshot(snapshotFile, databaseStamp().checksum());
+            log.info("Product catalog snapshot with {} products written to {}", catalog.size(), snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write product catalog snapshot to {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    private boolean loadSnapshot() {
+        if (snapshotFile == null || !Files.isReadable(snapshotFile)) {
+            return false;
+        }
+        DatabaseStamp stamp = databaseStamp();
+        try {
+            if (catalog.loadSnapshot(snapshotFile, stamp.products(), stamp.maxId(), stamp.checksum())) {
+                return true;
+            }
+            log.info("Product catalog snapshot {} does not match the database, rebuilding", snapshotFile);
+        } catch (IOException e) {
+            log.warn("Could not read product catalog snapshot {}: {}", snapshotFile, e.getMessage());
+        }
+        return false;
+    }
+
+    // Una sola passata a pagine keyset su tre colonne, senza entità né stringhe: molto più leggera della ricostruzione
+    private DatabaseStamp databaseStamp() {
+        long products = 0;
+        long maxId = 0;
+        long checksum = FNV_OFFSET;
+        List<ProductStamp> page;
+        do {
+            page = productRepository.findStampsAfter(maxId, PageRequest.of(0, STAMP_PAGE_SIZE));
+            for (ProductStamp stamp : page) {
+                checksum = mix(checksum, stamp.id());
+                checksum = mix(checksum, stamp.version() == null ? -1 : stamp.version());
+                checksum = mix(checksum, stamp.stock() == null ? Long.MIN_VALUE : stamp.stock());
+                maxId = stamp.id();
+                products++;
+            }
+        } while (page.size() == STAMP_PAGE_SIZE);
+        return new DatabaseStamp(products, maxId, checksum);
+    }
+
+    private static long mix(long checksum, long value) {
+        return (checksum ^ value) * FNV_PRIME;
+    }
+
+    private record DatabaseStamp(long products, long maxId, long checksum) {
+    }
+}
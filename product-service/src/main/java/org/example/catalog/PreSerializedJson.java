@@ -0,0 +1,12 @@
+package org.example.catalog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Body di risposta già serializzato in JSON, scritto così com'è da PreSerializedJsonConverter
+public interface PreSerializedJson {
+
+    int length();
+
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,45 @@
+package org.example.catalog;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Scrive i PreSerializedJson direttamente sullo stream della risposta, senza passare da Jackson.
+// Spring Boot aggiunge i converter registrati come bean davanti a quelli predefiniti.
+@Component
+public class PreSerializedJsonConverter extends AbstractHttpMessageConverter<PreSerializedJson> {
+
+    public PreSerializedJsonConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return PreSerializedJson.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected PreSerializedJson readInternal(Class<? extends PreSerializedJson> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Pre-serialized JSON is write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(PreSerializedJson body, MediaType contentType) {
+        return (long) body.length();
+    }
+
+    @Override
+    protected void writeInternal(PreSerializedJson body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,255 @@
+package org.example.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.ProductChangeEvent;
+import org.example.dto.ProductResponse;
+import org.example.inventory.StockLedger;
+import org.example.model.Product;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// JSON dei prodotti serializzato una sola volta per versione (Product.version) e riscritto come byte a ogni lettura.
+// La giacenza cambia con le prenotazioni senza cambiare versione, quindi ogni prodotto è salvato in due parti,
+// prima e dopo il valore di "stock", e la giacenza corrente viene inserita al momento della scrittura.
+// Una versione più vecchia non sostituisce mai una più recente: una lettura dal database concorrente con un
+// aggiornamento non può reinserire il JSON superato. Le liste per categoria valgono fino alla modifica successiva.
+// Prodotti e categorie sono limitati in numero (Caffeine); il segnaposto di un prodotto cancellato serve solo
+// contro le letture già in corso al momento della cancellazione e scade dopo deleted-ttl.
+@Component
+public class ProductJsonCache {
+
+    private static final byte[] STOCK_FIELD = "\"stock\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+    private static final Entry DELETED = new Entry(0, Long.MAX_VALUE, null, null, null);
+
+    private final boolean enabled;
+    private final ObjectMapper objectMapper;
+    private final StockLedger stockLedger;
+    private final Map<Long, Entry> products;
+    private final Map<String, CategoryEntry> categories;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ProductJsonCache(@Value("${product-json-cache.enabled:false}") boolean enabled,
+                            @Value("${product-json-cache.maximum-size:10000}") long maximumSize,
+                            @Value("${product-json-cache.maximum-categories:1000}") long maximumCategories,
+                            @Value("${product-json-cache.deleted-ttl:1m}") Duration deletedTtl,
+                            ObjectMapper objectMapper,
+                            StockLedger stockLedger) {
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+        this.stockLedger = stockLedger;
+        // asMap() di Caffeine: merge resta atomico come in ConcurrentHashMap
+        this.products = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(deletedAfter(deletedTtl))
+                .<Long, Entry>build()
+                .asMap();
+        this.categories = Caffeine.newBuilder()
+                .maximumSize(maximumCategories)
+                .<String, CategoryEntry>build()
+                .asMap();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // null se il prodotto va letto dal database: non ancora in cache oppure cancellato
+    public PreSerializedJson get(long id) {
+        Entry entry = products.get(id);
+        return entry == null || entry == DELETED ? null : new ProductJson(entry);
+    }
+
+    public PreSerializedJson put(Product product) {
+        return new ProductJson(merge(serialize(product)));
+    }
+
+    public PreSerializedJson getCategory(String category) {
+        CategoryEntry entry = categories.get(category);
+        return entry == null || entry.generation != generation.get() ? null : new ProductListJson(entry.products);
+    }
+
+    // La generazione va letta prima della query: se nel frattempo un prodotto cambia, la lista non viene usata
+    public long categoryGeneration() {
+        return generation.get();
+    }
+
+    public PreSerializedJson putCategory(String category, long readGeneration, List<Product> products) {
+        Entry[] entries = new Entry[products.size()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = merge(serialize(products.get(i)));
+        }
+        categories.put(category, new CategoryEntry(readGeneration, entries));
+        return new ProductListJson(entries);
+    }
+
+    // Sincrono e dopo il commit: la lettura successiva all'aggiornamento trova già il JSON nuovo
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        generation.incrementAndGet();
+        if (event.getType() == ProductChangeEvent.ChangeType.DELETED) {
+            products.put(event.getProductId(), DELETED);
+        } else if (event.getVersion() != null) {
+            merge(serialize(event.getProduct(), event.getVersion()));
+        } else {
+            products.remove(event.getProductId());
+        }
+    }
+
+    // Restituisce la versione rimasta in cache, oppure quella appena letta se il prodotto è stato cancellato nel frattempo
+    private Entry merge(Entry entry) {
+        Entry current = products.merge(entry.id, entry,
+                (previous, candidate) -> candidate.version >= previous.version ? candidate : previous);
+        return current == DELETED ? entry : current;
+    }
+
+    private Entry serialize(Product product) {
+        return serialize(ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stock(product.getStock())
+                .category(product.getCategory())
+                .build(), product.getVersion() != null ? product.getVersion() : 0);
+    }
+
+    private Entry serialize(ProductResponse product, long version) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(ProductResponse.builder()
+                    .id(product.getId())
+                    .name(product.getName())
+                    .description(product.getDescription())
+                    .price(product.getPrice())
+                    .category(product.getCategory())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize product " + product.getId(), e);
+        }
+        int stock = stockValue(json);
+        return new Entry(product.getId(), version,
+                Arrays.copyOfRange(json, 0, stock),
+                Arrays.copyOfRange(json, stock + NULL.length, json.length),
+                product.getStock());
+    }
+
+    // Solo il segnaposto DELETED scade; le versioni serializzate restano finché non vengono sostituite o espulse
+    private static Expiry<Long, Entry> deletedAfter(Duration ttl) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Long id, Entry entry, long currentTime) {
+                return entry == DELETED ? ttl.toNanos() : Long.MAX_VALUE;
+            }
+
+            @Override
+            public long expireAfterUpdate(Long id, Entry entry, long currentTime, long currentDuration) {
+                return expireAfterCreate(id, entry, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(Long id, Entry entry, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    // Posizione del valore di "stock": la chiave è l'unica occorrenza preceduta da '{' o ',', dentro le stringhe
+    // le virgolette sono sempre precedute da '\'
+    private static int stockValue(byte[] json) {
+        for (int i = 1; i <= json.length - STOCK_FIELD.length - NULL.length; i++) {
+            if ((json[i - 1] == '{' || json[i - 1] == ',')
+                    && Arrays.equals(json, i, i + STOCK_FIELD.length, STOCK_FIELD, 0, STOCK_FIELD.length)) {
+                return i + STOCK_FIELD.length;
+            }
+        }
+        throw new IllegalStateException("Serialized product has no stock field");
+    }
+
+    private record Entry(long id, long version, byte[] head, byte[] tail, Integer stock) {
+    }
+
+    private record CategoryEntry(long generation, Entry[] products) {
+    }
+
+    // Byte della giacenza corrente: quella del ledger se il prodotto è stato prenotato, altrimenti quella serializzata
+    private byte[] stockBytes(Entry entry) {
+        Integer available = stockLedger.available(entry.id);
+        Integer stock = available != null ? available : entry.stock;
+        return stock == null ? NULL : Integer.toString(stock).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private final class ProductJson implements PreSerializedJson {
+        private final Entry entry;
+        private final byte[] stock;
+
+        ProductJson(Entry entry) {
+            this.entry = entry;
+            this.stock = stockBytes(entry);
+        }
+
+        @Override
+        public int length() {
+            return entry.head.length + stock.length + entry.tail.length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(entry.head);
+            out.write(stock);
+            out.write(entry.tail);
+        }
+    }
+
+    private final class ProductListJson implements PreSerializedJson {
+        private final Entry[] entries;
+        private final byte[][] stocks;
+
+        ProductListJson(Entry[] entries) {
+            this.entries = entries;
+            this.stocks = new byte[entries.length][];
+            for (int i = 0; i < entries.length; i++) {
+                stocks[i] = stockBytes(entries[i]);
+            }
+        }
+
+        @Override
+        public int length() {
+            int length = 2 + Math.max(0, entries.length - 1);
+            for (int i = 0; i < entries.length; i++) {
+                length += entries[i].head.length + stocks[i].length + entries[i].tail.length;
+            }
+            return length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write('[');
+            for (int i = 0; i < entries.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(entries[i].head);
+                out.write(stocks[i]);
+                out.write(entries[i].tail);
+            }
+            out.write(']');
+        }
+    }
+}
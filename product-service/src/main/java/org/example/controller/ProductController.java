@@ -1,12 +1,18 @@
 package org.example.controller;
 
-import com.example.productservice.dto.ProductRequest;
-import com.example.productservice.dto.ProductResponse;
-import com.example.productservice.service.ProductService;
+import org.example.dto.CursorPage;
+import org.example.dto.ProductRequest;
+import org.example.dto.ProductResponse;
+import org.example.dto.ProductSearchResponse;
+import org.example.dto.StockItemRequest;
+import org.example.service.InventoryService;
+import org.example.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -15,7 +21,10 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ProductController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final ProductService productService;
+    private final InventoryService inventoryService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -29,16 +38,54 @@ public class ProductController {
         return productService.getAllProducts();
     }
     
-    @GetMapping("/{id}")
+    // Paginazione keyset: ?after=<ultimo id ricevuto>&limit=<n>
+    @GetMapping("/page")
     @ResponseStatus(HttpStatus.OK)
-    public ProductResponse getProductById(@PathVariable Long id) {
-        return productService.getProductById(id);
+    public CursorPage<ProductResponse> getProductsPage(@RequestParam(defaultValue = "0") Long after,
+                                                       @RequestParam(defaultValue = "50") int limit) {
+        return productService.getProductsPage(after, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
     }
-    
-    @GetMapping("/category/{category}")
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = productService::exportProducts;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/batch")
     @ResponseStatus(HttpStatus.OK)
-    public List<ProductResponse> getProductsByCategory(@PathVariable String category) {
-        return productService.getProductsByCategory(category);
+    public List<ProductResponse> getProductsByIds(@RequestParam List<Long> ids) {
+        return productService.getProductsByIds(ids);
+    }
+
+    // Ricerca full-text: ?q=<termini, anche parziali>&category=<filtro>&page=<n>&size=<n>
+    @GetMapping("/search")
+    @ResponseStatus(HttpStatus.OK)
+    public ProductSearchResponse searchProducts(@RequestParam(defaultValue = "") String q,
+                                                @RequestParam(required = false) String category,
+                                                @RequestParam(defaultValue = "0") int page,
+                                                @RequestParam(defaultValue = "20") int size) {
+        return productService.searchProducts(q, category, Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    // Con product-json-cache.enabled il body è il JSON già serializzato (PreSerializedJson, stesso formato di
+    // ProductResponse); in entrambi i casi la risposta è application/json
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getProductById(@PathVariable Long id) {
+        if (productService.isJsonCacheEnabled()) {
+            return json(productService.getProductJson(id));
+        }
+        return json(productService.getProductById(id));
+    }
+    
+    @GetMapping(value = "/category/{category}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> getProductsByCategory(@PathVariable String category) {
+        if (productService.isJsonCacheEnabled()) {
+            return json(productService.getProductsByCategoryJson(category));
+        }
+        return json(productService.getProductsByCategory(category));
     }
     
     @PutMapping("/{id}")
@@ -53,6 +100,23 @@ public class ProductController {
         productService.deleteProduct(id);
     }
     
+    // Prenotazione atomica (tutto-o-niente) delle giacenze: 409 se anche un solo prodotto non è disponibile.
+    // Con reservationId la prenotazione si può ripetere senza effetti e rilasciare per id
+    @PostMapping("/stock/reserve")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reserveStock(@RequestParam(required = false) String reservationId,
+                             @RequestBody List<StockItemRequest> items) {
+        inventoryService.reserve(reservationId, items);
+    }
+
+    @PostMapping("/stock/release")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void releaseStock(@RequestParam(required = false) String reservationId,
+                             @RequestParam(required = false) String releaseId,
+                             @RequestBody List<StockItemRequest> items) {
+        inventoryService.release(reservationId, releaseId, items);
+    }
+
     // Endpoint di test per simulare un errore (per testare il Circuit Breaker)
     @GetMapping("/test-error")
     public ResponseEntity<String> testError(@RequestParam(defaultValue = "false") boolean throwError) {
@@ -61,4 +125,10 @@ public class ProductController {
         }
         return ResponseEntity.ok("Test endpoint working normally");
     }
-}
\ No newline at end of file
+
+    private static <T> ResponseEntity<T> json(T body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResponse {
+    private List<ProductResponse> items;
+    private long total;
+    private int page;
+    private int size;
+    // Prodotti trovati per categoria, senza il filtro di categoria (ordinati per numero di prodotti)
+    private Map<String, Integer> categories;
+}
@@ -0,0 +1,5 @@
+package org.example.dto;
+
+// Ciò che cambia a ogni modifica di un prodotto: la versione per i campi descrittivi, la giacenza a parte
+public record ProductStamp(Long id, Long version, Integer stock) {
+}
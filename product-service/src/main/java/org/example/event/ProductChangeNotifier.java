@@ -0,0 +1,59 @@
+package org.example.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.ProductChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.List;
+
+// Inoltra le modifiche del catalogo a tutte le istanze registrate dei servizi che mantengono una near-cache,
+// direttamente via HTTP e senza broker esterni. L'invio è asincrono e l'ordine di arrivo non è garantito:
+// ogni evento porta la versione del prodotto e i destinatari scartano quelle più vecchie dell'ultima applicata.
+// Ogni richiesta porta il token condiviso product-events.token, senza il quale i destinatari rifiutano l'evento.
+@Component
+@Slf4j
+public class ProductChangeNotifier {
+
+    private static final String TOKEN_HEADER = "X-Product-Events-Token";
+
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final List<String> subscribers;
+
+    public ProductChangeNotifier(DiscoveryClient discoveryClient,
+                                 RestTemplateBuilder restTemplateBuilder,
+                                 @Value("${product-events.subscribers:order-service}") List<String> subscribers,
+                                 @Value("${product-events.token:}") String token) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplateBuilder
+                .setConnectTimeout(Duration.ofSeconds(1))
+                .setReadTimeout(Duration.ofSeconds(2))
+                .defaultHeader(TOKEN_HEADER, token)
+                .build();
+        this.subscribers = subscribers;
+    }
+
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        for (String serviceId : subscribers) {
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                try {
+                    restTemplate.postForLocation(instance.getUri().resolve("/product-events"), event);
+                } catch (RestClientException e) {
+                    // Una notifica persa viene comunque recuperata dalla scadenza TTL della cache
+                    log.warn("Failed to notify {} about product {}: {}", instance.getUri(), event.getProductId(), e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.inventory;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+// Giacenze in memoria aggiornate con CAS per singolo prodotto: nessun lock di riga sui prodotti più richiesti.
+// Le giacenze modificate vengono marcate come dirty e salvate a blocchi da InventoryService.
+@Component
+public class StockLedger {
+
+    private final Map<Long, AtomicInteger> stock = new ConcurrentHashMap<>();
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+
+    public boolean isLoaded(Long productId) {
+        return stock.containsKey(productId);
+    }
+
+    public void load(Long productId, int quantity) {
+        stock.putIfAbsent(productId, new AtomicInteger(quantity));
+    }
+
+    public void set(Long productId, int quantity) {
+        stock.computeIfAbsent(productId, id -> new AtomicInteger()).set(quantity);
+        dirty.add(productId);
+    }
+
+    public void remove(Long productId) {
+        stock.remove(productId);
+        dirty.remove(productId);
+    }
+
+    public Integer available(Long productId) {
+        AtomicInteger quantity = stock.get(productId);
+        return quantity != null ? quantity.get() : null;
+    }
+
+    // Prenotazione tutto-o-niente: in caso di giacenza insufficiente le quantità già scalate vengono restituite.
+    // Restituisce gli id dei prodotti non disponibili (lista vuota se la prenotazione è riuscita).
+    public List<Long> tryReserve(Map<Long, Integer> quantities, LongFunction<Integer> loader) {
+        Map<Long, Integer> reserved = new TreeMap<>();
+        List<Long> unavailable = new ArrayList<>();
+
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            AtomicInteger available = stock.computeIfAbsent(entry.getKey(), id -> {
+                Integer loaded = loader.apply(id);
+                return loaded != null ? new AtomicInteger(loaded) : null;
+            });
+            if (available == null || !decrement(available, entry.getValue())) {
+                unavailable.add(entry.getKey());
+                break;
+            }
+            reserved.put(entry.getKey(), entry.getValue());
+        }
+
+        if (!unavailable.isEmpty()) {
+            release(reserved);
+            return unavailable;
+        }
+        dirty.addAll(reserved.keySet());
+        return unavailable;
+    }
+
+    public void release(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger available = stock.get(productId);
+            if (available != null) {
+                available.addAndGet(quantity);
+                dirty.add(productId);
+            }
+        });
+    }
+
+    public void markDirty(Collection<Long> productIds) {
+        dirty.addAll(productIds);
+    }
+
+    // Restituisce e azzera l'insieme delle giacenze da salvare
+    public Map<Long, Integer> drainDirty() {
+        Map<Long, Integer> snapshot = new TreeMap<>();
+        for (Long productId : dirty) {
+            dirty.remove(productId);
+            Integer quantity = available(productId);
+            if (quantity != null) {
+                snapshot.put(productId, quantity);
+            }
+        }
+        return snapshot;
+    }
+
+    private static boolean decrement(AtomicInteger available, int quantity) {
+        int current;
+        do {
+            current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - quantity));
+        return true;
+    }
+}
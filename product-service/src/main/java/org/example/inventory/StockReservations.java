@@ -0,0 +1,71 @@
+package org.example.inventory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+// Prenotazioni identificate dal chiamante (l'order-service usa il numero d'ordine): ripetere la stessa prenotazione
+// non scala di nuovo le giacenze e il rilascio restituisce solo quanto è stato davvero scalato.
+// Un rilascio che arriva prima della prenotazione (ad esempio dopo un timeout del chiamante) lascia una voce
+// "rilasciata", così la prenotazione arrivata in ritardo non ha effetto. Le voci scadono dopo inventory.reservation-ttl.
+@Component
+public class StockReservations {
+
+    private final StockLedger stockLedger;
+    private final long ttlNanos;
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    public StockReservations(StockLedger stockLedger,
+                             @Value("${inventory.reservation-ttl:10m}") Duration ttl) {
+        this.stockLedger = stockLedger;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    // Restituisce gli id dei prodotti non disponibili; una prenotazione rifiutata non viene registrata
+    public List<Long> tryReserve(String reservationId, Map<Long, Integer> quantities, LongFunction<Integer> loader) {
+        List<Long> unavailable = new ArrayList<>();
+        reservations.compute(reservationId, (id, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            unavailable.addAll(stockLedger.tryReserve(quantities, loader));
+            return unavailable.isEmpty() ? new Reservation(quantities, false, System.nanoTime()) : null;
+        });
+        return unavailable;
+    }
+
+    // Restituisce true se la prenotazione era attiva e le giacenze sono state rilasciate
+    public boolean release(String reservationId) {
+        boolean[] released = new boolean[1];
+        reservations.compute(reservationId, (id, existing) -> {
+            if (existing != null && existing.released()) {
+                return existing;
+            }
+            if (existing != null) {
+                stockLedger.release(existing.quantities());
+                released[0] = true;
+            }
+            return new Reservation(Map.of(), true, System.nanoTime());
+        });
+        return released[0];
+    }
+
+    public int size() {
+        return reservations.size();
+    }
+
+    // Le prenotazioni scadute restano scalate: da quel momento l'ordine si annulla con un rilascio esplicito
+    public void expire() {
+        long now = System.nanoTime();
+        reservations.values().removeIf(reservation -> now - reservation.createdAt() > ttlNanos);
+    }
+
+    private record Reservation(Map<Long, Integer> quantities, boolean released, long createdAt) {
+    }
+}
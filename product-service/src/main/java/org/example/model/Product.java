@@ -4,10 +4,12 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.OptimisticLock;
 
 import java.math.BigDecimal;
 
@@ -25,6 +27,14 @@ public class Product {
     private String name;
     private String description;
     private BigDecimal price;
+
+    // La giacenza è gestita dal ledger e salvata dal flush periodico: non cambia la versione del prodotto
+    @OptimisticLock(excluded = true)
     private Integer stock;
+
     private String category;
+
+    // Contatore delle modifiche del prodotto, usato anche come chiave del JSON già serializzato
+    @Version
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,31 @@
+package org.example.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Rilascio di giacenze già applicato, identificato dal chiamante (es. "<numero ordine>:cancel").
+// Sempre inserito come nuovo: un id ripetuto viola la chiave primaria invece di aggiornare la riga esistente.
+@Entity
+@Table(name = "stock_releases")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockRelease implements Persistable<String> {
+
+    @Id
+    private String id;
+
+    private LocalDateTime releasedAt;
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
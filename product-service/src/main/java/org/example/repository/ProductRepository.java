@@ -1,12 +1,35 @@
 package org.example.repository;
 
-import com.example.productservice.model.Product;
+import jakarta.persistence.QueryHint;
+import org.example.dto.ProductStamp;
+import org.example.model.Product;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
     List<Product> findByCategory(String category);
-}
\ No newline at end of file
+
+    // Paginazione keyset: la pagina successiva riparte dall'ultimo id restituito
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Id, versione e giacenza a pagine keyset, senza caricare le entità: verifica dello snapshot del catalogo
+    @Query("select new org.example.dto.ProductStamp(p.id, p.version, p.stock) from Product p"
+            + " where p.id > :after order by p.id")
+    List<ProductStamp> findStampsAfter(long after, Pageable pageable);
+
+    // Cursore JDBC per l'export: le righe vengono lette a blocchi di fetch size
+    @Query("select p from Product p order by p.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Product> streamAll();
+}
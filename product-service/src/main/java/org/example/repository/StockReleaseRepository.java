@@ -0,0 +1,9 @@
+package org.example.repository;
+
+import org.example.model.StockRelease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockReleaseRepository extends JpaRepository<StockRelease, String> {
+}
@@ -0,0 +1,319 @@
+package org.example.search;
+
+import org.example.collection.LongIntMap;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Indice invertito in memoria su nome, descrizione e categoria dei prodotti.
+// Ogni prodotto ha un documento con id interno stabile; per ogni termine si tiene la lista ordinata dei documenti
+// (posting list) e per ogni documento i suoi termini, così aggiornamenti e cancellazioni toccano solo i termini coinvolti.
+// I termini sono normalizzati (minuscolo, senza accenti); ogni termine della query vale come prefisso e i termini
+// sono in AND. Le scritture sono serializzate, le letture concorrenti.
+@Component
+public class ProductSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int[] NO_TERMS = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> dictionary = new TreeMap<>();
+    private final List<Postings> postingsById = new ArrayList<>();
+    private final Map<String, Integer> categoryOrdinals = new HashMap<>();
+    private final List<String> categoryNames = new ArrayList<>();
+    private final LongIntMap docByProduct = new LongIntMap(1024);
+    private final BitSet live = new BitSet();
+
+    private long[] docProducts = new long[1024];
+    private int[] docCategories = new int[1024];
+    private int[][] docTerms = new int[1024][];
+    private int docCount;
+
+    // Inserisce o aggiorna un prodotto
+    public void index(long productId, String name, String description, String category) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(name, tokens);
+        tokenize(description, tokens);
+        tokenize(category, tokens);
+
+        lock.writeLock().lock();
+        try {
+            int doc = docByProduct.get(productId);
+            if (doc < 0) {
+                doc = newDocument(productId);
+            }
+
+            int[] terms = new int[tokens.size()];
+            int i = 0;
+            for (String token : tokens) {
+                terms[i++] = termId(token);
+            }
+            Arrays.sort(terms);
+
+            int[] previous = docTerms[doc];
+            for (int term : previous) {
+                if (Arrays.binarySearch(terms, term) < 0) {
+                    postingsById.get(term).remove(doc);
+                }
+            }
+            for (int term : terms) {
+                if (Arrays.binarySearch(previous, term) < 0) {
+                    postingsById.get(term).add(doc);
+                }
+            }
+            docTerms[doc] = terms;
+            docCategories[doc] = categoryOrdinal(category);
+            live.set(doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long productId) {
+        lock.writeLock().lock();
+        try {
+            int doc = docByProduct.get(productId);
+            if (doc < 0) {
+                return;
+            }
+            for (int term : docTerms[doc]) {
+                postingsById.get(term).remove(doc);
+            }
+            docTerms[doc] = NO_TERMS;
+            docCategories[doc] = -1;
+            live.clear(doc);
+            docByProduct.remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Prodotti che contengono tutti i termini della query (come prefissi) nell'ordine di indicizzazione,
+    // con il conteggio per categoria calcolato prima del filtro di categoria (faccette)
+    public SearchResult search(String query, String category, int offset, int limit) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokenize(query, tokens);
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (String token : tokens) {
+                BitSet tokenMatches = new BitSet(docCount);
+                for (Postings postings : dictionary.subMap(token, true, token + Character.MAX_VALUE, false).values()) {
+                    postings.addTo(tokenMatches);
+                }
+                if (matches == null) {
+                    matches = tokenMatches;
+                } else {
+                    matches.and(tokenMatches);
+                }
+                if (matches.isEmpty()) {
+                    break;
+                }
+            }
+            if (matches == null) {
+                matches = (BitSet) live.clone();
+            }
+
+            int[] counts = new int[categoryNames.size()];
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                if (docCategories[doc] >= 0) {
+                    counts[docCategories[doc]]++;
+                }
+            }
+
+            int filter = -1;
+            long total = matches.cardinality();
+            if (category != null && !category.isBlank()) {
+                Integer ordinal = categoryOrdinals.get(normalize(category));
+                if (ordinal == null) {
+                    return new SearchResult(List.of(), 0, facets(counts));
+                }
+                filter = ordinal;
+                total = counts[ordinal];
+            }
+
+            List<Long> productIds = new ArrayList<>(Math.min(limit, (int) Math.min(total, Integer.MAX_VALUE)));
+            int skipped = 0;
+            for (int doc = matches.nextSetBit(0); doc >= 0 && productIds.size() < limit; doc = matches.nextSetBit(doc + 1)) {
+                if (filter >= 0 && docCategories[doc] != filter) {
+                    continue;
+                }
+                if (skipped++ < offset) {
+                    continue;
+                }
+                productIds.add(docProducts[doc]);
+            }
+            return new SearchResult(productIds, total, facets(counts));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> statistics() {
+        lock.readLock().lock();
+        try {
+            long postings = 0;
+            long bytes = docByProduct.estimatedBytes()
+                    + docProducts.length * 8L + docCategories.length * 4L + docTerms.length * 8L
+                    + live.size() / 8;
+            for (int doc = 0; doc < docCount; doc++) {
+                bytes += 16 + docTerms[doc].length * 4L;
+            }
+            for (Map.Entry<String, Postings> entry : dictionary.entrySet()) {
+                postings += entry.getValue().size;
+                // Stringa compatta (header, array di byte) + entry del TreeMap + oggetto Postings con il suo array
+                bytes += 24 + 16 + entry.getKey().length() + 40 + 24 + 16 + entry.getValue().docs.length * 4L;
+            }
+
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("documents", live.cardinality());
+            statistics.put("terms", dictionary.size());
+            statistics.put("postings", postings);
+            statistics.put("categories", categoryNames.size());
+            statistics.put("estimatedBytes", bytes);
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Integer> facets(int[] counts) {
+        Integer[] ordinals = new Integer[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            ordinals[i] = i;
+        }
+        Arrays.sort(ordinals, (a, b) -> Integer.compare(counts[b], counts[a]));
+
+        Map<String, Integer> facets = new LinkedHashMap<>();
+        for (int ordinal : ordinals) {
+            if (counts[ordinal] > 0) {
+                facets.put(categoryNames.get(ordinal), counts[ordinal]);
+            }
+        }
+        return facets;
+    }
+
+    private int newDocument(long productId) {
+        if (docCount == docProducts.length) {
+            int capacity = docCount + (docCount >> 1);
+            docProducts = Arrays.copyOf(docProducts, capacity);
+            docCategories = Arrays.copyOf(docCategories, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        int doc = docCount++;
+        docProducts[doc] = productId;
+        docTerms[doc] = NO_TERMS;
+        docByProduct.put(productId, doc);
+        return doc;
+    }
+
+    private int termId(String token) {
+        Postings postings = dictionary.get(token);
+        if (postings == null) {
+            postings = new Postings(postingsById.size());
+            dictionary.put(token, postings);
+            postingsById.add(postings);
+        }
+        return postings.id;
+    }
+
+    private int categoryOrdinal(String category) {
+        if (category == null || category.isBlank()) {
+            return -1;
+        }
+        return categoryOrdinals.computeIfAbsent(normalize(category), key -> {
+            categoryNames.add(category);
+            return categoryNames.size() - 1;
+        });
+    }
+
+    private static String normalize(String text) {
+        String trimmed = text.trim();
+        // La decomposizione Unicode serve solo se il testo contiene caratteri non ASCII
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) > 127) {
+                return DIACRITICS.matcher(Normalizer.normalize(trimmed, Normalizer.Form.NFD))
+                        .replaceAll("")
+                        .toLowerCase(Locale.ROOT);
+            }
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    // Termini: sequenze di lettere e cifre, in minuscolo e senza accenti ("Caffè Espresso" -> caffe, espresso)
+    static void tokenize(String text, Set<String> tokens) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letterOrDigit = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    public record SearchResult(List<Long> productIds, long total, Map<String, Integer> categories) {
+    }
+
+    // Documenti di un termine, ordinati: gli inserimenti in coda (nuovi prodotti) non spostano nulla
+    private static final class Postings {
+        private final int id;
+        private int[] docs = new int[2];
+        private int size;
+
+        Postings(int id) {
+            this.id = id;
+        }
+
+        void add(int doc) {
+            int position = size == 0 || docs[size - 1] < doc ? size : Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0 && position < size) {
+                return;
+            }
+            int insertAt = position >= 0 ? position : -position - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size + (size >> 1) + 1);
+            }
+            System.arraycopy(docs, insertAt, docs, insertAt + 1, size - insertAt);
+            docs[insertAt] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            size--;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(docs[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// Documenti, termini, posting e memoria stimata dell'indice di ricerca: /actuator/searchindex
+@Component
+@Endpoint(id = "searchindex")
+@RequiredArgsConstructor
+public class ProductSearchIndexEndpoint {
+
+    private final ProductSearchIndex searchIndex;
+
+    @ReadOperation
+    public Map<String, Object> statistics() {
+        return searchIndex.statistics();
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.ProductChangeEvent;
+import org.example.dto.ProductResponse;
+import org.example.model.Product;
+import org.example.repository.ProductRepository;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+// Costruisce l'indice di ricerca all'avvio (prima che il server accetti richieste) leggendo il catalogo a pagine
+// keyset, poi lo aggiorna con gli eventi di modifica pubblicati da ProductService dopo il commit
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndexer implements SmartInitializingSingleton {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex searchIndex;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long start = System.nanoTime();
+        long after = 0;
+        int loaded = 0;
+        List<Product> page;
+        do {
+            page = productRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, LOAD_PAGE_SIZE));
+            for (Product product : page) {
+                searchIndex.index(product.getId(), product.getName(), product.getDescription(), product.getCategory());
+                after = product.getId();
+            }
+            loaded += page.size();
+        } while (page.size() == LOAD_PAGE_SIZE);
+        log.info("Product search index built with {} products in {} ms", loaded, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Sincrono: una ricerca fatta subito dopo la scrittura vede già la modifica
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.ChangeType.DELETED) {
+            searchIndex.remove(event.getProductId());
+            return;
+        }
+        ProductResponse product = event.getProduct();
+        searchIndex.index(product.getId(), product.getName(), product.getDescription(), product.getCategory());
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.example.dto.StockItemRequest;
+import org.example.exception.InsufficientStockException;
+import org.example.inventory.StockLedger;
+import org.example.inventory.StockReservations;
+import org.example.model.Product;
+import org.example.model.StockRelease;
+import org.example.repository.ProductRepository;
+import org.example.repository.StockReleaseRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private final StockLedger stockLedger;
+    private final StockReservations reservations;
+    private final ProductRepository productRepository;
+    private final StockReleaseRepository stockReleases;
+
+    // Con reservationId la prenotazione è idempotente e il rilascio restituisce solo quanto è stato scalato
+    public void reserve(String reservationId, List<StockItemRequest> items) {
+        Map<Long, Integer> quantities = toQuantities(items);
+        List<Long> unavailable = reservationId != null
+                ? reservations.tryReserve(reservationId, quantities, this::loadStock)
+                : stockLedger.tryReserve(quantities, this::loadStock);
+        if (!unavailable.isEmpty()) {
+            throw new InsufficientStockException(unavailable);
+        }
+    }
+
+    // Con releaseId le quantità indicate vengono restituite una sola volta per id, anche dopo la scadenza della
+    // prenotazione: l'id viene salvato prima di toccare le giacenze e un id già visto non ha effetto
+    public void release(String reservationId, String releaseId, List<StockItemRequest> items) {
+        if (releaseId != null) {
+            Map<Long, Integer> quantities = toQuantities(items);
+            try {
+                stockReleases.saveAndFlush(new StockRelease(releaseId, LocalDateTime.now()));
+            } catch (DataIntegrityViolationException e) {
+                log.info("Stock release {} already applied", releaseId);
+                return;
+            }
+            stockLedger.release(quantities);
+            return;
+        }
+        if (reservationId != null) {
+            boolean released = reservations.release(reservationId);
+            log.debug("Reservation {} released: {}", reservationId, released);
+            return;
+        }
+        stockLedger.release(toQuantities(items));
+    }
+
+    // Le giacenze modificate in memoria vengono salvate periodicamente in un'unica transazione
+    @Scheduled(fixedDelayString = "${inventory.flush-interval:1000}")
+    @Transactional
+    public void flush() {
+        Map<Long, Integer> changes = stockLedger.drainDirty();
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Product> products = productRepository.findAllById(changes.keySet());
+            products.forEach(product -> product.setStock(changes.get(product.getId())));
+            productRepository.saveAll(products);
+            log.debug("Flushed stock of {} products", products.size());
+        } catch (RuntimeException e) {
+            // Le giacenze non salvate restano dirty e vengono ritentate al flush successivo
+            stockLedger.markDirty(changes.keySet());
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservation-sweep-interval:60000}")
+    public void expireReservations() {
+        reservations.expire();
+    }
+
+    private Integer loadStock(long productId) {
+        return productRepository.findById(productId)
+                .map(product -> product.getStock() != null ? product.getStock() : 0)
+                .orElse(null);
+    }
+
+    // Le righe con lo stesso prodotto vengono sommate; le quantità devono essere positive
+    private Map<Long, Integer> toQuantities(List<StockItemRequest> items) {
+        items.forEach(item -> {
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for product: " + item.getProductId());
+            }
+        });
+        return items.stream()
+                .collect(Collectors.toMap(StockItemRequest::getProductId, StockItemRequest::getQuantity, Integer::sum));
+    }
+}
@@ -1,23 +1,50 @@
 package org.example.service;
 
-import com.example.productservice.dto.ProductRequest;
-import com.example.productservice.dto.ProductResponse;
-import com.example.productservice.model.Product;
-import com.example.productservice.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.example.catalog.CompactCatalog;
+import org.example.catalog.PreSerializedJson;
+import org.example.catalog.ProductJsonCache;
+import org.example.dto.CursorPage;
+import org.example.dto.ProductChangeEvent;
+import org.example.dto.ProductRequest;
+import org.example.dto.ProductResponse;
+import org.example.dto.ProductSearchResponse;
+import org.example.inventory.StockLedger;
+import org.example.model.Product;
+import org.example.repository.ProductRepository;
+import org.example.search.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProductService {
 
+    private static final int EXPORT_FLUSH_SIZE = 500;
+
     private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockLedger stockLedger;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex searchIndex;
+    private final CompactCatalog catalog;
+    private final ProductJsonCache jsonCache;
 
     public ProductResponse createProduct(ProductRequest productRequest) {
         Product product = Product.builder()
@@ -31,7 +58,9 @@ public class ProductService {
         Product savedProduct = productRepository.save(product);
         log.info("Product {} is saved", savedProduct.getId());
 
-        return mapToProductResponse(savedProduct);
+        ProductResponse response = mapToProductResponse(savedProduct);
+        publishChange(ProductChangeEvent.ChangeType.CREATED, savedProduct.getId(), response, savedProduct.getVersion());
+        return response;
     }
 
     public List<ProductResponse> getAllProducts() {
@@ -42,13 +71,107 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    public CursorPage<ProductResponse> getProductsPage(Long after, int limit) {
+        // Si legge un elemento in più per sapere se esiste una pagina successiva
+        List<Product> products = productRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit + 1));
+        boolean hasNext = products.size() > limit;
+        List<ProductResponse> items = products.stream()
+                .limit(limit)
+                .map(this::mapToProductResponse)
+                .collect(Collectors.toList());
+
+        return CursorPage.<ProductResponse>builder()
+                .items(items)
+                .next(hasNext ? items.get(items.size() - 1).getId() : null)
+                .build();
+    }
+
+    // Export NDJSON: una riga per prodotto, scritta man mano che il cursore avanza
+    @Transactional(readOnly = true)
+    public void exportProducts(OutputStream out) throws IOException {
+        int written = 0;
+        try (Stream<Product> products = productRepository.streamAll()) {
+            Iterator<Product> iterator = products.iterator();
+            while (iterator.hasNext()) {
+                out.write(objectMapper.writeValueAsBytes(mapToProductResponse(iterator.next())));
+                out.write('\n');
+                // Il persistence context viene svuotato a blocchi per mantenere la memoria costante
+                if (++written % EXPORT_FLUSH_SIZE == 1) {
+                    out.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+        out.flush();
+    }
+
+    // Con il catalogo compatto attivo la lettura non passa da Hibernate; il database serve solo per gli id
+    // che il catalogo non conosce (ad esempio inesistenti)
     public ProductResponse getProductById(Long id) {
+        if (catalog.isEnabled()) {
+            ProductResponse cached = catalog.get(id);
+            if (cached != null) {
+                return withCurrentStock(cached);
+            }
+        }
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
 
         return mapToProductResponse(product);
     }
 
+    public List<ProductResponse> getProductsByIds(List<Long> ids) {
+        if (!catalog.isEnabled()) {
+            // Un'unica query IN al posto di una findById per ogni id richiesto
+            return productRepository.findAllById(ids).stream()
+                    .map(this::mapToProductResponse)
+                    .collect(Collectors.toList());
+        }
+
+        List<ProductResponse> products = new ArrayList<>(ids.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            ProductResponse cached = catalog.get(id);
+            if (cached != null) {
+                products.add(withCurrentStock(cached));
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            productRepository.findAllById(missing).stream()
+                    .map(this::mapToProductResponse)
+                    .forEach(products::add);
+        }
+        return products;
+    }
+
+    public boolean isJsonCacheEnabled() {
+        return jsonCache.isEnabled();
+    }
+
+    // JSON già serializzato per la versione corrente del prodotto: il database viene letto solo alla prima
+    // richiesta dopo l'avvio o dopo una modifica fatta da un'altra istanza
+    public PreSerializedJson getProductJson(Long id) {
+        PreSerializedJson cached = jsonCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
+
+        return jsonCache.put(product);
+    }
+
+    public PreSerializedJson getProductsByCategoryJson(String category) {
+        PreSerializedJson cached = jsonCache.getCategory(category);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = jsonCache.categoryGeneration();
+        return jsonCache.putCategory(category, generation, productRepository.findByCategory(category));
+    }
+
     public List<ProductResponse> getProductsByCategory(String category) {
         List<Product> products = productRepository.findByCategory(category);
 
@@ -57,6 +180,23 @@ public class ProductService {
                 .collect(Collectors.toList());
     }
 
+    // L'indice restituisce solo gli id della pagina richiesta, i prodotti vengono letti dal catalogo (o con un'unica query IN)
+    public ProductSearchResponse searchProducts(String query, String category, int page, int size) {
+        int offset = (int) Math.min((long) page * size, Integer.MAX_VALUE);
+        ProductSearchIndex.SearchResult result = searchIndex.search(query, category, offset, size);
+        List<ProductResponse> items = result.productIds().isEmpty() ? List.of() : getProductsByIds(result.productIds()).stream()
+                .sorted(Comparator.comparing(ProductResponse::getId))
+                .collect(Collectors.toList());
+
+        return ProductSearchResponse.builder()
+                .items(items)
+                .total(result.total())
+                .page(page)
+                .size(size)
+                .categories(result.categories())
+                .build();
+    }
+
     @Transactional
     public ProductResponse updateProduct(Long id, ProductRequest productRequest) {
         Product product = productRepository.findById(id)
@@ -68,10 +208,18 @@ public class ProductService {
         product.setStock(productRequest.getStock());
         product.setCategory(productRequest.getCategory());
 
-        Product updatedProduct = productRepository.save(product);
+        // Il flush immediato incrementa la versione, che viaggia con l'evento di modifica
+        Product updatedProduct = productRepository.saveAndFlush(product);
         log.info("Product {} is updated", updatedProduct.getId());
 
-        return mapToProductResponse(updatedProduct);
+        // Un aggiornamento esplicito della giacenza sostituisce il valore del ledger
+        if (updatedProduct.getStock() != null) {
+            stockLedger.set(updatedProduct.getId(), updatedProduct.getStock());
+        }
+
+        ProductResponse response = mapToProductResponse(updatedProduct);
+        publishChange(ProductChangeEvent.ChangeType.UPDATED, updatedProduct.getId(), response, updatedProduct.getVersion());
+        return response;
     }
 
     public void deleteProduct(Long id) {
@@ -79,7 +227,20 @@ public class ProductService {
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
 
         productRepository.deleteById(id);
+        stockLedger.remove(id);
         log.info("Product {} is deleted", id);
+
+        publishChange(ProductChangeEvent.ChangeType.DELETED, id, null, null);
+    }
+
+    // Notifica i servizi con near-cache; con una transazione attiva l'invio avviene dopo il commit
+    private void publishChange(ProductChangeEvent.ChangeType type, Long id, ProductResponse product, Long version) {
+        eventPublisher.publishEvent(ProductChangeEvent.builder()
+                .productId(id)
+                .type(type)
+                .product(product)
+                .version(version)
+                .build());
     }
 
     private ProductResponse mapToProductResponse(Product product) {
@@ -88,9 +249,24 @@ public class ProductService {
                 .name(product.getName())
                 .description(product.getDescription())
                 .price(product.getPrice())
-                .stock(product.getStock())
+                .stock(currentStock(product))
                 .category(product.getCategory())
                 .build();
     }
 
+    // Il catalogo conserva la giacenza dell'ultima scrittura, le prenotazioni successive sono nel ledger
+    private ProductResponse withCurrentStock(ProductResponse product) {
+        Integer available = stockLedger.available(product.getId());
+        if (available != null) {
+            product.setStock(available);
+        }
+        return product;
+    }
+
+    // La giacenza aggiornata è quella del ledger, il database la riceve al flush successivo
+    private Integer currentStock(Product product) {
+        Integer available = stockLedger.available(product.getId());
+        return available != null ? available : product.getStock();
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+package org.example.catalog;
+
+import org.example.model.Product;
+import org.example.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Lo snapshot salvato all'arresto vale solo finché il database non cambia: stesso numero di prodotti e stesso
+// id massimo non bastano, una modifica successiva deve far ricostruire il catalogo
+@DataJpaTest
+class CompactCatalogLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Product lamp;
+
+    @BeforeEach
+    void saveProducts() {
+        lamp = productRepository.saveAndFlush(product("Lampada", 12));
+        productRepository.saveAndFlush(product("Sedia", 3));
+        new CompactCatalogLoader(productRepository, loadedCatalog(), snapshot()).saveSnapshot();
+    }
+
+    @Test
+    void unchangedDatabaseLoadsSnapshot() {
+        CompactCatalog catalog = loadedCatalog();
+
+        assertThat(catalog.size()).isEqualTo(2);
+        assertThat(catalog.get(lamp.getId()).getName()).isEqualTo("Lampada");
+    }
+
+    @Test
+    void updatedProductInvalidatesSnapshot() {
+        lamp.setName("Lampada da tavolo");
+        productRepository.saveAndFlush(lamp);
+
+        assertThat(loadedCatalog().get(lamp.getId()).getName()).isEqualTo("Lampada da tavolo");
+    }
+
+    // La giacenza non incrementa la versione: il checksum la include a parte
+    @Test
+    void stockChangeInvalidatesSnapshot() {
+        lamp.setStock(7);
+        productRepository.saveAndFlush(lamp);
+
+        assertThat(loadedCatalog().get(lamp.getId()).getStock()).isEqualTo(7);
+    }
+
+    private CompactCatalog loadedCatalog() {
+        CompactCatalog catalog = new CompactCatalog(true, false, DataSize.ofKilobytes(4));
+        new CompactCatalogLoader(productRepository, catalog, snapshot()).afterSingletonsInstantiated();
+        return catalog;
+    }
+
+    private String snapshot() {
+        return directory.resolve("catalog.snapshot").toString();
+    }
+
+    private static Product product(String name, Integer stock) {
+        return Product.builder()
+                .name(name)
+                .price(new BigDecimal("19.90"))
+                .stock(stock)
+                .category("casa")
+                .build();
+    }
+}
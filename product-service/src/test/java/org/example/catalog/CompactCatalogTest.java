@@ -0,0 +1,114 @@
+package org.example.catalog;
+
+import org.example.dto.ProductResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompactCatalogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void putGetAndRemoveRoundTrip() {
+        CompactCatalog catalog = catalog(false);
+        ProductResponse lamp = product(1L, "Lampada àèì €", new BigDecimal("19.90"), 12);
+        // Campi null e un prezzo che non entra in un long
+        ProductResponse empty = ProductResponse.builder().id(2L).build();
+        ProductResponse huge = product(3L, "Quadro", new BigDecimal("123456789012345678901234567890.55"), 1);
+
+        catalog.put(lamp);
+        catalog.put(empty);
+        catalog.put(huge);
+
+        assertThat(catalog.get(1L)).isEqualTo(lamp);
+        assertThat(catalog.get(2L)).isEqualTo(empty);
+        assertThat(catalog.get(3L)).isEqualTo(huge);
+        assertThat(catalog.get(4L)).isNull();
+
+        ProductResponse updated = product(1L, "Lampada", new BigDecimal("17.50"), 11);
+        catalog.put(updated);
+        catalog.remove(3L);
+
+        assertThat(catalog.get(1L)).isEqualTo(updated);
+        assertThat(catalog.get(3L)).isNull();
+        assertThat(catalog.size()).isEqualTo(2);
+    }
+
+    // Un buffer iniziale di pochi byte cresce a ogni scrittura che non ci sta, anche off-heap
+    @Test
+    void growsPastInitialCapacity() {
+        CompactCatalog catalog = catalog(true);
+
+        for (long id = 1; id <= 5_000; id++) {
+            catalog.put(product(id, "Prodotto " + id, BigDecimal.valueOf(id, 2), (int) id));
+        }
+        for (long id = 1; id <= 5_000; id += 2) {
+            catalog.put(product(id, "Prodotto aggiornato " + id, BigDecimal.ONE, 0));
+        }
+
+        assertThat(catalog.size()).isEqualTo(5_000);
+        assertThat(catalog.get(1L)).isEqualTo(product(1L, "Prodotto aggiornato 1", BigDecimal.ONE, 0));
+        assertThat(catalog.get(5_000L)).isEqualTo(product(5_000L, "Prodotto 5000", BigDecimal.valueOf(5_000, 2), 5_000));
+        assertThat((int) catalog.statistics().get("capacityBytes")).isGreaterThan(64);
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        CompactCatalog catalog = catalog(false);
+        catalog.put(product(1L, "Lampada", new BigDecimal("19.90"), 12));
+        catalog.put(product(2L, "Sedia", new BigDecimal("45.00"), 3));
+        catalog.put(product(2L, "Sedia", new BigDecimal("39.00"), 3));
+        catalog.put(product(5L, "Tavolo", new BigDecimal("120.00"), 1));
+        catalog.remove(5L);
+        catalog.writeSnapshot(file, 42L);
+
+        CompactCatalog reloaded = catalog(true);
+
+        assertThat(reloaded.loadSnapshot(file, 2, 5L, 42L)).isTrue();
+        assertThat(reloaded.size()).isEqualTo(2);
+        assertThat(reloaded.get(1L)).isEqualTo(catalog.get(1L));
+        assertThat(reloaded.get(2L)).isEqualTo(catalog.get(2L));
+        assertThat(reloaded.get(5L)).isNull();
+    }
+
+    // Stesso numero di prodotti e stesso id massimo ma checksum diverso: il database è cambiato dopo il salvataggio
+    @Test
+    void staleSnapshotIsRejected() throws IOException {
+        Path file = directory.resolve("catalog.snapshot");
+        CompactCatalog catalog = catalog(false);
+        catalog.put(product(1L, "Lampada", new BigDecimal("19.90"), 12));
+        catalog.writeSnapshot(file, 42L);
+
+        CompactCatalog reloaded = catalog(false);
+
+        assertThat(reloaded.loadSnapshot(file, 1, 1L, 43L)).isFalse();
+        assertThat(reloaded.loadSnapshot(file, 2, 1L, 42L)).isFalse();
+        assertThat(reloaded.loadSnapshot(file, 1, 2L, 42L)).isFalse();
+        assertThat(reloaded.size()).isZero();
+        assertThat(reloaded.get(1L)).isNull();
+    }
+
+    private static CompactCatalog catalog(boolean offHeap) {
+        return new CompactCatalog(true, offHeap, DataSize.ofBytes(64));
+    }
+
+    private static ProductResponse product(Long id, String name, BigDecimal price, Integer stock) {
+        return ProductResponse.builder()
+                .id(id)
+                .name(name)
+                .description("Descrizione di " + name)
+                .price(price)
+                .stock(stock)
+                .category("casa")
+                .build();
+    }
+}
@@ -0,0 +1,137 @@
+package org.example.catalog;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dto.ProductChangeEvent;
+import org.example.dto.ProductResponse;
+import org.example.inventory.StockLedger;
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductJsonCacheTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final StockLedger stockLedger = new StockLedger();
+    private final ProductJsonCache cache = cache(Duration.ofMinutes(1));
+
+    // Nomi e descrizioni che contengono la chiave "stock": la giacenza va inserita solo nel campo vero
+    private final List<Product> products = List.of(
+            product(1L, "Lampada \"stock\":5", "Descrizione con ,\"stock\":null", 12),
+            product(2L, "{\"stock\":1}", "Ultimi \"stock\": pezzi", null),
+            product(3L, "Sedia", null, 0),
+            product(4L, "Tavolo \\\"stock\\\":", "àèì €", 7));
+
+    @Test
+    void splicedProductMatchesObjectMapper() throws IOException {
+        for (Product product : products) {
+            assertThat(write(cache.put(product))).isEqualTo(objectMapper.writeValueAsString(response(product, product.getStock())));
+            assertThat(write(cache.get(product.getId()))).isEqualTo(write(cache.put(product)));
+        }
+    }
+
+    // Dopo una prenotazione la giacenza arriva dal ledger, la versione serializzata resta la stessa
+    @Test
+    void splicedProductCarriesLedgerStock() throws IOException {
+        Product product = products.get(0);
+        cache.put(product);
+        stockLedger.load(product.getId(), 3);
+
+        PreSerializedJson json = cache.get(product.getId());
+
+        assertThat(write(json)).isEqualTo(objectMapper.writeValueAsString(response(product, 3)));
+        assertThat(json.length()).isEqualTo(write(json).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void splicedCategoryMatchesObjectMapper() throws IOException {
+        stockLedger.load(2L, 40);
+
+        PreSerializedJson json = cache.putCategory("casa", cache.categoryGeneration(), products);
+
+        List<ProductResponse> expected = products.stream()
+                .map(product -> response(product, product.getId() == 2L ? 40 : product.getStock()))
+                .toList();
+        assertThat(write(json)).isEqualTo(objectMapper.writeValueAsString(expected));
+        assertThat(json.length()).isEqualTo(write(json).getBytes(StandardCharsets.UTF_8).length);
+        assertThat(write(cache.getCategory("casa"))).isEqualTo(write(json));
+    }
+
+    // Il segnaposto di un prodotto cancellato blocca una lettura concorrente con la versione vecchia
+    @Test
+    void deletedProductIsNotReinsertedWhileMarkerIsAlive() {
+        Product product = products.get(2);
+        cache.put(product);
+
+        cache.onProductChange(deleted(product.getId()));
+        cache.put(product);
+
+        assertThat(cache.get(product.getId())).isNull();
+    }
+
+    // Il segnaposto scade: i prodotti cancellati non restano in memoria e l'id torna utilizzabile
+    @Test
+    void deletedMarkerExpires() {
+        ProductJsonCache expiring = cache(Duration.ZERO);
+        Product product = products.get(2);
+        expiring.put(product);
+
+        expiring.onProductChange(deleted(product.getId()));
+        assertThat(expiring.get(product.getId())).isNull();
+        expiring.put(product);
+
+        assertThat(expiring.get(product.getId())).isNotNull();
+    }
+
+    private ProductJsonCache cache(Duration deletedTtl) {
+        return new ProductJsonCache(true, 1000, 100, deletedTtl, objectMapper, stockLedger);
+    }
+
+    private static ProductChangeEvent deleted(Long id) {
+        return ProductChangeEvent.builder()
+                .productId(id)
+                .type(ProductChangeEvent.ChangeType.DELETED)
+                .build();
+    }
+
+    private static Product product(Long id, String name, String description, Integer stock) {
+        return Product.builder()
+                .id(id)
+                .name(name)
+                .description(description)
+                .price(new BigDecimal("19.90"))
+                .stock(stock)
+                .category("casa")
+                .version(1L)
+                .build();
+    }
+
+    private static ProductResponse response(Product product, Integer stock) {
+        return ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stock(stock)
+                .category(product.getCategory())
+                .build();
+    }
+
+    private static String write(PreSerializedJson json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            json.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.collection;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongIntMapTest {
+
+    @Test
+    void putGetAndRemoveRoundTrip() {
+        LongIntMap map = new LongIntMap(16);
+
+        map.put(7L, 70);
+        map.put(0L, 1);
+        map.put(-3L, 30);
+        map.put(7L, 71);
+
+        assertThat(map.get(7L)).isEqualTo(71);
+        assertThat(map.get(0L)).isEqualTo(1);
+        assertThat(map.get(-3L)).isEqualTo(30);
+        assertThat(map.get(8L)).isEqualTo(-1);
+
+        map.remove(7L);
+        map.remove(42L);
+
+        assertThat(map.get(7L)).isEqualTo(-1);
+        assertThat(map.get(0L)).isEqualTo(1);
+        map.put(7L, 72);
+        assertThat(map.get(7L)).isEqualTo(72);
+    }
+
+    // Oltre i 3/4 della capacità iniziale la tabella raddoppia: nessuna chiave va persa, le rimosse non tornano
+    @Test
+    void growsPastInitialCapacity() {
+        LongIntMap map = new LongIntMap(16);
+        long initialBytes = map.estimatedBytes();
+
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 1_000_003L, i);
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            map.remove(i * 1_000_003L);
+        }
+        for (int i = 10_000; i < 20_000; i++) {
+            map.put(i * 1_000_003L, i);
+        }
+
+        assertThat(map.estimatedBytes()).isGreaterThan(initialBytes);
+        for (int i = 0; i < 20_000; i++) {
+            assertThat(map.get(i * 1_000_003L)).isEqualTo(i < 10_000 && i % 2 == 0 ? -1 : i);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.controller;
+
+import org.example.catalog.PreSerializedJson;
+import org.example.catalog.PreSerializedJsonConverter;
+import org.example.dto.ProductResponse;
+import org.example.service.InventoryService;
+import org.example.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Con e senza JSON pre-serializzato GET /products/{id} risponde application/json con lo stesso corpo
+@WebMvcTest(ProductController.class)
+@Import(PreSerializedJsonConverter.class)
+class ProductControllerTest {
+
+    private static final String PRODUCT = """
+            {"id":1,"name":"Sedia","description":null,"price":19.90,"stock":4,"category":"casa"}""";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ProductService productService;
+
+    @MockBean
+    private InventoryService inventoryService;
+
+    @Test
+    void preSerializedProductIsWrittenAsJson() throws Exception {
+        byte[] body = PRODUCT.getBytes(StandardCharsets.UTF_8);
+        when(productService.isJsonCacheEnabled()).thenReturn(true);
+        when(productService.getProductJson(1L)).thenReturn(new PreSerializedJson() {
+            @Override
+            public int length() {
+                return body.length;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(body);
+            }
+        });
+
+        mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().longValue("Content-Length", body.length))
+                .andExpect(content().json(PRODUCT, true));
+    }
+
+    @Test
+    void productIsSerializedAsJsonWithoutCache() throws Exception {
+        when(productService.getProductById(1L)).thenReturn(ProductResponse.builder()
+                .id(1L)
+                .name("Sedia")
+                .price(new BigDecimal("19.90"))
+                .stock(4)
+                .category("casa")
+                .build());
+
+        mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(PRODUCT, true));
+    }
+}
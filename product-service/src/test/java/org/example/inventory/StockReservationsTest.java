@@ -0,0 +1,104 @@
+package org.example.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockReservationsTest {
+
+    private final StockLedger stockLedger = new StockLedger();
+    private final StockReservations reservations = new StockReservations(stockLedger, Duration.ofMinutes(10));
+
+    // Molti ordini concorrenti su due prodotti, ognuno ripetuto come farebbe un client dopo un timeout:
+    // le giacenze non vanno mai sotto zero e il totale prenotato è esattamente quello disponibile
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        stockLedger.load(1L, 100);
+        stockLedger.load(2L, 300);
+        int orders = 1000;
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < orders; i++) {
+                String reservationId = "order-" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int attempt = 0; attempt < 2; attempt++) {
+                        List<Long> unavailable = reservations.tryReserve(reservationId, Map.of(1L, 1, 2L, 3), id -> 0);
+                        if (attempt == 0 && unavailable.isEmpty()) {
+                            accepted.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(accepted.get()).isEqualTo(100);
+        assertThat(stockLedger.available(1L)).isZero();
+        assertThat(stockLedger.available(2L)).isZero();
+    }
+
+    @Test
+    void repeatedReservationIsAppliedOnce() {
+        stockLedger.load(1L, 10);
+
+        assertThat(reservations.tryReserve("order-1", Map.of(1L, 4), id -> 0)).isEmpty();
+        assertThat(reservations.tryReserve("order-1", Map.of(1L, 4), id -> 0)).isEmpty();
+        assertThat(stockLedger.available(1L)).isEqualTo(6);
+
+        assertThat(reservations.release("order-1")).isTrue();
+        assertThat(reservations.release("order-1")).isFalse();
+        assertThat(stockLedger.available(1L)).isEqualTo(10);
+    }
+
+    // Il rilascio di una prenotazione rifiutata (409) non restituisce giacenze mai scalate
+    @Test
+    void releasingRejectedReservationChangesNothing() {
+        stockLedger.load(1L, 2);
+
+        assertThat(reservations.tryReserve("order-1", Map.of(1L, 5), id -> 0)).containsExactly(1L);
+        assertThat(reservations.release("order-1")).isFalse();
+        assertThat(stockLedger.available(1L)).isEqualTo(2);
+    }
+
+    // Il chiamante è andato in timeout e ha già rilasciato: la prenotazione che arriva dopo non scala nulla
+    @Test
+    void lateReservationAfterReleaseIsIgnored() {
+        stockLedger.load(1L, 10);
+
+        reservations.release("order-1");
+        assertThat(reservations.tryReserve("order-1", Map.of(1L, 4), id -> 0)).isEmpty();
+        assertThat(stockLedger.available(1L)).isEqualTo(10);
+    }
+
+    @Test
+    void expiredReservationsAreForgotten() {
+        StockReservations shortLived = new StockReservations(stockLedger, Duration.ZERO);
+        stockLedger.load(1L, 10);
+        shortLived.tryReserve("order-1", Map.of(1L, 1), id -> 0);
+
+        shortLived.expire();
+
+        assertThat(shortLived.size()).isZero();
+        assertThat(stockLedger.available(1L)).isEqualTo(9);
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.search;
+
+import org.example.search.ProductSearchIndex.SearchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @BeforeEach
+    void indexProducts() {
+        index.index(1L, "Caffè Espresso", "Miscela arabica", "Bevande");
+        index.index(2L, "Caffettiera", "Moka in alluminio", "Casa");
+        index.index(3L, "Tè verde", "Foglie sfuse", "Bevande");
+        index.index(4L, "Tazza da caffè", "Ceramica bianca", "Casa");
+    }
+
+    // Ogni termine vale come prefisso, senza distinzione di maiuscole e accenti; più termini sono in AND
+    @Test
+    void termsMatchAsPrefixes() {
+        assertThat(index.search("caf", null, 0, 10).productIds()).containsExactly(1L, 2L, 4L);
+        assertThat(index.search("CAFFE", null, 0, 10).productIds()).containsExactly(1L, 2L, 4L);
+        assertThat(index.search("caffè tazz", null, 0, 10).productIds()).containsExactly(4L);
+        assertThat(index.search("te", null, 0, 10).productIds()).containsExactly(3L);
+        assertThat(index.search("caf verde", null, 0, 10).productIds()).isEmpty();
+        assertThat(index.search("ara", null, 0, 10).productIds()).containsExactly(1L);
+    }
+
+    // Le faccette contano tutte le corrispondenze, prima del filtro di categoria
+    @Test
+    void facetsCountMatchesBeforeCategoryFilter() {
+        SearchResult result = index.search("caf", "casa", 0, 10);
+
+        assertThat(result.productIds()).containsExactly(2L, 4L);
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(result.categories()).containsExactly(Map.entry("Casa", 2), Map.entry("Bevande", 1));
+    }
+
+    // Un aggiornamento sposta il prodotto di categoria e sostituisce i suoi termini
+    @Test
+    void facetsFollowUpdates() {
+        index.index(2L, "Bollitore", "Acciaio", "Bevande");
+
+        SearchResult caf = index.search("caf", null, 0, 10);
+        assertThat(caf.productIds()).containsExactly(1L, 4L);
+        assertThat(caf.categories()).containsExactly(Map.entry("Bevande", 1), Map.entry("Casa", 1));
+
+        SearchResult all = index.search(null, null, 0, 10);
+        assertThat(all.categories()).containsExactly(Map.entry("Bevande", 3), Map.entry("Casa", 1));
+        assertThat(index.search("moka", null, 0, 10).total()).isZero();
+        assertThat(index.search("bolli", "bevande", 0, 10).productIds()).containsExactly(2L);
+    }
+
+    // Una categoria rimasta senza prodotti sparisce dalle faccette; il prodotto può tornare con un nuovo documento
+    @Test
+    void facetsFollowDeletes() {
+        index.remove(2L);
+        index.remove(4L);
+        index.remove(99L);
+
+        SearchResult all = index.search("", null, 0, 10);
+        assertThat(all.productIds()).containsExactly(1L, 3L);
+        assertThat(all.categories()).containsExactly(Map.entry("Bevande", 2));
+        assertThat(index.search("caf", "casa", 0, 10).total()).isZero();
+
+        index.index(2L, "Caffettiera", "Moka in alluminio", "Casa");
+        assertThat(index.search("caf", null, 0, 10).productIds()).containsExactly(1L, 2L);
+        assertThat(index.statistics()).containsEntry("documents", 3);
+    }
+
+    // Pagine consecutive coprono tutte le corrispondenze una sola volta; il totale non dipende dalla pagina
+    @Test
+    void pagesCoverAllMatchesOnce() {
+        for (long id = 10; id < 35; id++) {
+            index.index(id, "Capsula " + id, null, id % 2 == 0 ? "Casa" : "Bevande");
+        }
+
+        List<Long> paged = new ArrayList<>();
+        for (int offset = 0; offset < 25; offset += 10) {
+            SearchResult page = index.search("capsula", null, offset, 10);
+            assertThat(page.total()).isEqualTo(25);
+            assertThat(page.productIds()).hasSize(offset == 20 ? 5 : 10);
+            paged.addAll(page.productIds());
+        }
+        assertThat(paged).isEqualTo(index.search("capsula", null, 0, 100).productIds());
+        assertThat(paged).doesNotHaveDuplicates().hasSize(25).first().isEqualTo(10L);
+
+        assertThat(index.search("capsula", null, 25, 10).productIds()).isEmpty();
+        assertThat(index.search("capsula", null, 0, 0).productIds()).isEmpty();
+
+        // Con il filtro di categoria l'offset conta solo i prodotti della categoria
+        SearchResult casa = index.search("capsula", "Casa", 10, 10);
+        assertThat(casa.total()).isEqualTo(13);
+        assertThat(casa.productIds()).containsExactly(30L, 32L, 34L);
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.service;
+
+import org.example.dto.StockItemRequest;
+import org.example.inventory.StockLedger;
+import org.example.inventory.StockReservations;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Senza transazione di test: ogni rilascio salva il proprio id in una transazione a sé, come nel servizio
+@DataJpaTest
+@Import({InventoryService.class, StockLedger.class, StockReservations.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryServiceTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    // Un annullamento ripetuto (timeout, rollback del cambio di stato) restituisce le giacenze una volta sola
+    @Test
+    void releaseWithSameIdIsAppliedOnce() {
+        stockLedger.load(1L, 10);
+        List<StockItemRequest> items = List.of(item(1L, 3));
+
+        inventoryService.release(null, "order-1:cancel", items);
+        inventoryService.release(null, "order-1:cancel", items);
+
+        assertThat(stockLedger.available(1L)).isEqualTo(13);
+    }
+
+    @Test
+    void differentReleaseIdsAreAppliedSeparately() {
+        stockLedger.load(2L, 10);
+
+        inventoryService.release(null, "order-2:cancel", List.of(item(2L, 3)));
+        inventoryService.release(null, "order-3:cancel", List.of(item(2L, 2)));
+
+        assertThat(stockLedger.available(2L)).isEqualTo(15);
+    }
+
+    private static StockItemRequest item(Long productId, int quantity) {
+        return StockItemRequest.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .build();
+    }
+}
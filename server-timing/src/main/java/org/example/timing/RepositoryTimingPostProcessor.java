@@ -0,0 +1,28 @@
+package org.example.timing;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Registra come tratto "db" la durata di ogni invocazione dei repository Spring Data
+@Component
+public class RepositoryTimingPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<ServerTiming> serverTiming;
+
+    public RepositoryTimingPostProcessor(ObjectProvider<ServerTiming> serverTiming) {
+        this.serverTiming = serverTiming;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addInvocationListener(invocation ->
+                    serverTiming.getObject().record("db", invocation.getDuration(TimeUnit.NANOSECONDS))));
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.timing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServerTimingTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ServerTiming serverTiming = new ServerTiming(meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        ServerTiming.end();
+        executor.shutdownNow();
+    }
+
+    // Come i blocchi paralleli del ProductCache dell'order-service: i tratti registrati sugli altri thread entrano nell'header
+    @Test
+    void propagatedTasksRecordIntoCurrentRequest() {
+        ServerTiming.begin();
+
+        CompletableFuture.allOf(
+                CompletableFuture.supplyAsync(ServerTiming.propagate(() -> record("product-service")), executor),
+                CompletableFuture.supplyAsync(ServerTiming.propagate(() -> record("product-service")), executor)
+        ).join();
+
+        assertThat(ServerTiming.header()).contains("product-service;dur=").contains("desc=\"2 calls\"");
+        assertThat(meterRegistry.get("server.timing").tag("hop", "product-service").timer().count()).isEqualTo(2);
+    }
+
+    // Senza propagazione il tratto resta solo nella metrica e il thread del pool non conserva la raccolta
+    @Test
+    void tasksWithoutPropagationOnlyReachMetrics() throws Exception {
+        ServerTiming.begin();
+
+        executor.submit(() -> record("product-service")).get(5, TimeUnit.SECONDS);
+
+        assertThat(ServerTiming.header()).doesNotContain("product-service");
+        assertThat(executor.submit(ServerTiming::header).get(5, TimeUnit.SECONDS)).isNull();
+        assertThat(meterRegistry.get("server.timing").tag("hop", "product-service").timer().count()).isEqualTo(1);
+    }
+
+    private Void record(String hop) {
+        serverTiming.record(hop, TimeUnit.MILLISECONDS.toNanos(3));
+        return null;
+    }
+}